@@ -0,0 +1,31 @@
+// Lists ISBNs held by more than one book, which keep the unique ISBN index from being created (see BookIndexes).
+// Run with mongosh against the library DB. By default it only reports; with apply=true it keeps the first inserted
+// book of every duplicated ISBN and moves the other copies to books_isbn_duplicates for review.
+//
+//   mongosh mongodb://localhost:27017/library_management_db scripts/dedupe-isbns.js
+//   mongosh mongodb://localhost:27017/library_management_db --eval 'var apply = true' scripts/dedupe-isbns.js
+const applyChanges = typeof apply !== 'undefined' && apply === true;
+const groups = db.books.aggregate([
+  { $match: { isbn: { $gt: '' } } },
+  { $sort: { _id: 1 } },
+  { $group: { _id: '$isbn', ids: { $push: '$_id' }, books: { $sum: 1 } } },
+  { $match: { books: { $gt: 1 } } }
+], { allowDiskUse: true });
+
+let isbns = 0;
+let copies = 0;
+groups.forEach(group => {
+  const extra = group.ids.slice(1); // ObjectIds sort by creation time, the first one is kept.
+  isbns++;
+  copies += extra.length;
+  print(`${group._id}: keeping ${group.ids[0]}, ${applyChanges ? 'moving' : 'would move'} ${extra.join(', ')}`);
+  if (applyChanges) {
+    const docs = db.books.find({ _id: { $in: extra } }).toArray();
+    db.books_isbn_duplicates.insertMany(docs.map(doc => Object.assign(doc, { movedAt: new Date() })));
+    db.books.deleteMany({ _id: { $in: extra } });
+  }
+});
+
+const blank = db.books.countDocuments({ $or: [{ isbn: { $exists: false } }, { isbn: null }, { isbn: '' }] });
+print(`${isbns} duplicated ISBNs, ${copies} extra copies${applyChanges ? ' moved to books_isbn_duplicates' : ''}.`);
+print(`${blank} books without an ISBN, left out of the unique index.`);
@@ -0,0 +1,32 @@
+#!/usr/bin/env bash
+# Compares the blocking API on platform threads against the virtual profile.
+# Requires a running Mongo seeded with books, the packaged jar and `hey` (https://github.com/rakyll/hey).
+#
+#   ./mvnw -DskipTests package
+#   scripts/load-compare.sh 978-1-56619-909-4
+set -euo pipefail
+
+ISBN=${1:?usage: load-compare.sh <existing isbn> [concurrency] [requests]}
+CONCURRENCY=${2:-2000}
+REQUESTS=${3:-200000}
+JAR=$(ls target/lbms-*.jar | head -1)
+PORT=8080
+
+run() {
+  local mode=$1 profiles=$2
+  java -jar "$JAR" --spring.profiles.active="$profiles" --lbms.cache.enabled=false > "target/load-$mode.log" 2>&1 < /dev/null &
+  local pid=$!
+  until curl -sf "http://localhost:$PORT/actuator/health" > /dev/null; do sleep 0.5; done
+
+  hey -z 10s -c 100 "http://localhost:$PORT/api/books/$ISBN" > /dev/null # warm up
+  for path in "api/books/$ISBN" "api/books/available?size=100"; do
+    echo "== $mode: GET /$path with $CONCURRENCY concurrent clients"
+    hey -n "$REQUESTS" -c "$CONCURRENCY" "http://localhost:$PORT/$path" \
+      | grep -E "Requests/sec|Average|99%|\[[0-9]{3}\]|Error"
+  done
+
+  kill "$pid"; wait "$pid" 2> /dev/null || true
+}
+
+run platform default
+run virtual virtual
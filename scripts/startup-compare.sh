@@ -0,0 +1,68 @@
+#!/usr/bin/env bash
+# Measures the time from launching the application to the first successful GET /api/books/{isbn} in each startup
+# mode: the plain jar, lazy initialization (faststart profile), AOT, AOT with a class data sharing archive, and the
+# native executable when target/aot/lbms exists. Requires the book to exist in the DB the profiles point at.
+#
+#   ./mvnw -Pfaststart -DskipTests package -Daot.profiles=faststart[,embedded]
+#   scripts/startup-compare.sh 978-1-56619-909-4 [profiles] [runs]
+set -euo pipefail
+
+ISBN=${1:?usage: startup-compare.sh <existing isbn> [extra profiles, e.g. embedded] [runs]}
+EXTRA=${2:-}
+RUNS=${3:-5}
+JAR=$(ls target/aot/lbms-*.jar | head -1)
+EXTRACTED=target/aot/startup
+PORT=8080
+URL="http://localhost:$PORT/api/books/$ISBN"
+
+profiles() {
+  local profiles=$1
+  [ -n "$EXTRA" ] && profiles="${profiles:+$profiles,}$EXTRA"
+  echo "${profiles:-default}"
+}
+
+# prints the milliseconds from launch to the first response carrying the book.
+measure() {
+  local start pid ms
+  start=$(date +%s%N)
+  "$@" --server.port=$PORT > target/startup-run.log 2>&1 < /dev/null &
+  pid=$!
+  until curl -s "$URL" 2> /dev/null | grep -q "\"isbn\":\"$ISBN\""; do
+    if ! kill -0 "$pid" 2> /dev/null; then
+      echo "failed, see target/startup-run.log" >&2
+      return 1
+    fi
+    sleep 0.02
+  done
+  ms=$(( ($(date +%s%N) - start) / 1000000 ))
+  kill "$pid"; wait "$pid" 2> /dev/null || true
+  echo "$ms"
+}
+
+report() {
+  local mode=$1; shift
+  local times=()
+  for _ in $(seq "$RUNS"); do
+    times+=("$(measure "$@")")
+  done
+  local sorted
+  sorted=$(printf '%s\n' "${times[@]}" | sort -n)
+  printf '%-10s median %6d ms  min %6d ms  (%s)\n' "$mode" \
+    "$(echo "$sorted" | sed -n "$(( (RUNS + 1) / 2 ))p")" "$(echo "$sorted" | head -1)" "${times[*]}"
+}
+
+# the CDS archive is created by a training run that exits once the context has refreshed.
+rm -rf "$EXTRACTED"
+java -Djarmode=tools -jar "$JAR" extract --destination "$EXTRACTED" > /dev/null
+APP="$EXTRACTED/$(basename "$JAR")"
+java -XX:ArchiveClassesAtExit="$EXTRACTED/lbms.jsa" -Dspring.aot.enabled=true -Dspring.context.exit=onRefresh \
+  -jar "$APP" --spring.profiles.active="$(profiles faststart)" > target/startup-training.log 2>&1 < /dev/null
+
+report default java -jar "$JAR" --spring.profiles.active="$(profiles "")"
+report lazy java -jar "$JAR" --spring.profiles.active="$(profiles faststart)"
+report aot java -Dspring.aot.enabled=true -jar "$JAR" --spring.profiles.active="$(profiles faststart)"
+report aot+cds java -XX:SharedArchiveFile="$EXTRACTED/lbms.jsa" -Dspring.aot.enabled=true -jar "$APP" \
+  --spring.profiles.active="$(profiles faststart)"
+if [ -x target/aot/lbms ]; then
+  report native target/aot/lbms --spring.profiles.active="$(profiles faststart)"
+fi
@@ -0,0 +1,87 @@
+/**
+ * This package contains the binary encodings of the book payloads.
+ */
+package com.org.bansira.lbms.codec;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.org.bansira.lbms.domain.Book;
+import com.org.bansira.lbms.domain.BookFixtures;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes and decodes a list of books in each media type {@code LibraryController} negotiates, with the mappers
+ * Spring MVC builds for them. {@code encode} reports the size of the encoded list in the {@code bytes} column.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookCodecBenchmark {
+
+    @Param({"10000"})
+    int listSize;
+
+    @Param({"json", "cbor", "smile", "protobuf"})
+    String format;
+
+    private final TypeReference<List<Book>> bookList = new TypeReference<>() { };
+    private ObjectMapper mapper; // null for protobuf.
+    private ProtobufBookHttpMessageConverter protobuf;
+    private List<Book> books;
+    private byte[] encoded;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Output {
+        public long bytes;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        mapper = switch (format) {
+            case "json" -> Jackson2ObjectMapperBuilder.json().build();
+            case "cbor" -> Jackson2ObjectMapperBuilder.cbor().build();
+            case "smile" -> Jackson2ObjectMapperBuilder.smile().build();
+            default -> null;
+        };
+        protobuf = new ProtobufBookHttpMessageConverter();
+        books = BookFixtures.catalogue(listSize);
+        encoded = write();
+    }
+
+    @Benchmark
+    public byte[] encode(Output output) throws IOException {
+        byte[] encoded = write();
+        output.bytes = encoded.length;
+        return encoded;
+    }
+
+    private byte[] write() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1 << 20);
+        if (mapper == null) {
+            protobuf.write(books, out);
+        } else {
+            mapper.writeValue(out, books);
+        }
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public List<Book> decode() throws IOException {
+        if (mapper == null) {
+            return (List<Book>) protobuf.read(bookList.getType(), new ByteArrayInputStream(encoded));
+        }
+        return mapper.readValue(encoded, bookList);
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * This package has all the REST API endpoints for managing a library.
+ */
+package com.org.bansira.lbms.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.org.bansira.lbms.data.BenchmarkRepositories;
+import com.org.bansira.lbms.data.BookRepository;
+import com.org.bansira.lbms.domain.Book;
+import com.org.bansira.lbms.domain.BookFields;
+import com.org.bansira.lbms.domain.BookFixtures;
+import com.org.bansira.lbms.metrics.LibraryMetrics;
+import com.org.bansira.lbms.search.BookSearchIndex;
+import com.org.bansira.lbms.service.impl.CatalogueStatistics;
+import com.org.bansira.lbms.service.impl.CatalogueVersion;
+import com.org.bansira.lbms.service.impl.LibraryServiceImpl;
+import com.org.bansira.lbms.service.impl.SingleFlight;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the handler methods of {@link LibraryController}: the service call and the mapping of its
+ * {@code Optional} result to a {@code ResponseEntity}, without the servlet and message converter overhead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LibraryControllerBenchmark {
+
+    private static final int CATALOGUE_SIZE = 10_000;
+
+    @Param({"embedded"})
+    String backend;
+
+    private LibraryController controller;
+    private String[] isbns; // precomputed so the benchmarks do not measure key formatting.
+    private String[] authors;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BookRepository repository = BenchmarkRepositories.create(backend);
+        LibraryServiceImpl service = new LibraryServiceImpl();
+        ReflectionTestUtils.setField(service, "bookRepository", repository);
+        ReflectionTestUtils.setField(service, "bookSearchIndex", new BookSearchIndex());
+        ReflectionTestUtils.setField(service, "singleFlight", new SingleFlight(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(service, "catalogueVersion", new CatalogueVersion());
+        ReflectionTestUtils.setField(service, "catalogueStatistics", new CatalogueStatistics());
+        List<Book> catalogue = BookFixtures.catalogue(CATALOGUE_SIZE);
+        service.addBooks(catalogue.iterator());
+        isbns = catalogue.stream().map(Book::getIsbn).toArray(String[]::new);
+        authors = catalogue.stream().map(Book::getAuthor).distinct().toArray(String[]::new);
+
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        controller = new LibraryController();
+        ReflectionTestUtils.setField(controller, "libraryService", service);
+        ReflectionTestUtils.setField(controller, "objectMapper", objectMapper);
+        LibraryMetrics libraryMetrics = new LibraryMetrics();
+        ReflectionTestUtils.setField(libraryMetrics, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(controller, "libraryMetrics", libraryMetrics);
+        controller.init();
+    }
+
+    @Benchmark
+    public ResponseEntity<Object> getBookByIsbnFound() {
+        return controller.getBookByIsbn(isbns[ThreadLocalRandom.current().nextInt(isbns.length)], request());
+    }
+
+    @Benchmark
+    public ResponseEntity<Object> getBookByIsbnNotFound() {
+        return controller.getBookByIsbn("000-unknown", request());
+    }
+
+    @Benchmark
+    public ResponseEntity<Object> getAllBooksPage() {
+        return controller.getAllBooks(null, 100, null, request());
+    }
+
+    @Benchmark
+    public ResponseEntity<Object> getAllBooksSummaryPage() {
+        return controller.getAllBooks(null, 100, BookFields.SUMMARY_VIEW, request());
+    }
+
+    @Benchmark
+    public ResponseEntity<Object> getBookByAuthor() {
+        return controller.getBookByAuthor(authors[ThreadLocalRandom.current().nextInt(authors.length)], null, null, null, request());
+    }
+
+    private static ServletWebRequest request() {
+        return new ServletWebRequest(new MockHttpServletRequest(), new MockHttpServletResponse());
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * This package contains all the DB queries for the Book collection.
+ */
+package com.org.bansira.lbms.data;
+
+import com.org.bansira.lbms.domain.Book;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.SimpleMongoClientDatabaseFactory;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Builds the {@link BookRepository} a benchmark runs against, selected with {@code -p backend=...}:
+ * {@code embedded} (the default) or {@code mongo}, an emptied {@code books} collection in the database named by the
+ * {@code lbms.benchmark.mongodb-uri} system property.
+ */
+public final class BenchmarkRepositories {
+
+    private BenchmarkRepositories() {
+    }
+
+    public static BookRepository create(String backend) {
+        return switch (backend) {
+            case "embedded" -> embedded();
+            case "mongo" -> mongo(System.getProperty("lbms.benchmark.mongodb-uri", "mongodb://localhost:27017/lbms_benchmark"));
+            default -> throw new IllegalArgumentException("Unknown backend " + backend);
+        };
+    }
+
+    private static BookRepository embedded() {
+        EmbeddedBookRepository repository = new EmbeddedBookRepository(); // no snapshot file, memory only.
+        try {
+            repository.load();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return repository;
+    }
+
+    private static BookRepository mongo(String uri) {
+        MongoTemplate template = new MongoTemplate(new SimpleMongoClientDatabaseFactory(uri));
+        template.dropCollection(Book.class);
+        IndexOperations indexes = template.indexOps(Book.class);
+        new MongoPersistentEntityIndexResolver(template.getConverter().getMappingContext())
+                .resolveIndexFor(Book.class)
+                .forEach(indexes::ensureIndex);
+        BookRepositoryCustomImpl custom = new BookRepositoryCustomImpl();
+        ReflectionTestUtils.setField(custom, "mongoTemplate", template);
+        return new MongoRepositoryFactory(template)
+                .getRepository(BookRepository.class, RepositoryComposition.RepositoryFragments.just(custom));
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * This package contains all the DB queries for the Book collection.
+ */
+package com.org.bansira.lbms.data;
+
+import com.org.bansira.lbms.domain.Book;
+import com.org.bansira.lbms.domain.BookFixtures;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the durability cost of the embedded store's log: write throughput under each sync policy, and how long
+ * startup takes to rebuild a large catalogue from the log alone compared to a snapshot.
+ */
+@Fork(1)
+public class EmbeddedStoreBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Writes {
+
+        @Param({"none", "interval", "always"})
+        String sync;
+
+        EmbeddedBookRepository repository;
+        String[] isbns;
+        Path directory;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("lbms-writes");
+            repository = repository(directory, true, sync);
+            List<Book> catalogue = BookFixtures.catalogue(100_000);
+            repository.insertAllUnordered(catalogue);
+            isbns = catalogue.stream().map(Book::getIsbn).toArray(String[]::new);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            repository.close();
+            FileSystemUtils.deleteRecursively(directory);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Startup {
+
+        @Param({"1000000"})
+        int catalogueSize;
+
+        Path logged;
+        Path snapshotted;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            List<Book> catalogue = BookFixtures.catalogue(catalogueSize);
+            logged = Files.createTempDirectory("lbms-log");
+            repository(logged, true, "none").insertAllUnordered(catalogue); // left open, as if killed.
+            snapshotted = Files.createTempDirectory("lbms-snapshot");
+            EmbeddedBookRepository repository = repository(snapshotted, false, "none");
+            repository.insertAllUnordered(catalogue);
+            repository.close();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            FileSystemUtils.deleteRecursively(logged);
+            FileSystemUtils.deleteRecursively(snapshotted);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 2, time = 2)
+    @Measurement(iterations = 3, time = 2)
+    @Threads(4)
+    public Book toggleAvailability(Writes writes) {
+        String isbn = writes.isbns[ThreadLocalRandom.current().nextInt(writes.isbns.length)];
+        Book book = writes.repository.updateAvailability(isbn, true, false);
+        return book != null ? book : writes.repository.updateAvailability(isbn, false, true);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public long replayLog(Startup startup) throws IOException {
+        return repository(startup.logged, true, "none").count();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public long loadSnapshot(Startup startup) throws IOException {
+        return repository(startup.snapshotted, false, "none").count();
+    }
+
+    /**
+     * A store without periodic snapshots or compaction, so only the measured work touches the files.
+     */
+    private static EmbeddedBookRepository repository(Path directory, boolean logEnabled, String sync) throws IOException {
+        EmbeddedBookRepository repository = new EmbeddedBookRepository();
+        ReflectionTestUtils.setField(repository, "snapshotPath", directory.resolve("books.ndjson").toString());
+        ReflectionTestUtils.setField(repository, "logEnabled", logEnabled);
+        ReflectionTestUtils.setField(repository, "logSync", sync);
+        ReflectionTestUtils.setField(repository, "logSyncInterval", Duration.ofMillis(100));
+        repository.load();
+        return repository;
+    }
+}
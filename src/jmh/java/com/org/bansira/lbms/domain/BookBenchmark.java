@@ -0,0 +1,84 @@
+/**
+ * This package contains the representation of a Book in the library.
+ */
+package com.org.bansira.lbms.domain;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures JSON encoding of single books and large book lists with the same ObjectMapper configuration
+ * Spring Boot uses, and the cost of {@link Book#equals} and {@link Book#hashCode} in hash based collections.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookBenchmark {
+
+    @Param({"10000"})
+    int listSize;
+
+    private ObjectMapper objectMapper;
+    private Book book;
+    private byte[] bookJson;
+    private List<Book> books;
+    private List<Book> summaries;
+    private byte[] booksJson;
+    private Set<Book> bookSet;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        books = BookFixtures.catalogue(listSize);
+        book = books.get(0);
+        bookJson = objectMapper.writeValueAsBytes(book);
+        booksJson = objectMapper.writeValueAsBytes(books);
+        summaries = books.stream().map(BookFields.SUMMARY::project).toList();
+        bookSet = new HashSet<>(books);
+    }
+
+    @Benchmark
+    public byte[] serializeBook() throws Exception {
+        return objectMapper.writeValueAsBytes(book);
+    }
+
+    @Benchmark
+    public Book deserializeBook() throws Exception {
+        return objectMapper.readValue(bookJson, Book.class);
+    }
+
+    @Benchmark
+    public byte[] serializeBookList() throws Exception {
+        return objectMapper.writeValueAsBytes(books);
+    }
+
+    @Benchmark
+    public byte[] serializeSummaryList() throws Exception {
+        return objectMapper.writeValueAsBytes(summaries);
+    }
+
+    @Benchmark
+    public List<Book> deserializeBookList() throws Exception {
+        return objectMapper.readValue(booksJson, new TypeReference<List<Book>>() { });
+    }
+
+    @Benchmark
+    public Set<Book> buildHashSet() {
+        return new HashSet<>(books);
+    }
+
+    @Benchmark
+    public boolean hashSetContains() {
+        return bookSet.contains(new Book(null, book.getIsbn(), null, null, null, null, null));
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * This package contains the representation of a Book in the library.
+ */
+package com.org.bansira.lbms.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates a reproducible synthetic catalogue for the benchmarks, with realistic repetition
+ * of authors, genres and departments.
+ */
+public final class BookFixtures {
+
+    private static final String[] WORDS = {"shadow", "river", "empire", "garden", "winter", "secret", "silent", "harbour",
+            "crown", "letters", "journey", "stone", "mirror", "night", "storm", "island", "city", "glass", "fire", "song"};
+    private static final String[] GENRES = {"Mystery", "Fantasy", "Biography", "History", "Science", "Poetry", "Romance", "Thriller"};
+    private static final String[] DEPARTMENTS = {"Literature", "Science", "History", "Arts", "Children", "Reference"};
+
+    private BookFixtures() {
+    }
+
+    /**
+     * @param size number of books to generate.
+     * @return books with distinct ISBNs, roughly one author per 20 books and 80% of them available.
+     */
+    public static List<Book> catalogue(int size) {
+        Random random = new Random(42);
+        List<Book> books = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String title = capitalize(WORDS[random.nextInt(WORDS.length)]) + " of the " + capitalize(WORDS[random.nextInt(WORDS.length)]);
+            books.add(new Book("id-" + i, title, isbn(i), "Author " + random.nextInt(Math.max(1, size / 20)),
+                    GENRES[random.nextInt(GENRES.length)], 1900 + random.nextInt(125),
+                    DEPARTMENTS[random.nextInt(DEPARTMENTS.length)], random.nextInt(5) != 0));
+        }
+        return books;
+    }
+
+    /**
+     * @param i position of a book in the catalogue.
+     * @return the ISBN generated for that book.
+     */
+    public static String isbn(int i) {
+        return String.format("978-%010d", i);
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+}
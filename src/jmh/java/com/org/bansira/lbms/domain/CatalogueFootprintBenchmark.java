@@ -0,0 +1,92 @@
+/**
+ * This package contains the representation of a Book in the library.
+ */
+package com.org.bansira.lbms.domain;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports the heap retained per book by an ISBN keyed catalogue, as {@code Book} objects or as {@link BookColumns},
+ * in the {@code bytesPerBook} column. The books are decoded from JSON with Mongo ids, so like books read from the DB
+ * none of their strings are shared.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1) // the footprint counter is summed over iterations.
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class CatalogueFootprintBenchmark {
+
+    @Param({"1000000"})
+    int catalogueSize;
+
+    @Param({"objects", "columns"})
+    String representation;
+
+    private byte[] json;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Footprint {
+        public long bytesPerBook;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<Book> catalogue = BookFixtures.catalogue(catalogueSize);
+        ObjectWriter writer = mapper.writerFor(Book.class);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (Book book : catalogue) {
+            book.setId(new ObjectId().toHexString());
+            out.write(writer.writeValueAsBytes(book));
+            out.write('\n');
+        }
+        json = out.toByteArray();
+    }
+
+    @Benchmark
+    public Object retainedHeap(Footprint footprint) throws IOException {
+        long baseline = usedHeap();
+        Object catalogue = "objects".equals(representation) ? objects() : columns();
+        footprint.bytesPerBook = (usedHeap() - baseline) / catalogueSize;
+        return catalogue;
+    }
+
+    private Map<String, Book> objects() throws IOException {
+        Map<String, Book> books = new HashMap<>();
+        try (MappingIterator<Book> decoded = mapper.readerFor(Book.class).readValues(json)) {
+            decoded.forEachRemaining(book -> books.put(book.getIsbn(), book));
+        }
+        return books;
+    }
+
+    private Object[] columns() throws IOException {
+        BookColumns books = new BookColumns();
+        Map<String, Integer> rows = new HashMap<>();
+        try (MappingIterator<Book> decoded = mapper.readerFor(Book.class).readValues(json)) {
+            decoded.forEachRemaining(book -> rows.put(book.getIsbn(), books.insert(book)));
+        }
+        return new Object[] {books, rows};
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
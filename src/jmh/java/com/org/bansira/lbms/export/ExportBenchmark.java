@@ -0,0 +1,93 @@
+/**
+ * This package contains the bulk export formats of the library catalogue.
+ */
+package com.org.bansira.lbms.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.org.bansira.lbms.domain.Book;
+import com.org.bansira.lbms.domain.BookFixtures;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports a catalogue in each format, gzipped as the export endpoint serves it, and reports the size of the output
+ * in the {@code bytes} column. NDJSON, what the catalogue streams as today, is the baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class ExportBenchmark {
+
+    @Param({"1000000"})
+    int catalogueSize;
+
+    @Param({"ndjson", "csv", "columnar"})
+    String format;
+
+    @Param({"true", "false"})
+    boolean gzip;
+
+    private List<Book> catalogue;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Output {
+        public long bytes;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        catalogue = BookFixtures.catalogue(catalogueSize);
+        catalogue.forEach(book -> book.setId(null)); // the export formats do not carry ids.
+    }
+
+    @Benchmark
+    public long export(Output output) throws IOException {
+        CountingOutputStream counter = new CountingOutputStream();
+        OutputStream out = gzip ? new GZIPOutputStream(counter, 1 << 16) : counter;
+        if ("ndjson".equals(format)) {
+            ObjectWriter writer = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            try (JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+                generator.setRootValueSeparator(null);
+                for (Book book : catalogue) {
+                    writer.writeValue(generator, book);
+                    generator.writeRaw('\n');
+                }
+            }
+        } else {
+            try (BookExportWriter writer = ExportFormat.parse(format).open(out)) {
+                for (Book book : catalogue) {
+                    writer.write(book);
+                }
+            }
+        }
+        output.bytes = counter.count;
+        return counter.count;
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
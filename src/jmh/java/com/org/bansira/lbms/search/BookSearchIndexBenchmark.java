@@ -0,0 +1,50 @@
+/**
+ * This package contains the in-memory full text search over the library catalogue.
+ */
+package com.org.bansira.lbms.search;
+
+import com.org.bansira.lbms.domain.BookFixtures;
+import com.org.bansira.lbms.domain.BookPage;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples the latency of {@link BookSearchIndex#search} for a first page and for the page after it, so the
+ * percentiles of the run report p99. "shad riv" matches about one book in 200 of {@link BookFixtures#catalogue},
+ * "the" matches every book and is the worst case for ranking.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class BookSearchIndexBenchmark {
+
+    @Param({"1000000"})
+    int catalogueSize;
+
+    @Param({"shad riv", "the"})
+    String query;
+
+    private BookSearchIndex index;
+    private String secondPage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = new BookSearchIndex();
+        BookFixtures.catalogue(catalogueSize).forEach(index::index);
+        secondPage = index.search(query, null, 20).getNextCursor();
+    }
+
+    @Benchmark
+    public BookPage firstPage() {
+        return index.search(query, null, 20);
+    }
+
+    @Benchmark
+    public BookPage nextPage() {
+        return index.search(query, secondPage, 20);
+    }
+}
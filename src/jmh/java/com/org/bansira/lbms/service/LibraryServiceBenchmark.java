@@ -0,0 +1,110 @@
+/**
+ * This package contains service layer implementations of Library APIs.
+ */
+package com.org.bansira.lbms.service;
+
+import com.org.bansira.lbms.data.BenchmarkRepositories;
+import com.org.bansira.lbms.data.BookRepository;
+import com.org.bansira.lbms.domain.Book;
+import com.org.bansira.lbms.domain.BookFixtures;
+import com.org.bansira.lbms.domain.BookPage;
+import com.org.bansira.lbms.search.BookSearchIndex;
+import com.org.bansira.lbms.service.impl.CatalogueStatistics;
+import com.org.bansira.lbms.service.impl.CatalogueVersion;
+import com.org.bansira.lbms.service.impl.LibraryServiceImpl;
+import com.org.bansira.lbms.service.impl.SingleFlight;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures {@link LibraryServiceImpl} against the embedded store, isolating the service layer cost
+ * (pagination, bulk batching, search index maintenance) from DB latency.
+ * Run with {@code -p backend=embedded,mongo} to compare the embedded store with Mongo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LibraryServiceBenchmark {
+
+    @Param({"100000"})
+    int catalogueSize;
+
+    @Param({"embedded"})
+    String backend;
+
+    private LibraryService libraryService;
+    private List<Book> catalogue;
+    private int inserted;
+    private String[] isbns; // precomputed so the benchmarks do not measure key formatting.
+    private String[] authors;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BookRepository repository = BenchmarkRepositories.create(backend);
+        BookSearchIndex index = new BookSearchIndex();
+        ReflectionTestUtils.setField(index, "bookRepository", repository);
+        LibraryServiceImpl service = new LibraryServiceImpl();
+        ReflectionTestUtils.setField(service, "bookRepository", repository);
+        ReflectionTestUtils.setField(service, "bookSearchIndex", index);
+        ReflectionTestUtils.setField(service, "singleFlight", new SingleFlight(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(service, "catalogueVersion", new CatalogueVersion());
+        ReflectionTestUtils.setField(service, "catalogueStatistics", new CatalogueStatistics());
+        libraryService = service;
+
+        catalogue = BookFixtures.catalogue(catalogueSize);
+        libraryService.addBooks(catalogue.iterator());
+        isbns = catalogue.stream().map(Book::getIsbn).toArray(String[]::new);
+        authors = catalogue.stream().map(Book::getAuthor).distinct().toArray(String[]::new);
+    }
+
+    @Benchmark
+    public Optional<Book> findBookByIsbn() {
+        return libraryService.findBookByIsbn(isbns[ThreadLocalRandom.current().nextInt(isbns.length)]);
+    }
+
+    @Benchmark
+    public BookPage listAllBooksPage() {
+        return libraryService.listAllBooks(isbns[ThreadLocalRandom.current().nextInt(isbns.length)], 100);
+    }
+
+    @Benchmark
+    public BookPage listAvailableBooksPage() {
+        return libraryService.listAvailableBooks(null, 100);
+    }
+
+    @Benchmark
+    public Optional<List<Book>> findBookByAuthor() {
+        return libraryService.findBookByAuthor(authors[ThreadLocalRandom.current().nextInt(authors.length)]);
+    }
+
+    @Benchmark
+    public BookPage searchBooks() {
+        return libraryService.searchBooks("shad riv", null, 20);
+    }
+
+    @Benchmark
+    public void streamAllBooks(Blackhole blackhole) {
+        try (Stream<Book> books = libraryService.streamAllBooks()) {
+            books.forEach(blackhole::consume);
+        }
+    }
+
+    @Benchmark
+    public Optional<Book> addAndRemoveBook() {
+        String isbn = "979-" + inserted++;
+        Optional<Book> book = libraryService.addBook(new Book("Glass Harbour", isbn, "Author 1", "Mystery", 2001, "Literature", true));
+        libraryService.removeBook(isbn);
+        return book;
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * This package contains the admission control in front of the DB backed endpoints.
+ */
+package com.org.bansira.lbms.admission;
+
+/**
+ * Concurrency limit that follows the latency of the requests it admits.
+ * Latency is tracked twice: a short average that reacts within a few requests and a long average that stands for the
+ * latency of a healthy DB. While the short average stays within {@value #TOLERANCE} times the long one the limit
+ * grows towards itself plus its square root, once requests slow down further it shrinks towards the limit scaled
+ * by how much they slowed down, at most halving it. The limit only grows while at least half of it is in use, so an idle endpoint does not build
+ * up a limit it never tested. Each adjustment is smoothed, and the limit stays between its minimum and maximum.
+ * Not thread safe, callers synchronize.
+ */
+final class AdaptiveLimit {
+
+    static final double TOLERANCE = 1.5;
+    private static final double SHORT_WEIGHT = 0.1; // about the last 10 requests.
+    private static final double LONG_WEIGHT = 0.005; // about the last 200 requests.
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final boolean adaptive;
+    private double limit;
+    private double shortLatency;
+    private double longLatency;
+
+    AdaptiveLimit(int initialLimit, int minLimit, int maxLimit, boolean adaptive) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.adaptive = adaptive;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Records the latency of a completed request and adjusts the limit.
+     * @param latencyNanos time the request held its permit.
+     * @param inFlight requests holding a permit when it completed, including itself.
+     */
+    void sample(long latencyNanos, int inFlight) {
+        if (!adaptive) {
+            return;
+        }
+        if (shortLatency == 0) {
+            shortLatency = latencyNanos;
+            longLatency = latencyNanos;
+            return;
+        }
+        shortLatency += (latencyNanos - shortLatency) * SHORT_WEIGHT;
+        longLatency += (latencyNanos - longLatency) * LONG_WEIGHT;
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longLatency / shortLatency));
+        if (gradient == 1.0 && inFlight < limit / 2) {
+            return;
+        }
+        double target = gradient < 1.0 ? limit * gradient : limit + Math.sqrt(limit);
+        limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - SMOOTHING) + target * SMOOTHING));
+    }
+
+    /**
+     * @return the number of requests that may hold a permit at once.
+     */
+    int get() {
+        return (int) limit;
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * This package contains the admission control in front of the DB backed endpoints.
+ */
+package com.org.bansira.lbms.admission;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Limits concurrent requests to the book endpoints so a slow DB sheds load instead of queueing every request.
+ * Lookups, writes and scans start at {@code lbms.admission.initial-limit} concurrent requests each and adapt
+ * between {@code lbms.admission.min-limit} and {@code lbms.admission.max-limit} as their latency changes. Lookups
+ * and writes may wait {@code lbms.admission.max-wait} for a permit, scans are rejected at once. Streams and bulk adds
+ * hold a cursor or a connection for their whole duration, so their latency says nothing about the DB and they get
+ * the fixed {@code lbms.admission.bulk-limit}. Set {@code lbms.admission.enabled=false} to turn it off.
+ */
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(name = "lbms.admission.enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionConfig {
+
+    @Bean
+    public AdmissionLimiter admissionLimiter(
+            @Value("${lbms.admission.initial-limit:20}") int initialLimit,
+            @Value("${lbms.admission.min-limit:2}") int minLimit,
+            @Value("${lbms.admission.max-limit:200}") int maxLimit,
+            @Value("${lbms.admission.bulk-limit:4}") int bulkLimit,
+            @Value("${lbms.admission.queue-size:100}") int queueSize,
+            @Value("${lbms.admission.max-wait:50ms}") Duration maxWait,
+            MeterRegistry meterRegistry) {
+        AdmissionLimiter.Queueing queueing = new AdmissionLimiter.Queueing(queueSize, maxWait);
+        return new AdmissionLimiter(Map.of(
+                AdmissionLimiter.RequestClass.LOOKUP, new AdaptiveLimit(initialLimit, minLimit, maxLimit, true),
+                AdmissionLimiter.RequestClass.WRITE, new AdaptiveLimit(initialLimit, minLimit, maxLimit, true),
+                AdmissionLimiter.RequestClass.SCAN, new AdaptiveLimit(initialLimit, minLimit, maxLimit, true),
+                AdmissionLimiter.RequestClass.BULK, new AdaptiveLimit(bulkLimit, bulkLimit, bulkLimit, false)),
+                Map.of(AdmissionLimiter.RequestClass.LOOKUP, queueing, AdmissionLimiter.RequestClass.WRITE, queueing),
+                meterRegistry);
+    }
+
+    @Bean
+    public FilterRegistrationBean<AdmissionFilter> admissionFilter(AdmissionLimiter admissionLimiter,
+            @Value("${lbms.admission.retry-after:1s}") Duration retryAfter) {
+        FilterRegistrationBean<AdmissionFilter> registration =
+                new FilterRegistrationBean<>(new AdmissionFilter(admissionLimiter, Math.max(1, retryAfter.toSeconds())));
+        registration.addUrlPatterns(AdmissionFilter.PREFIX, AdmissionFilter.PREFIX + "/*");
+        return registration;
+    }
+}
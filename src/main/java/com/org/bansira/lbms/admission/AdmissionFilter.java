@@ -0,0 +1,130 @@
+/**
+ * This package contains the admission control in front of the DB backed endpoints.
+ */
+package com.org.bansira.lbms.admission;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Admits requests to the book endpoints through the {@link AdmissionLimiter} and answers 503 with
+ * {@code Retry-After} when a request is rejected, before any DB work is done.
+ * Endpoints served from memory (search, write-behind and bulk job status) are not limited.
+ * Streaming responses keep their permit until the stream completes.
+ */
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    static final String PREFIX = "/api/books";
+
+    private final AdmissionLimiter limiter;
+    private final long retryAfterSeconds;
+
+    public AdmissionFilter(AdmissionLimiter limiter, long retryAfterSeconds) {
+        this.limiter = limiter;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        AdmissionLimiter.RequestClass requestClass = classify(request);
+        if (requestClass == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        AdmissionLimiter.Permit permit;
+        try {
+            permit = limiter.tryAcquire(requestClass);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            permit = null;
+        }
+        if (permit == null) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.getWriter().write("Too many concurrent requests, retry later");
+            return;
+        }
+        boolean async = false;
+        try {
+            chain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new Releaser(permit));
+                async = true;
+            }
+        } finally {
+            if (!async) {
+                permit.release();
+            }
+        }
+    }
+
+    /**
+     * @return the class of the endpoint, or null if it is not limited.
+     */
+    static AdmissionLimiter.RequestClass classify(HttpServletRequest request) {
+        String uri = request.getRequestURI().substring(request.getContextPath().length());
+        if (!uri.startsWith(PREFIX)) {
+            return null;
+        }
+        String path = uri.substring(PREFIX.length());
+        String[] segments = path.isEmpty() || path.equals("/") ? new String[0] : path.substring(1).split("/");
+        String method = request.getMethod();
+        if (HttpMethod.GET.matches(method)) {
+            if (segments.length > 0 && (segments[0].equals("search") || segments[0].equals("writes")
+                    || segments[0].equals("jobs"))) {
+                return null;
+            }
+            String accept = request.getHeader(HttpHeaders.ACCEPT);
+            if (accept != null && accept.contains(MediaType.APPLICATION_NDJSON_VALUE)
+                    || segments.length == 1 && segments[0].equals("export")) {
+                return AdmissionLimiter.RequestClass.BULK;
+            }
+            if (segments.length == 1 && !segments[0].equals("available")) {
+                return AdmissionLimiter.RequestClass.LOOKUP;
+            }
+            return AdmissionLimiter.RequestClass.SCAN;
+        }
+        if (HttpMethod.POST.matches(method) && segments.length == 1 && segments[0].equals("bulk")) {
+            return AdmissionLimiter.RequestClass.BULK;
+        }
+        return AdmissionLimiter.RequestClass.WRITE;
+    }
+
+    /**
+     * Releases the permit of an asynchronous request once its response is complete.
+     */
+    private record Releaser(AdmissionLimiter.Permit permit) implements AsyncListener {
+        @Override
+        public void onComplete(AsyncEvent event) {
+            permit.release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            permit.release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            permit.release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this); // listeners are cleared when async processing restarts.
+        }
+    }
+}
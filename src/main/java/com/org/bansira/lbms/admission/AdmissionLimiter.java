@@ -0,0 +1,201 @@
+/**
+ * This package contains the admission control in front of the DB backed endpoints.
+ */
+package com.org.bansira.lbms.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounds the number of concurrent requests of each {@link RequestClass} with an {@link AdaptiveLimit}.
+ * A request over the limit of its class may wait for a permit if its class has a wait time and room in its queue,
+ * otherwise it is rejected at once. A request is also refused while a class of higher priority has requests
+ * waiting, so lookups are served before scans whenever they compete.
+ * Publishes {@code lbms.admission.limit}, {@code lbms.admission.in.flight} and {@code lbms.admission.queued} gauges,
+ * {@code lbms.admission.rejected} tagged by reason and {@code lbms.admission.limit.changes} tagged by direction,
+ * all tagged by class.
+ */
+public class AdmissionLimiter {
+
+    /**
+     * Groups of endpoints sharing a limit, in priority order.
+     */
+    public enum RequestClass {
+        LOOKUP, // a book by ISBN.
+        WRITE, // add, checkout, return and remove a single book.
+        SCAN, // lists and pages of books.
+        BULK // NDJSON streams, exports and bulk adds, which hold a DB cursor or connection for the whole request.
+    }
+
+    /**
+     * How many requests of a class may wait for a permit and for how long.
+     */
+    public record Queueing(int size, Duration maxWait) {
+        public static final Queueing NONE = new Queueing(0, Duration.ZERO);
+    }
+
+    /**
+     * Held by an admitted request until it completes.
+     */
+    public final class Permit {
+        private final Lane lane;
+        private final long admitted = System.nanoTime();
+        private boolean released;
+
+        private Permit(Lane lane) {
+            this.lane = lane;
+        }
+
+        /**
+         * Frees the permit and feeds the latency of the request to the limit of its class. Only the first call counts.
+         */
+        public void release() {
+            lock.lock();
+            try {
+                if (released) {
+                    return;
+                }
+                released = true;
+                int before = lane.limit.get();
+                lane.limit.sample(System.nanoTime() - admitted, lane.inFlight);
+                lane.inFlight--;
+                int after = lane.limit.get();
+                if (after > before) {
+                    lane.increases.increment();
+                } else if (after < before) {
+                    lane.decreases.increment();
+                }
+                available.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Map<RequestClass, Lane> lanes = new EnumMap<>(RequestClass.class);
+
+    /**
+     * @param limits the limit of every class.
+     * @param queueing how requests of every class wait, classes without an entry never wait.
+     */
+    AdmissionLimiter(Map<RequestClass, AdaptiveLimit> limits, Map<RequestClass, Queueing> queueing,
+                     MeterRegistry meterRegistry) {
+        for (RequestClass requestClass : RequestClass.values()) {
+            lanes.put(requestClass, new Lane(requestClass, limits.get(requestClass),
+                    queueing.getOrDefault(requestClass, Queueing.NONE), meterRegistry));
+        }
+    }
+
+    /**
+     * Admits a request, waiting up to the wait time of its class.
+     * @param requestClass the class of the request.
+     * @return the permit to release when the request completes, or null if the request is rejected.
+     */
+    public Permit tryAcquire(RequestClass requestClass) throws InterruptedException {
+        Lane lane = lanes.get(requestClass);
+        lock.lock();
+        try {
+            if (admissible(lane)) {
+                return admit(lane);
+            }
+            if (lane.waiting >= lane.queueing.size()) {
+                lane.rejectedFull.increment();
+                return null;
+            }
+            long remaining = lane.queueing.maxWait().toNanos();
+            lane.waiting++;
+            try {
+                while (remaining > 0) {
+                    remaining = available.awaitNanos(remaining);
+                    if (admissible(lane)) {
+                        return admit(lane);
+                    }
+                }
+            } finally {
+                lane.waiting--;
+                available.signalAll(); // lower classes may have been held back by this wait.
+            }
+            lane.rejectedTimeout.increment();
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the current limit of the class.
+     */
+    public int limit(RequestClass requestClass) {
+        lock.lock();
+        try {
+            return lanes.get(requestClass).limit.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean admissible(Lane lane) {
+        if (lane.inFlight >= lane.limit.get()) {
+            return false;
+        }
+        for (RequestClass higher : RequestClass.values()) {
+            if (higher == lane.requestClass) {
+                return true;
+            }
+            if (lanes.get(higher).waiting > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Permit admit(Lane lane) {
+        lane.inFlight++;
+        return new Permit(lane);
+    }
+
+    /**
+     * State of one class, guarded by the lock.
+     */
+    private final class Lane {
+        final RequestClass requestClass;
+        final AdaptiveLimit limit;
+        final Queueing queueing;
+        final Counter rejectedFull;
+        final Counter rejectedTimeout;
+        final Counter increases;
+        final Counter decreases;
+        int inFlight;
+        int waiting;
+
+        Lane(RequestClass requestClass, AdaptiveLimit limit, Queueing queueing, MeterRegistry meterRegistry) {
+            this.requestClass = requestClass;
+            this.limit = limit;
+            this.queueing = queueing;
+            String tag = requestClass.name().toLowerCase();
+            Gauge.builder("lbms.admission.limit", this, lane -> limit(lane.requestClass))
+                    .tag("class", tag).register(meterRegistry);
+            Gauge.builder("lbms.admission.in.flight", this, lane -> lane.inFlight)
+                    .tag("class", tag).register(meterRegistry);
+            Gauge.builder("lbms.admission.queued", this, lane -> lane.waiting)
+                    .tag("class", tag).register(meterRegistry);
+            rejectedFull = Counter.builder("lbms.admission.rejected").tag("class", tag).tag("reason", "limit")
+                    .register(meterRegistry);
+            rejectedTimeout = Counter.builder("lbms.admission.rejected").tag("class", tag).tag("reason", "timeout")
+                    .register(meterRegistry);
+            increases = Counter.builder("lbms.admission.limit.changes").tag("class", tag).tag("direction", "up")
+                    .register(meterRegistry);
+            decreases = Counter.builder("lbms.admission.limit.changes").tag("class", tag).tag("direction", "down")
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ * This package contains the cache of serialized responses of the hot book listings.
+ */
+package com.org.bansira.lbms.cache;
+
+import com.org.bansira.lbms.service.impl.CatalogueVersion;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps response bodies as serialized JSON and as gzipped JSON, so a hit is written straight from the bytes without
+ * querying or serializing again. Every body is kept with the {@link CatalogueVersion} it was read at, e.g. of the
+ * author it lists, and only served for that version. A body is dropped when it is asked for at a newer version, and
+ * a body read at an older version than the one already kept for its key is not stored, so a slow request never
+ * replaces a fresher body. The bodies take at most {@code lbms.response-cache.max-size} bytes, the least recently
+ * used are evicted beyond that, and a body over a quarter of the budget is never kept.
+ * Publishes {@code lbms.response.cache.requests} tagged by result, {@code lbms.response.cache.evictions}, and
+ * {@code lbms.response.cache.size} and {@code lbms.response.cache.entries} gauges.
+ * Set {@code lbms.response-cache.enabled=false} to run without it.
+ */
+@Component
+@ConditionalOnProperty(name = "lbms.response-cache.enabled", havingValue = "true", matchIfMissing = true)
+public class SerializedResponseCache {
+
+    static final int ENTRY_OVERHEAD = 256; // rough size of the key, entry and array headers.
+
+    /**
+     * A cached response body.
+     * @param json the body as JSON.
+     * @param gzip the same body gzipped.
+     * @param results the number of books in the body, for the result size metrics.
+     */
+    public record Body(byte[] json, byte[] gzip, long results) {
+        long size() {
+            return json.length + gzip.length + ENTRY_OVERHEAD;
+        }
+    }
+
+    @Value("${lbms.response-cache.max-size:64MB}")
+    private DataSize maxSize;
+
+    private record Entry(String version, Body body) {
+    }
+
+    private final Map<Object, Entry> bodies = new LinkedHashMap<>(16, 0.75f, true); // in access order, guarded by this.
+    private long size;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public SerializedResponseCache(MeterRegistry meterRegistry) {
+        hits = Counter.builder("lbms.response.cache.requests").tag("result", "hit").register(meterRegistry);
+        misses = Counter.builder("lbms.response.cache.requests").tag("result", "miss").register(meterRegistry);
+        evictions = Counter.builder("lbms.response.cache.evictions").register(meterRegistry);
+        Gauge.builder("lbms.response.cache.size", this, SerializedResponseCache::size).baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("lbms.response.cache.entries", this, SerializedResponseCache::entries).register(meterRegistry);
+    }
+
+    /**
+     * @param key the endpoint and its parameters, compared with {@code equals}.
+     * @param version the version of the listing read before the request was checked for a matching ETag.
+     * @return the body stored for the key at this version, or null.
+     */
+    public synchronized Body get(Object key, String version) {
+        Entry entry = bodies.get(key);
+        if (entry != null && !version.equals(entry.version())) {
+            if (CatalogueVersion.newer(version, entry.version())) {
+                remove(key, entry);
+            }
+            entry = null;
+        }
+        (entry == null ? misses : hits).increment();
+        return entry == null ? null : entry.body();
+    }
+
+    /**
+     * Gzips a body and keeps it if it fits the budget.
+     * @param key the endpoint and its parameters, compared with {@code equals}.
+     * @param version the version of the listing read before the body was queried.
+     * @param json the body as JSON.
+     * @param results the number of books in the body.
+     * @return the body to serve, whether it was kept or not.
+     */
+    public Body put(Object key, String version, byte[] json, long results) {
+        Body body = new Body(json, gzip(json), results);
+        synchronized (this) {
+            Entry previous = bodies.get(key);
+            if (previous != null && CatalogueVersion.newer(previous.version(), version)) {
+                return body; // read before a write that the kept body was read after.
+            }
+            if (body.size() > maxSize.toBytes() / 4) {
+                return body;
+            }
+            bodies.put(key, new Entry(version, body));
+            size += body.size() - (previous == null ? 0 : previous.body().size());
+            for (Iterator<Entry> eldest = bodies.values().iterator(); size > maxSize.toBytes(); ) {
+                size -= eldest.next().body().size();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+        return body;
+    }
+
+    /**
+     * @return the bytes taken by the bodies kept.
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * @return the number of bodies kept.
+     */
+    public synchronized int entries() {
+        return bodies.size();
+    }
+
+    private void remove(Object key, Entry entry) {
+        bodies.remove(key);
+        size -= entry.body().size();
+        evictions.increment();
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // not thrown by in-memory streams.
+        }
+        return out.toByteArray();
+    }
+}
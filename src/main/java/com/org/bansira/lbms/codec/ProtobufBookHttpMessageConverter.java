@@ -0,0 +1,155 @@
+/**
+ * This package contains the binary encodings of the book payloads.
+ */
+package com.org.bansira.lbms.codec;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufMapper;
+import com.fasterxml.jackson.dataformat.protobuf.schema.NativeProtobufSchema;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchemaLoader;
+import com.org.bansira.lbms.domain.Book;
+import com.org.bansira.lbms.domain.BookPage;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes books, lists of books and pages of books as protobuf messages, with the schema in
+ * {@code proto/book.proto}. A list is sent as a {@code BookList} message, so clients decode every payload
+ * with a single message type per endpoint. Other bodies are left to the other converters.
+ */
+public class ProtobufBookHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public static final MediaType APPLICATION_PROTOBUF = new MediaType("application", "x-protobuf");
+    static final String SCHEMA = "proto/book.proto";
+
+    private final ObjectWriter bookWriter;
+    private final ObjectWriter bookListWriter;
+    private final ObjectWriter bookPageWriter;
+    private final ObjectReader bookReader;
+    private final ObjectReader bookListReader;
+    private final ObjectReader bookPageReader;
+
+    public ProtobufBookHttpMessageConverter() {
+        super(APPLICATION_PROTOBUF, new MediaType("application", "protobuf"));
+        NativeProtobufSchema schema = schema();
+        ProtobufMapper mapper = new ProtobufMapper();
+        bookWriter = mapper.writer(schema.forType("Book"));
+        bookListWriter = mapper.writer(schema.forType("BookList"));
+        bookPageWriter = mapper.writer(schema.forType("BookPage"));
+        bookReader = mapper.readerFor(Book.class).with(schema.forType("Book"));
+        bookListReader = mapper.readerFor(BookPage.class).with(schema.forType("BookList"));
+        bookPageReader = mapper.readerFor(BookPage.class).with(schema.forType("BookPage"));
+    }
+
+    /**
+     * @return the messages of {@code proto/book.proto}.
+     */
+    static NativeProtobufSchema schema() {
+        try (InputStream in = new ClassPathResource(SCHEMA).getInputStream()) {
+            return ProtobufSchemaLoader.std.loadNative(in, false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load " + SCHEMA, e);
+        }
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Book.class.isAssignableFrom(clazz) || BookPage.class.isAssignableFrom(clazz)
+                || Collection.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        Class<?> clazz = ResolvableType.forType(type).resolve(Object.class);
+        return (clazz == Book.class || clazz == BookPage.class || isBookList(type)) && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        // a raw collection, e.g. a list returned as ResponseEntity<Object>, is checked when it is written.
+        boolean raw = type == null || type instanceof Class;
+        return (Book.class.isAssignableFrom(clazz) || BookPage.class.isAssignableFrom(clazz)
+                || Collection.class.isAssignableFrom(clazz) && (raw || isBookList(type))) && canWrite(mediaType);
+    }
+
+    @Override
+    protected void writeInternal(Object value, Type type, HttpOutputMessage outputMessage) throws IOException {
+        write(value, outputMessage.getBody());
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        return decode(clazz, inputMessage);
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+        return decode(type, inputMessage);
+    }
+
+    private Object decode(Type type, HttpInputMessage inputMessage) throws IOException {
+        try {
+            return read(type, inputMessage.getBody());
+        } catch (IOException e) {
+            throw new HttpMessageNotReadableException("Malformed protobuf payload: " + e.getMessage(), e, inputMessage);
+        }
+    }
+
+    /**
+     * @param value a book, a page of books or a collection of books.
+     * @param out receives the encoded message, it is not closed.
+     * @throws HttpMessageNotWritableException if the value is none of the above.
+     */
+    void write(Object value, OutputStream out) throws IOException {
+        out = StreamUtils.nonClosing(out);
+        if (value instanceof Book) {
+            bookWriter.writeValue(out, value);
+        } else if (value instanceof BookPage) {
+            bookPageWriter.writeValue(out, value);
+        } else if (value instanceof Collection<?> books && books.stream().allMatch(Book.class::isInstance)) {
+            bookListWriter.writeValue(out, Map.of("books", books));
+        } else {
+            throw new HttpMessageNotWritableException("Only books, lists and pages of books are encoded as protobuf");
+        }
+    }
+
+    /**
+     * @param type {@link Book}, {@link BookPage} or a list of books.
+     * @param in the encoded message, it is not closed.
+     * @return the decoded message, pages and lists without books hold an empty list.
+     */
+    Object read(Type type, InputStream in) throws IOException {
+        in = StreamUtils.nonClosing(in);
+        if (type == Book.class) {
+            return bookReader.readValue(in);
+        }
+        BookPage page = (type == BookPage.class ? bookPageReader : bookListReader).readValue(in);
+        if (page.getBooks() == null) {
+            page.setBooks(List.of()); // an empty repeated field is not encoded at all.
+        }
+        return type == BookPage.class ? page : page.getBooks();
+    }
+
+    private static boolean isBookList(Type type) {
+        ResolvableType resolved = ResolvableType.forType(type);
+        return resolved.asCollection() != ResolvableType.NONE
+                && resolved.asCollection().getGeneric(0).resolve() == Book.class;
+    }
+}
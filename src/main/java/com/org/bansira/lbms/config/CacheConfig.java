@@ -0,0 +1,19 @@
+/**
+ * This package contains application wide configuration of the library.
+ */
+package com.org.bansira.lbms.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Enables the in-process book caches. Set {@code lbms.cache.enabled=false} to run without them.
+ * Cache size, expiry and statistics are configured through {@code spring.cache.caffeine.spec}.
+ */
+@Configuration
+@EnableCaching
+@ConditionalOnProperty(name = "lbms.cache.enabled", havingValue = "true", matchIfMissing = true)
+public class CacheConfig {
+    public static final String BOOKS_BY_ISBN = "booksByIsbn";
+}
@@ -0,0 +1,28 @@
+/**
+ * This package contains application wide configuration of the library.
+ */
+package com.org.bansira.lbms.config;
+
+import com.org.bansira.lbms.codec.ProtobufBookHttpMessageConverter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Adds the binary encodings of the book payloads, chosen by the {@code Accept} and {@code Content-Type} headers.
+ * CBOR ({@code application/cbor}) and Smile ({@code application/x-jackson-smile}) are registered by Spring MVC
+ * since their Jackson modules are on the classpath, protobuf ({@code application/x-protobuf}) is added here.
+ * The binary converters come after the JSON one, so clients accepting anything keep getting JSON.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class CodecConfig implements WebMvcConfigurer {
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new ProtobufBookHttpMessageConverter());
+    }
+}
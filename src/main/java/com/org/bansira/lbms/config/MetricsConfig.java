@@ -0,0 +1,34 @@
+/**
+ * This package contains application wide configuration of the library.
+ */
+package com.org.bansira.lbms.config;
+
+import com.org.bansira.lbms.metrics.SlowCommandLogger;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Enables {@code @Timed} on the service layer and the slow Mongo command log.
+ * Repository and Mongo driver timers are published by Spring Boot as
+ * {@code spring.data.repository.invocations} and {@code mongodb.driver.commands}.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer slowCommandLoggerCustomizer(
+            @Value("${lbms.mongodb.slow-command-threshold:100ms}") Duration threshold, MeterRegistry meterRegistry) {
+        return settings -> settings.addCommandListener(new SlowCommandLogger(threshold, meterRegistry));
+    }
+}
@@ -0,0 +1,32 @@
+/**
+ * This package contains application wide configuration of the library.
+ */
+package com.org.bansira.lbms.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connection pool settings shared by the blocking and the reactive Mongo clients.
+ * The defaults match the driver defaults; the virtual profile raises them since
+ * blocked virtual threads are cheap and the pool becomes the concurrency limit.
+ */
+@Configuration
+public class MongoConfig {
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer connectionPoolCustomizer(
+            @Value("${lbms.mongodb.max-pool-size:100}") int maxPoolSize,
+            @Value("${lbms.mongodb.max-connecting:2}") int maxConnecting,
+            @Value("${lbms.mongodb.max-wait-time:2m}") Duration maxWaitTime) {
+        return settings -> settings.applyToConnectionPoolSettings(pool -> pool
+                .maxSize(maxPoolSize)
+                .maxConnecting(maxConnecting)
+                .maxWaitTime(maxWaitTime.toMillis(), TimeUnit.MILLISECONDS)); // fail fast instead of queueing forever.
+    }
+}
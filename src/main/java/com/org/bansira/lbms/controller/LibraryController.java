@@ -3,100 +3,384 @@
  */
 package com.org.bansira.lbms.controller;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.org.bansira.lbms.cache.SerializedResponseCache;
+import com.org.bansira.lbms.codec.ProtobufBookHttpMessageConverter;
+import com.org.bansira.lbms.domain.AvailabilityChange;
 import com.org.bansira.lbms.domain.Book;
+import com.org.bansira.lbms.domain.BookFilter;
+import com.org.bansira.lbms.domain.BookFields;
+import com.org.bansira.lbms.domain.BookPage;
+import com.org.bansira.lbms.domain.BulkJob;
+import com.org.bansira.lbms.domain.QueuedWrite;
+import com.org.bansira.lbms.export.BookExportWriter;
+import com.org.bansira.lbms.export.ExportFormat;
+import com.org.bansira.lbms.metrics.LibraryMetrics;
 import com.org.bansira.lbms.service.LibraryService;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotWritableException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * APIs to Manage a Library with multiple departments
  */
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/books")
 public class LibraryController {
 
+    private static final int EXPORT_BUFFER = 1 << 16;
+    private static final List<MediaType> BINARY_MEDIA_TYPES = List.of(MediaType.APPLICATION_CBOR,
+            new MediaType("application", "x-jackson-smile"), ProtobufBookHttpMessageConverter.APPLICATION_PROTOBUF,
+            new MediaType("application", "protobuf"));
+
     @Autowired
     private LibraryService libraryService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private LibraryMetrics libraryMetrics;
+
+    @Autowired(required = false)
+    private SerializedResponseCache responseCache; // absent when the response cache is disabled.
+
+    private ObjectWriter projectedWriter;
+
+    // projected listings leave the fields that were not requested null, they are omitted rather than sent as null.
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private abstract static class ProjectedFields {
+    }
+
+    @PostConstruct
+    void init() {
+        projectedWriter = objectMapper.copy().addMixIn(Book.class, ProjectedFields.class).writer();
+    }
+
     /**
      * API endpoint to add a book to library
+     * With write-behind enabled the book is queued and 202 is returned with the id to follow the write.
      * @param book the book to be added.
-     * @return a saved book if saved successfully or returns an error message if not saved.
+     * @return a saved book if saved successfully or returns an error message if not saved, 400 if it has no ISBN.
      */
     @PostMapping("/add")
     ResponseEntity<Object> addBook(@RequestBody Book book) {
+        if (libraryService.isWriteBehind()) {
+            return queueBook(book);
+        }
         Optional<Book> response = libraryService.addBook(book);
         return response
                 .<ResponseEntity<Object>>map(value -> new ResponseEntity<>(value, HttpStatus.OK))
-                .orElseGet(() -> new ResponseEntity<>("Book with ISBN " + book.getIsbn() + " already exists", HttpStatus.CONFLICT));
+                .orElseGet(() -> {
+                    libraryMetrics.recordOutcome("add", LibraryMetrics.CONFLICT);
+                    return new ResponseEntity<>("Book with ISBN " + book.getIsbn() + " already exists", HttpStatus.CONFLICT);
+                });
+    }
+
+    /**
+     * API endpoint to follow a book queued by the add endpoint with write-behind enabled.
+     * @param id returned when the book was queued.
+     * @return the status of the write, or 404 if the id is unknown or expired.
+     */
+    @GetMapping("/writes/{id}")
+    ResponseEntity<Object> getQueuedWrite(@PathVariable String id) {
+        return libraryService.findQueuedWrite(id)
+                .<ResponseEntity<Object>>map(ResponseEntity::ok)
+                .orElseGet(() -> new ResponseEntity<>("Write " + id + " not found", HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * API endpoint to add many books to the library in one request.
+     * The body is either a JSON array of books or newline delimited JSON, and is read incrementally.
+     * @param body the raw request body.
+     * @return the outcome for every book, or an error message if the body could not be parsed.
+     */
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    ResponseEntity<Object> addBooks(InputStream body) throws IOException {
+        try (MappingIterator<Book> books = objectMapper.readerFor(Book.class).readValues(body)) {
+            return new ResponseEntity<>(libraryService.addBooks(books), HttpStatus.OK);
+        } catch (RuntimeJsonMappingException | JsonProcessingException e) {
+            return new ResponseEntity<>("Malformed book payload: " + e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * API endpoint to search titles and authors, tolerating partial words and small typos.
+     * @param q free text typed by the patron, e.g. "harry pot".
+     * @param after cursor returned with the previous page.
+     * @param size number of books per page, capped by the service.
+     * @return a page of matching books, best matches first.
+     */
+    @GetMapping("/search")
+    ResponseEntity<BookPage> searchBooks(@RequestParam String q, @RequestParam(required = false) String after,
+                                         @RequestParam(required = false) Integer size) {
+        return new ResponseEntity<>(page("search", libraryService.searchBooks(q, after, size)), HttpStatus.OK);
     }
 
     /**
      * API endpoint to fetch a book by its ISBN
+     * Answers 304 when the {@code If-None-Match} ETag still matches the catalogue version.
      * @param isbn is the unique id of the book to be fetched.
+     * @param request the request, checked for a matching ETag.
      * @return the book with given ISBN or returns a book not found message.
      */
     @GetMapping("/{isbn}")
-    ResponseEntity<Object> getBookByIsbn(@PathVariable String isbn) {
+    ResponseEntity<Object> getBookByIsbn(@PathVariable String isbn, WebRequest request) {
+        if (request.checkNotModified(libraryService.catalogueVersion())) {
+            return null;
+        }
         Optional<Book> response = libraryService.findBookByIsbn(isbn);
         return response
-                .<ResponseEntity<Object>>map(value -> new ResponseEntity<>(libraryService.findBookByIsbn(isbn), HttpStatus.OK))
-                .orElseGet(() -> new ResponseEntity<>("Book with ISBN " + isbn + " not found", HttpStatus.OK));
+                .map(this::revalidated)
+                .orElseGet(() -> {
+                    libraryMetrics.recordOutcome("isbn", LibraryMetrics.NOT_FOUND);
+                    return new ResponseEntity<>("Book with ISBN " + isbn + " not found", HttpStatus.OK);
+                });
     }
 
     /**
-     * API endpoint to fetch all books registered in the library.
-     * @return a list of books registered in the library.
+     * API endpoint to fetch the books registered in the library, in pages ordered by ISBN.
+     * Pages hold {@link BookPage#DEFAULT_SIZE} books unless {@code size} is given; the whole list is streamed as NDJSON.
+     * Answers 304 when the {@code If-None-Match} ETag still matches the catalogue version.
+     * @param after ISBN of the last book of the previous page.
+     * @param size number of books per page, capped by the service.
+     * @param fields "summary" or a comma separated list of fields to return, e.g. "title,author".
+     * @param request the request, checked for a matching ETag.
+     * @return a page of books registered in the library.
      */
     @GetMapping
-    ResponseEntity<Object> getAllBooks() {
-        Optional<List<Book>> response = libraryService.listAllBooks();
-        return response
-                .<ResponseEntity<Object>>map(books -> new ResponseEntity<>(books, HttpStatus.OK))
-                .orElseGet(() -> new ResponseEntity<>("No Books Found", HttpStatus.OK));
+    ResponseEntity<Object> getAllBooks(@RequestParam(required = false) String after, @RequestParam(required = false) Integer size,
+                                       @RequestParam(required = false) String fields, WebRequest request) {
+        if (request.checkNotModified(libraryService.catalogueVersion())) {
+            return null;
+        }
+        if (fields != null) {
+            return projected(page("all", libraryService.listAllBooks(after, size, BookFields.parse(fields))), request);
+        }
+        return revalidated(page("all", libraryService.listAllBooks(after, size)));
+    }
+
+    /**
+     * API endpoint to stream all books registered in the library as newline delimited JSON.
+     * @return a response streaming one book per line straight from the DB cursor.
+     */
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    ResponseEntity<StreamingResponseBody> streamAllBooks() {
+        return ndjson("all", libraryService::streamAllBooks);
     }
 
     /**
-     * API endpoint to fetch all available books in the library.
-     * @return a list of books currently available in the library.
+     * API endpoint to export the whole catalogue, streamed from the DB cursor so memory use does not grow with it.
+     * The export is gzipped when the client accepts it.
+     * @param format "csv", readable by the CLI batch loader, or "columnar", see {@link com.org.bansira.lbms.export.ColumnarBookWriter}.
+     * @param acceptEncoding the encodings the client accepts.
+     * @return a response streaming every book, or 400 if the format is unknown.
+     */
+    @GetMapping("/export")
+    ResponseEntity<StreamingResponseBody> exportBooks(@RequestParam(defaultValue = "csv") String format,
+                                                      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        ExportFormat exportFormat = ExportFormat.parse(format);
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        StreamingResponseBody body = out -> {
+            try (Stream<Book> books = libraryService.streamAllBooks();
+                 BookExportWriter writer = exportFormat.open(gzip ? new GZIPOutputStream(out, EXPORT_BUFFER) : out)) {
+                Iterator<Book> iterator = books.iterator();
+                long count = 0;
+                while (iterator.hasNext()) {
+                    writer.write(iterator.next());
+                    count++;
+                }
+                libraryMetrics.recordResults("export", count);
+            }
+        };
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"books." + exportFormat.getExtension() + "\"")
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    /**
+     * API endpoint to fetch the available books in the library, in pages ordered by ISBN.
+     * Pages hold {@link BookPage#DEFAULT_SIZE} books unless {@code size} is given; the whole list is streamed as NDJSON.
+     * Answers 304 when the {@code If-None-Match} ETag still matches the catalogue version.
+     * JSON responses are served from the serialized response cache when they are in it.
+     * @param after ISBN of the last book of the previous page.
+     * @param size number of books per page, capped by the service.
+     * @param fields "summary" or a comma separated list of fields to return, e.g. "title,author".
+     * @param request the request, checked for a matching ETag.
+     * @return a page of books currently available in the library.
      */
     @GetMapping("/available")
-    ResponseEntity<Object> getAllAvailableBooks() {
-        Optional<List<Book>> response = libraryService.listAvailableBooks();
-        return response
-                .<ResponseEntity<Object>>map(value -> new ResponseEntity<>(libraryService.listAvailableBooks(), HttpStatus.OK))
-                .orElseGet(() -> new ResponseEntity<>("No Books Available", HttpStatus.OK));
+    ResponseEntity<Object> getAllAvailableBooks(@RequestParam(required = false) String after, @RequestParam(required = false) Integer size,
+                                                @RequestParam(required = false) String fields, WebRequest request) {
+        String version = libraryService.catalogueVersion();
+        if (request.checkNotModified(version)) {
+            return null;
+        }
+        return cached(Arrays.asList("available", after, BookPage.clampSize(size), fields), version, request, fields != null, () -> {
+            if (fields != null) {
+                return page("available", libraryService.listAvailableBooks(after, size, BookFields.parse(fields)));
+            }
+            return page("available", libraryService.listAvailableBooks(after, size));
+        });
+    }
+
+    /**
+     * API endpoint to stream all available books in the library as newline delimited JSON.
+     * @return a response streaming one book per line straight from the DB cursor.
+     */
+    @GetMapping(value = "/available", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    ResponseEntity<StreamingResponseBody> streamAvailableBooks() {
+        return ndjson("available", libraryService::streamAvailableBooks);
     }
 
     /**
-     * API endpoint to fetch all books matching a title provided.
+     * API endpoint to fetch the books matching a title provided, in pages ordered by ISBN.
+     * Pages hold {@link BookPage#DEFAULT_SIZE} books unless {@code size} is given; the whole list is streamed as NDJSON.
+     * Answers 304 when the {@code If-None-Match} ETag still matches the catalogue version.
      * @param title to match the books in the library.
-     * @return a list of books matching the given title.
+     * @param after ISBN of the last book of the previous page.
+     * @param size number of books per page, capped by the service.
+     * @param fields "summary" or a comma separated list of fields to return, e.g. "title,author".
+     * @param request the request, checked for a matching ETag.
+     * @return a page of books matching the given title.
      */
     @GetMapping("/title/{title}")
-    ResponseEntity<Object> getBookByTitle(@PathVariable String title) {
-        Optional<List<Book>> response = libraryService.findBookByTitle(title);
-        return response
-                .<ResponseEntity<Object>>map(value -> new ResponseEntity<>(libraryService.findBookByTitle(title), HttpStatus.OK))
-                .orElseGet(() -> new ResponseEntity<>("Book with Title " + title + "not found", HttpStatus.OK));
+    ResponseEntity<Object> getBookByTitle(@PathVariable String title, @RequestParam(required = false) String after,
+                                          @RequestParam(required = false) Integer size, @RequestParam(required = false) String fields,
+                                          WebRequest request) {
+        if (request.checkNotModified(libraryService.catalogueVersion())) {
+            return null;
+        }
+        if (fields != null) {
+            return projected(page("title", libraryService.findBookByTitle(title, after, size, BookFields.parse(fields))), request);
+        }
+        return revalidated(page("title", libraryService.findBookByTitle(title, after, size)));
+    }
+
+    /**
+     * API endpoint to stream all books matching a title as newline delimited JSON.
+     * @param title to match the books in the library.
+     * @return a response streaming one book per line straight from the DB cursor.
+     */
+    @GetMapping(value = "/title/{title}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    ResponseEntity<StreamingResponseBody> streamBooksByTitle(@PathVariable String title) {
+        return ndjson("title", () -> libraryService.streamBooksByTitle(title));
     }
 
     /**
-     * API endpoint to fetch books by an author.
+     * API endpoint to fetch the books by an author, in pages ordered by ISBN.
+     * Pages hold {@link BookPage#DEFAULT_SIZE} books unless {@code size} is given; the whole list is streamed as NDJSON.
+     * Answers 304 when the {@code If-None-Match} ETag still matches the version of the author,
+     * which changes only with the books by this author.
+     * JSON responses are served from the serialized response cache when they are in it.
      * @param author of the books to be fetched from the library.
-     * @return a list of books by the author provided.
+     * @param after ISBN of the last book of the previous page.
+     * @param size number of books per page, capped by the service.
+     * @param fields "summary" or a comma separated list of fields to return, e.g. "title,author".
+     * @param request the request, checked for a matching ETag.
+     * @return a page of books by the author provided.
      */
     @GetMapping("/author/{author}")
-    ResponseEntity<Object> getBookByAuthor(@PathVariable String author) {
-        Optional<List<Book>> response = libraryService.findBookByAuthor(author);
-        return response
-                .<ResponseEntity<Object>>map(value -> new ResponseEntity<>(libraryService.findBookByAuthor(author), HttpStatus.OK))
-                .orElseGet(() -> new ResponseEntity<>("No Books by Author " + author + "Found", HttpStatus.OK));
+    ResponseEntity<Object> getBookByAuthor(@PathVariable String author, @RequestParam(required = false) String after,
+                                           @RequestParam(required = false) Integer size, @RequestParam(required = false) String fields,
+                                           WebRequest request) {
+        String version = libraryService.authorVersion(author);
+        if (request.checkNotModified(version)) {
+            return null;
+        }
+        return cached(Arrays.asList("author", author, after, BookPage.clampSize(size), fields), version, request, fields != null, () -> {
+            if (fields != null) {
+                return page("author", libraryService.findBookByAuthor(author, after, size, BookFields.parse(fields)));
+            }
+            return page("author", libraryService.findBookByAuthor(author, after, size));
+        });
+    }
+
+    /**
+     * API endpoint to stream books by an author as newline delimited JSON.
+     * @param author of the books to be fetched from the library.
+     * @return a response streaming one book per line straight from the DB cursor.
+     */
+    @GetMapping(value = "/author/{author}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    ResponseEntity<StreamingResponseBody> streamBooksByAuthor(@PathVariable String author) {
+        return ndjson("author", () -> libraryService.streamBooksByAuthor(author));
+    }
+
+    /**
+     * API endpoint to fetch the books of a department, in pages ordered by ISBN.
+     * Answers 304 when the {@code If-None-Match} ETag still matches the department version,
+     * which changes only with the books of this department.
+     * @param department name of the department.
+     * @param after ISBN of the last book of the previous page.
+     * @param size number of books per page, capped by the service.
+     * @param fields "summary" or a comma separated list of fields to return, e.g. "title,author".
+     * @param request the request, checked for a matching ETag.
+     * @return a page of books of the department.
+     */
+    @GetMapping("/department/{department}")
+    ResponseEntity<Object> getBooksByDepartment(@PathVariable String department, @RequestParam(required = false) String after,
+                                                @RequestParam(required = false) Integer size, @RequestParam(required = false) String fields,
+                                                WebRequest request) {
+        if (request.checkNotModified(libraryService.departmentVersion(department))) {
+            return null;
+        }
+        if (fields != null) {
+            return projected(page("department", libraryService.findBooksByDepartment(department, after, size, BookFields.parse(fields))), request);
+        }
+        return revalidated(page("department", libraryService.findBooksByDepartment(department, after, size)));
+    }
+
+    /**
+     * API endpoint to check out a book.
+     * @param isbn is the unique id of the book to be checked out.
+     * @return the updated book, 409 if it is already checked out or 404 if it does not exist.
+     */
+    @PostMapping("/{isbn}/checkout")
+    ResponseEntity<Object> checkoutBook(@PathVariable String isbn) {
+        return availabilityResponse("checkout", isbn, libraryService.checkoutBook(isbn), "is already checked out");
+    }
+
+    /**
+     * API endpoint to return a checked out book.
+     * @param isbn is the unique id of the book to be returned.
+     * @return the updated book, 409 if it is not checked out or 404 if it does not exist.
+     */
+    @PostMapping("/{isbn}/return")
+    ResponseEntity<Object> returnBook(@PathVariable String isbn) {
+        return availabilityResponse("return", isbn, libraryService.returnBook(isbn), "is not checked out");
     }
 
     /**
@@ -108,4 +392,201 @@ public class LibraryController {
     ResponseEntity<Long> removeBook(@PathVariable String isbn) {
         return new ResponseEntity<>(libraryService.removeBook(isbn), HttpStatus.OK);
     }
+
+    /**
+     * API endpoint to remove every book matching a filter, e.g. a whole department, in a background job.
+     * @param filter the department, genre, author or availability of the books to be removed.
+     * @return 202 with the job to follow, or 400 if the filter is empty.
+     */
+    @PostMapping("/jobs/remove")
+    ResponseEntity<BulkJob> removeBooks(@RequestBody BookFilter filter) {
+        return accepted(libraryService.removeBooks(filter));
+    }
+
+    /**
+     * API endpoint to move every book matching a filter to another department in a background job.
+     * @param filter the department, genre, author or availability of the books to be moved.
+     * @param to the department to move the books to.
+     * @return 202 with the job to follow, or 400 if the filter is empty or the books are already in the department.
+     */
+    @PostMapping("/jobs/move")
+    ResponseEntity<BulkJob> moveBooks(@RequestBody BookFilter filter, @RequestParam String to) {
+        return accepted(libraryService.moveBooks(filter, to));
+    }
+
+    /**
+     * API endpoint to follow a bulk remove or move.
+     * @param id returned when the job was queued.
+     * @return the progress of the job, or 404 if the id is unknown or expired.
+     */
+    @GetMapping("/jobs/{id}")
+    ResponseEntity<Object> getBulkJob(@PathVariable String id) {
+        return libraryService.findBulkJob(id)
+                .<ResponseEntity<Object>>map(ResponseEntity::ok)
+                .orElseGet(() -> new ResponseEntity<>("Job " + id + " not found", HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * API endpoint to stop a bulk remove or move before its next batch.
+     * @param id returned when the job was queued.
+     * @return the progress of the job, or 404 if the id is unknown or expired.
+     */
+    @DeleteMapping("/jobs/{id}")
+    ResponseEntity<Object> cancelBulkJob(@PathVariable String id) {
+        return libraryService.cancelBulkJob(id)
+                .<ResponseEntity<Object>>map(ResponseEntity::ok)
+                .orElseGet(() -> new ResponseEntity<>("Job " + id + " not found", HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * Rejects requests with unknown {@code fields}, books without an ISBN and other invalid input.
+     * @param e the validation error.
+     * @return an error message, e.g. naming the accepted fields.
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    ResponseEntity<String> badRequest(IllegalArgumentException e) {
+        return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
+    private ResponseEntity<BulkJob> accepted(BulkJob job) {
+        return ResponseEntity.accepted().location(URI.create("/api/books/jobs/" + job.getId())).body(job);
+    }
+
+    private ResponseEntity<Object> queueBook(Book book) {
+        QueuedWrite write = libraryService.queueBook(book);
+        return switch (write.getStatus()) {
+            case QUEUED -> ResponseEntity.accepted().location(URI.create("/api/books/writes/" + write.getId())).body(write);
+            case INSERTED -> new ResponseEntity<>(write, HttpStatus.OK);
+            case DUPLICATE -> {
+                libraryMetrics.recordOutcome("add", LibraryMetrics.CONFLICT);
+                yield new ResponseEntity<>("Book with ISBN " + book.getIsbn() + " already exists", HttpStatus.CONFLICT);
+            }
+            case INVALID -> new ResponseEntity<>("Book is missing its ISBN", HttpStatus.BAD_REQUEST);
+            default -> ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "1")
+                    .body("Write queue is full, retry later");
+        };
+    }
+
+    private ResponseEntity<Object> availabilityResponse(String endpoint, String isbn, AvailabilityChange change, String conflict) {
+        return switch (change.getStatus()) {
+            case CHANGED -> new ResponseEntity<>(change.getBook(), HttpStatus.OK);
+            case CONFLICT -> {
+                libraryMetrics.recordOutcome(endpoint, LibraryMetrics.CONFLICT);
+                yield new ResponseEntity<>("Book with ISBN " + isbn + " " + conflict, HttpStatus.CONFLICT);
+            }
+            case NOT_FOUND -> {
+                libraryMetrics.recordOutcome(endpoint, LibraryMetrics.NOT_FOUND);
+                yield new ResponseEntity<>("Book with ISBN " + isbn + " not found", HttpStatus.NOT_FOUND);
+            }
+        };
+    }
+
+    /**
+     * Lets clients store the response but makes them revalidate it with its ETag before every use.
+     * The body is encoded as JSON, CBOR, Smile or protobuf depending on {@code Accept}, so caches must key on it.
+     * @param body the response body.
+     * @return a 200 response.
+     */
+    private ResponseEntity<Object> revalidated(Object body) {
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).varyBy(HttpHeaders.ACCEPT).body(body);
+    }
+
+    /**
+     * Sends a page of projected books. As JSON the properties that were not requested are omitted, the other
+     * encodings go through the message converters.
+     * @param page books holding only the requested properties.
+     * @param request the request, checked for the accepted media types.
+     * @return a 200 response.
+     */
+    private ResponseEntity<Object> projected(BookPage page, WebRequest request) {
+        if (!acceptsJson(request.getHeader(HttpHeaders.ACCEPT))) {
+            return revalidated(page);
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).varyBy(HttpHeaders.ACCEPT)
+                .contentType(MediaType.APPLICATION_JSON).body(json(projectedWriter, page));
+    }
+
+    /**
+     * Serves a JSON listing from the serialized response cache, or builds it and stores it there.
+     * Clients asking for a binary encoding bypass the cache.
+     * @param key the endpoint, named first for the result size metrics, and its parameters.
+     * @param version the version of the listing, read before the request was checked for a matching ETag.
+     * @param request the request, checked for the accepted media types and encodings.
+     * @param projected whether the page holds projected books.
+     * @param page reads the page when it is not cached.
+     * @return the response, with the body as bytes when it went through the cache.
+     */
+    private ResponseEntity<Object> cached(List<Object> key, String version, WebRequest request, boolean projected,
+                                          Supplier<BookPage> page) {
+        if (responseCache == null || version == null || !acceptsJson(request.getHeader(HttpHeaders.ACCEPT))) {
+            return projected ? projected(page.get(), request) : revalidated(page.get());
+        }
+        SerializedResponseCache.Body body = responseCache.get(key, version);
+        if (body != null) {
+            libraryMetrics.recordResults((String) key.get(0), body.results());
+        } else {
+            BookPage fresh = page.get();
+            byte[] json = json(projected ? projectedWriter : objectMapper.writer(), fresh);
+            body = responseCache.put(key, version, json, fresh.getBooks().size());
+        }
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        ResponseEntity.BodyBuilder cached = ResponseEntity.ok().cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING).contentType(MediaType.APPLICATION_JSON);
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            return cached.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(body.gzip());
+        }
+        return cached.body(body.json());
+    }
+
+    /**
+     * @param accept the {@code Accept} header.
+     * @return true if the response would be JSON: JSON is accepted and no binary encoding is asked for.
+     */
+    private static boolean acceptsJson(String accept) {
+        if (accept == null) {
+            return true;
+        }
+        List<MediaType> accepted = MediaType.parseMediaTypes(accept);
+        return accepted.stream().anyMatch(type -> type.includes(MediaType.APPLICATION_JSON))
+                && accepted.stream().noneMatch(type -> BINARY_MEDIA_TYPES.stream().anyMatch(binary -> binary.includes(type)));
+    }
+
+    private static byte[] json(ObjectWriter writer, BookPage page) {
+        try {
+            return writer.writeValueAsBytes(page);
+        } catch (JsonProcessingException e) {
+            throw new HttpMessageNotWritableException("Could not write JSON: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    private BookPage page(String endpoint, BookPage page) {
+        libraryMetrics.recordResults(endpoint, page.getBooks().size());
+        return page;
+    }
+
+    /**
+     * Writes books to the response one JSON document per line as they are read from the cursor,
+     * so memory use does not grow with the size of the result.
+     * @param endpoint name the result size is recorded under once the stream is drained.
+     * @param source opens the stream of books, it is closed once the response is written.
+     * @return a streaming NDJSON response.
+     */
+    private ResponseEntity<StreamingResponseBody> ndjson(String endpoint, Supplier<Stream<Book>> source) {
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = out -> {
+            try (Stream<Book> books = source.get();
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.setRootValueSeparator(null);
+                Iterator<Book> iterator = books.iterator();
+                long count = 0;
+                while (iterator.hasNext()) {
+                    writer.writeValue(generator, iterator.next());
+                    generator.writeRaw('\n');
+                    count++;
+                }
+                libraryMetrics.recordResults(endpoint, count);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
 }
@@ -0,0 +1,189 @@
+/**
+ * This package has all the REST API endpoints for managing a library.
+ */
+package com.org.bansira.lbms.controller;
+
+import com.org.bansira.lbms.domain.Book;
+import com.org.bansira.lbms.domain.BookPage;
+import com.org.bansira.lbms.domain.BulkResult;
+import com.org.bansira.lbms.service.ReactiveLibraryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking APIs to Manage a Library, with the same paths and responses as {@link LibraryController} for the
+ * endpoints it has: adding, bulk adding, searching, listing and removing books. Checkout and return, departments,
+ * {@code fields}, ETags, export, background jobs and statistics are only served by {@link LibraryController}.
+ * Active with the {@code reactive} profile.
+ */
+@RestController
+@Profile("reactive")
+@RequestMapping("/api/books")
+public class ReactiveLibraryController {
+
+    @Autowired
+    private ReactiveLibraryService libraryService;
+
+    /**
+     * API endpoint to add a book to library
+     * @param book the book to be added.
+     * @return a saved book if saved successfully or returns an error message if not saved.
+     */
+    @PostMapping("/add")
+    Mono<ResponseEntity<Object>> addBook(@RequestBody Book book) {
+        return libraryService.addBook(book)
+                .<ResponseEntity<Object>>map(value -> new ResponseEntity<>(value, HttpStatus.OK))
+                .defaultIfEmpty(new ResponseEntity<>("Book with ISBN " + book.getIsbn() + " already exists", HttpStatus.CONFLICT));
+    }
+
+    /**
+     * API endpoint to add many books to the library in one request.
+     * @param books a JSON array of books or newline delimited JSON, decoded as it arrives.
+     * @return the outcome for every book.
+     */
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    Mono<BulkResult> addBooks(@RequestBody Flux<Book> books) {
+        return libraryService.addBooks(books);
+    }
+
+    /**
+     * API endpoint to search titles and authors, tolerating partial words and small typos.
+     * @param q free text typed by the patron.
+     * @param after cursor returned with the previous page.
+     * @param size number of books per page, capped by the service.
+     * @return a page of matching books, best matches first.
+     */
+    @GetMapping("/search")
+    Mono<BookPage> searchBooks(@RequestParam String q, @RequestParam(required = false) String after,
+                               @RequestParam(required = false) Integer size) {
+        return libraryService.searchBooks(q, after, size);
+    }
+
+    /**
+     * API endpoint to fetch a book by its ISBN
+     * @param isbn is the unique id of the book to be fetched.
+     * @return the book with given ISBN or returns a book not found message.
+     */
+    @GetMapping("/{isbn}")
+    Mono<ResponseEntity<Object>> getBookByIsbn(@PathVariable String isbn) {
+        return libraryService.findBookByIsbn(isbn)
+                .<ResponseEntity<Object>>map(value -> new ResponseEntity<>(value, HttpStatus.OK))
+                .defaultIfEmpty(new ResponseEntity<>("Book with ISBN " + isbn + " not found", HttpStatus.OK));
+    }
+
+    /**
+     * API endpoint to fetch all books registered in the library.
+     * Pages are in ISBN order, without {@code after} or {@code size} the first page is returned.
+     * @param after ISBN of the last book of the previous page.
+     * @param size number of books per page, capped by the service.
+     * @return a page of books registered in the library and the cursor for the next page.
+     */
+    @GetMapping
+    Mono<BookPage> getAllBooks(@RequestParam(required = false) String after, @RequestParam(required = false) Integer size) {
+        return libraryService.listAllBooks(after, size);
+    }
+
+    /**
+     * API endpoint to stream all books registered in the library as newline delimited JSON.
+     * @return the books, written as fast as the client reads them.
+     */
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    Flux<Book> streamAllBooks() {
+        return libraryService.listAllBooks();
+    }
+
+    /**
+     * API endpoint to fetch all available books in the library.
+     * Pages are in ISBN order, without {@code after} or {@code size} the first page is returned.
+     * @param after ISBN of the last book of the previous page.
+     * @param size number of books per page, capped by the service.
+     * @return a page of books currently available in the library and the cursor for the next page.
+     */
+    @GetMapping("/available")
+    Mono<BookPage> getAllAvailableBooks(@RequestParam(required = false) String after, @RequestParam(required = false) Integer size) {
+        return libraryService.listAvailableBooks(after, size);
+    }
+
+    /**
+     * API endpoint to stream all available books in the library as newline delimited JSON.
+     * @return the books, written as fast as the client reads them.
+     */
+    @GetMapping(value = "/available", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    Flux<Book> streamAvailableBooks() {
+        return libraryService.listAvailableBooks();
+    }
+
+    /**
+     * API endpoint to fetch all books matching a title provided.
+     * Pages are in ISBN order, without {@code after} or {@code size} the first page is returned.
+     * @param title to match the books in the library.
+     * @param after ISBN of the last book of the previous page.
+     * @param size number of books per page, capped by the service.
+     * @return a page of books matching the given title and the cursor for the next page.
+     */
+    @GetMapping("/title/{title}")
+    Mono<BookPage> getBookByTitle(@PathVariable String title, @RequestParam(required = false) String after,
+                                  @RequestParam(required = false) Integer size) {
+        return libraryService.findBookByTitle(title, after, size);
+    }
+
+    /**
+     * API endpoint to stream all books matching a title as newline delimited JSON.
+     * @param title to match the books in the library.
+     * @return the books, written as fast as the client reads them.
+     */
+    @GetMapping(value = "/title/{title}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    Flux<Book> streamBooksByTitle(@PathVariable String title) {
+        return libraryService.findBookByTitle(title);
+    }
+
+    /**
+     * API endpoint to fetch books by an author.
+     * Pages are in ISBN order, without {@code after} or {@code size} the first page is returned.
+     * @param author of the books to be fetched from the library.
+     * @param after ISBN of the last book of the previous page.
+     * @param size number of books per page, capped by the service.
+     * @return a page of books by the author provided and the cursor for the next page.
+     */
+    @GetMapping("/author/{author}")
+    Mono<BookPage> getBookByAuthor(@PathVariable String author, @RequestParam(required = false) String after,
+                                   @RequestParam(required = false) Integer size) {
+        return libraryService.findBookByAuthor(author, after, size);
+    }
+
+    /**
+     * API endpoint to stream books by an author as newline delimited JSON.
+     * @param author of the books to be fetched from the library.
+     * @return the books, written as fast as the client reads them.
+     */
+    @GetMapping(value = "/author/{author}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    Flux<Book> streamBooksByAuthor(@PathVariable String author) {
+        return libraryService.findBookByAuthor(author);
+    }
+
+    /**
+     * API endpoint to remove a book from the library.
+     * @param isbn is the unique id of the book to be removed from the library.
+     * @return a count of books successfully removed from the library.
+     */
+    @DeleteMapping("/{isbn}")
+    Mono<Long> removeBook(@PathVariable String isbn) {
+        return libraryService.removeBook(isbn);
+    }
+
+    /**
+     * Rejects books without an ISBN, malformed search cursors and other invalid input.
+     * @param e the validation error.
+     * @return the error message.
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    ResponseEntity<String> badRequest(IllegalArgumentException e) {
+        return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+}
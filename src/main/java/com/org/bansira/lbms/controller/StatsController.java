@@ -0,0 +1,34 @@
+/**
+ * This package has all the REST API endpoints for managing a library.
+ */
+package com.org.bansira.lbms.controller;
+
+import com.org.bansira.lbms.domain.CatalogueStats;
+import com.org.bansira.lbms.service.LibraryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * APIs to report on the contents of the library.
+ */
+@RestController
+@Profile("!reactive")
+@RequestMapping("/api/stats")
+public class StatsController {
+
+    @Autowired
+    private LibraryService libraryService;
+
+    /**
+     * API endpoint to count the books and available books of the library, per department and per genre.
+     * @return the counts, served from counters maintained on every write rather than a scan of the catalogue.
+     */
+    @GetMapping
+    ResponseEntity<CatalogueStats> catalogueStats() {
+        return ResponseEntity.ok(libraryService.catalogueStats());
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * This package contains all the DB queries for the Book collection.
+ */
+package com.org.bansira.lbms.data;
+
+import com.org.bansira.lbms.domain.Book;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Creates the unique ISBN index the library relies on to reject duplicate books. The index only covers books with a
+ * non-empty ISBN, so legacy books without one do not collide with each other. Before creating it, the collection is
+ * checked for ISBNs held by more than one book; startup fails with the first of them instead of a bare duplicate key
+ * error, and {@code scripts/dedupe-isbns.js} resolves them. Skipped along with the other indexes when
+ * {@code spring.data.mongodb.auto-index-creation} is off.
+ */
+@Component
+@Profile("!embedded")
+@ConditionalOnProperty(name = "spring.data.mongodb.auto-index-creation", havingValue = "true")
+public class BookIndexes implements InitializingBean {
+
+    static final String ISBN_INDEX = "isbn";
+    static final int REPORTED_DUPLICATES = 20;
+    private static final Logger log = LoggerFactory.getLogger(BookIndexes.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public void afterPropertiesSet() {
+        IndexOperations indexes = mongoTemplate.indexOps(Book.class);
+        Index isbnIndex = new Index().on("isbn", Sort.Direction.ASC).named(ISBN_INDEX).unique()
+                .partial(PartialIndexFilter.of(Criteria.where("isbn").gt(""))); // strings only, and not empty.
+        IndexInfo existing = indexes.getIndexInfo().stream()
+                .filter(index -> ISBN_INDEX.equals(index.getName())).findFirst().orElse(null);
+        if (existing != null && existing.isUnique() && existing.getPartialFilterExpression() != null) {
+            return;
+        }
+        List<String> duplicates = findDuplicateIsbns();
+        if (!duplicates.isEmpty()) {
+            throw new IllegalStateException("Cannot create the unique ISBN index, these ISBNs are held by more than one book: "
+                    + duplicates + ". Run scripts/dedupe-isbns.js to list and resolve them.");
+        }
+        if (existing != null) { // created by an earlier release without the partial filter.
+            log.info("Replacing ISBN index {} with a partial unique index", existing);
+            indexes.dropIndex(ISBN_INDEX);
+        }
+        indexes.ensureIndex(isbnIndex);
+    }
+
+    /**
+     * @return up to {@link #REPORTED_DUPLICATES} non-empty ISBNs held by more than one book.
+     */
+    List<String> findDuplicateIsbns() {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("isbn").gt("")),
+                Aggregation.group("isbn").count().as("books"),
+                Aggregation.match(Criteria.where("books").gt(1)),
+                Aggregation.limit(REPORTED_DUPLICATES)
+        ).withOptions(Aggregation.newAggregationOptions().allowDiskUse(true).build());
+        return mongoTemplate.aggregate(aggregation, Book.class, Document.class).getMappedResults().stream()
+                .map(group -> group.getString("_id"))
+                .toList();
+    }
+}
@@ -0,0 +1,460 @@
+/**
+ * This package contains all the DB queries for the Book collection.
+ */
+package com.org.bansira.lbms.data;
+
+import com.org.bansira.lbms.domain.Book;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append only log of the changes made to the {@link EmbeddedBookRepository} since its last snapshot.
+ * The log is a sequence of segment files named after the snapshot, {@code books.ndjson.00000001.log}, each written
+ * through memory mapped regions. A record is its length, a CRC32C checksum and a body: a type byte followed by
+ * the changed fields, strings as a varint length and UTF-8 bytes. A new segment is started at startup and by every
+ * snapshot, and the segments a snapshot covers are then deleted.
+ * Records reach the OS page cache as soon as they are appended, so they survive a crash of the process. How they
+ * are forced to disk, to survive a crash of the machine, is set by {@link Sync}.
+ */
+final class BookLog implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(BookLog.class);
+
+    private static final int REGION_SIZE = 8 << 20;
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final byte AVAILABILITY = 3;
+    private static final byte CLEAR = 4;
+
+    /**
+     * When appended records are forced to disk.
+     */
+    enum Sync {
+        /** before the write returns, concurrent writes share one force. */
+        ALWAYS,
+        /** in the background, every sync interval. */
+        INTERVAL,
+        /** only when a segment is completed, otherwise when the OS writes the pages back. */
+        NONE
+    }
+
+    /**
+     * Applies the replayed records to the store.
+     */
+    interface Replay {
+        void put(Book book);
+
+        void remove(String isbn);
+
+        void availability(String isbn, Boolean isAvailable, Long version);
+
+        void clear();
+    }
+
+    private final Path snapshotFile;
+    private final Pattern segmentName;
+    private final Sync sync;
+    private final Object syncLock = new Object();
+    private final TreeMap<Long, Long> completedSegments = new TreeMap<>(); // generation to bytes.
+
+    private ByteBuffer record = ByteBuffer.allocate(4096);
+    private long generation;
+    private FileChannel channel;
+    private MappedByteBuffer region;
+    private long regionStart;
+    private final List<MappedByteBuffer> unforced = new ArrayList<>();
+    private long appended; // bytes appended since startup, across segments.
+    private volatile long durable;
+
+    private BookLog(Path snapshotFile, Sync sync) {
+        this.snapshotFile = snapshotFile;
+        this.segmentName = Pattern.compile(Pattern.quote(snapshotFile.getFileName().toString()) + "\\.(\\d+)\\.log");
+        this.sync = sync;
+    }
+
+    /**
+     * Replays the segments left next to the snapshot, oldest first, then starts a new segment.
+     * A segment ends at its first incomplete or corrupt record, which was being written when the process stopped.
+     */
+    static BookLog open(Path snapshotFile, Sync sync, Replay replay) throws IOException {
+        BookLog bookLog = new BookLog(snapshotFile, sync);
+        TreeMap<Long, Path> segments = bookLog.segments();
+        long records = 0;
+        long start = System.nanoTime();
+        for (var segment : segments.entrySet()) {
+            long[] replayed = replay(segment.getValue(), replay);
+            records += replayed[0];
+            bookLog.completedSegments.put(segment.getKey(), replayed[1]);
+        }
+        if (!segments.isEmpty()) {
+            log.info("Replayed {} changes from {} log segments in {} ms", records, segments.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+        bookLog.generation = segments.isEmpty() ? 0 : segments.lastKey();
+        bookLog.startSegment();
+        return bookLog;
+    }
+
+    synchronized long put(Book book) {
+        record.clear();
+        record.put(PUT);
+        putString(book.getId());
+        putString(book.getTitle());
+        putString(book.getIsbn());
+        putString(book.getAuthor());
+        putString(book.getGenre());
+        putInteger(book.getPublicationYear());
+        putString(book.getDepartment());
+        putBoolean(book.getIsAvailable());
+        putLong(book.getVersion());
+        return append();
+    }
+
+    synchronized long remove(String isbn) {
+        record.clear();
+        record.put(REMOVE);
+        putString(isbn);
+        return append();
+    }
+
+    synchronized long availability(String isbn, Boolean isAvailable, Long version) {
+        record.clear();
+        record.put(AVAILABILITY);
+        putString(isbn);
+        putBoolean(isAvailable);
+        putLong(version);
+        return append();
+    }
+
+    synchronized long clear() {
+        record.clear();
+        record.put(CLEAR);
+        return append();
+    }
+
+    /**
+     * @return bytes appended since startup, the position to pass to {@link #awaitDurable(long)}.
+     */
+    synchronized long appended() {
+        return appended;
+    }
+
+    /**
+     * @return bytes held by the segments a snapshot would delete.
+     */
+    synchronized long size() {
+        return completedSegments.values().stream().mapToLong(Long::longValue).sum() + regionStart + region.position();
+    }
+
+    /**
+     * Waits until everything up to {@code position} is on disk, when the policy is {@link Sync#ALWAYS}.
+     * The first waiting writer forces every record appended so far, so the writers queued behind it usually find
+     * their record already forced.
+     */
+    void awaitDurable(long position) {
+        if (sync == Sync.ALWAYS && position > durable) {
+            force(position);
+        }
+    }
+
+    /**
+     * Forces every appended record to disk.
+     */
+    void force() {
+        force(Long.MAX_VALUE);
+    }
+
+    private void force(long position) {
+        synchronized (syncLock) {
+            if (position <= durable) {
+                return;
+            }
+            long target;
+            List<MappedByteBuffer> regions;
+            synchronized (this) {
+                target = appended;
+                regions = new ArrayList<>(unforced);
+                regions.add(region);
+                unforced.clear();
+            }
+            regions.forEach(MappedByteBuffer::force);
+            durable = target;
+        }
+    }
+
+    /**
+     * Completes the current segment and starts the next one. Called with the store's writes paused, so the
+     * completed segments hold exactly the changes made before this point.
+     * @return the generation of the completed segment.
+     */
+    long rotate() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                long completed = generation;
+                finishSegment();
+                startSegment();
+                return completed;
+            }
+        }
+    }
+
+    /**
+     * Deletes the segments up to {@code generation}, once a snapshot holds their changes.
+     */
+    void deleteThrough(long generation) throws IOException {
+        List<Long> deleted = new ArrayList<>();
+        synchronized (this) {
+            var covered = completedSegments.headMap(generation, true);
+            deleted.addAll(covered.keySet());
+            covered.clear();
+        }
+        for (Long segment : deleted) {
+            Files.deleteIfExists(segmentFile(segment));
+        }
+    }
+
+    /**
+     * Forces and closes the current segment, and deletes it when it is empty.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                boolean empty = regionStart + region.position() == 0;
+                finishSegment();
+                if (empty) {
+                    Files.deleteIfExists(segmentFile(generation));
+                }
+            }
+        }
+    }
+
+    private void startSegment() throws IOException {
+        generation++;
+        channel = FileChannel.open(segmentFile(generation), StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        regionStart = 0;
+        region = channel.map(FileChannel.MapMode.READ_WRITE, 0, REGION_SIZE);
+    }
+
+    // must hold both the sync lock and this.
+    private void finishSegment() throws IOException {
+        unforced.forEach(MappedByteBuffer::force);
+        unforced.clear();
+        region.force();
+        completedSegments.put(generation, regionStart + region.position());
+        channel.close();
+        durable = appended;
+    }
+
+    /**
+     * Writes the encoded record after its length and checksum, continuing in the next region when the current one
+     * is full. A record cut short by a crash fails its checksum on replay.
+     */
+    private long append() {
+        record.flip();
+        CRC32C crc = new CRC32C();
+        crc.update(record.array(), 0, record.limit());
+        try {
+            write(ByteBuffer.allocate(8).putInt(record.limit()).putInt((int) crc.getValue()).flip());
+            write(record);
+            appended += 8 + record.limit();
+            return appended;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to the book log", e);
+        }
+    }
+
+    private void write(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            if (!region.hasRemaining()) {
+                unforced.add(region);
+                regionStart += REGION_SIZE;
+                region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, REGION_SIZE);
+            }
+            int length = Math.min(bytes.remaining(), region.remaining());
+            region.put(region.position(), bytes, bytes.position(), length);
+            region.position(region.position() + length);
+            bytes.position(bytes.position() + length);
+        }
+    }
+
+    private void putString(String value) {
+        if (value == null) {
+            putVarint(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        putVarint(bytes.length + 1);
+        ensure(bytes.length);
+        record.put(bytes);
+    }
+
+    private void putInteger(Integer value) {
+        ensure(5);
+        record.put((byte) (value == null ? 0 : 1));
+        if (value != null) {
+            record.putInt(value);
+        }
+    }
+
+    private void putLong(Long value) {
+        ensure(9);
+        record.put((byte) (value == null ? 0 : 1));
+        if (value != null) {
+            record.putLong(value);
+        }
+    }
+
+    private void putBoolean(Boolean value) {
+        ensure(1);
+        record.put((byte) (value == null ? -1 : value ? 1 : 0));
+    }
+
+    private void putVarint(int value) {
+        ensure(5);
+        while ((value & ~0x7F) != 0) {
+            record.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        record.put((byte) value);
+    }
+
+    private void ensure(int bytes) {
+        if (record.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(record.capacity() * 2, record.position() + bytes));
+            record.flip();
+            record = larger.put(record);
+        }
+    }
+
+    private static long[] replay(Path segment, Replay replay) throws IOException {
+        long records = 0;
+        long bytes = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment), 1 << 16))) {
+            byte[] body = new byte[4096];
+            while (true) {
+                int length;
+                int checksum;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    if (length <= 0) {
+                        break; // the unwritten end of the segment.
+                    }
+                    if (body.length < length) {
+                        body = new byte[Math.max(length, body.length * 2)];
+                    }
+                    in.readFully(body, 0, length);
+                } catch (EOFException e) {
+                    break;
+                }
+                CRC32C crc = new CRC32C();
+                crc.update(body, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    log.warn("Ignoring the end of {} from offset {}, its record is corrupt", segment, bytes);
+                    break;
+                }
+                apply(ByteBuffer.wrap(body, 0, length), replay);
+                records++;
+                bytes += 8 + length;
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Malformed record in " + segment, e);
+        }
+        return new long[] {records, bytes};
+    }
+
+    private static void apply(ByteBuffer body, Replay replay) {
+        switch (body.get()) {
+            case PUT -> {
+                Book book = new Book(getString(body), getString(body), getString(body), getString(body),
+                        getString(body), getInteger(body), getString(body), getBoolean(body));
+                book.setVersion(getLong(body));
+                replay.put(book);
+            }
+            case REMOVE -> replay.remove(getString(body));
+            case AVAILABILITY -> replay.availability(getString(body), getBoolean(body), getLong(body));
+            case CLEAR -> replay.clear();
+            default -> throw new IllegalStateException("Unknown record type " + body.get(0));
+        }
+    }
+
+    private static String getString(ByteBuffer body) {
+        int length = getVarint(body);
+        if (length == 0) {
+            return null;
+        }
+        String value = new String(body.array(), body.position(), length - 1, StandardCharsets.UTF_8);
+        body.position(body.position() + length - 1);
+        return value;
+    }
+
+    private static Integer getInteger(ByteBuffer body) {
+        return body.get() == 0 ? null : body.getInt();
+    }
+
+    private static Long getLong(ByteBuffer body) {
+        return body.get() == 0 ? null : body.getLong();
+    }
+
+    private static Boolean getBoolean(ByteBuffer body) {
+        byte value = body.get();
+        return value < 0 ? null : value == 1;
+    }
+
+    private static int getVarint(ByteBuffer body) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte next = body.get();
+            value |= (next & 0x7F) << shift;
+            if (next >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private TreeMap<Long, Path> segments() throws IOException {
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        Path directory = snapshotFile.toAbsolutePath().getParent();
+        if (!Files.isDirectory(directory)) {
+            Files.createDirectories(directory);
+            return segments;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = segmentName.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    segments.put(Long.parseLong(matcher.group(1)), file);
+                }
+            });
+        }
+        return segments;
+    }
+
+    private Path segmentFile(long generation) {
+        return snapshotFile.resolveSibling(String.format("%s.%08d.log", snapshotFile.getFileName(), generation));
+    }
+}
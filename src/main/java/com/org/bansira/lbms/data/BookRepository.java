@@ -4,14 +4,17 @@
 package com.org.bansira.lbms.data;
 
 import com.org.bansira.lbms.domain.Book;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.repository.Meta;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface BookRepository extends MongoRepository<Book, String> {
+public interface BookRepository extends MongoRepository<Book, String>, BookRepositoryCustom {
     boolean existsByIsbn(String isbn);
 
     Optional<Book> findByIsbn(String isbn);
@@ -23,4 +26,27 @@ public interface BookRepository extends MongoRepository<Book, String> {
     Optional<List<Book>> findByAuthor(String author);
 
     Long deleteByIsbn(String isbn);
+
+    // Keyset pagination: each page starts strictly after the last ISBN of the previous page.
+
+    List<Book> findByIsbnGreaterThanOrderByIsbnAsc(String isbn, Limit limit);
+
+    List<Book> findByIsAvailableAndIsbnGreaterThanOrderByIsbnAsc(Boolean isAvailable, String isbn, Limit limit);
+
+    List<Book> findByTitleAndIsbnGreaterThanOrderByIsbnAsc(String title, String isbn, Limit limit);
+
+    List<Book> findByAuthorAndIsbnGreaterThanOrderByIsbnAsc(String author, String isbn, Limit limit);
+
+    List<Book> findByDepartmentAndIsbnGreaterThanOrderByIsbnAsc(String department, String isbn, Limit limit);
+
+    // Cursor backed streams, the caller must close them.
+
+    @Meta(cursorBatchSize = 1000) // exports read the whole collection, so fetch it in fewer round trips.
+    Stream<Book> streamAllBy();
+
+    Stream<Book> streamByIsAvailable(Boolean isAvailable);
+
+    Stream<Book> streamByTitle(String title);
+
+    Stream<Book> streamByAuthor(String author);
 }
@@ -0,0 +1,77 @@
+/**
+ * This package contains all the DB queries for the Book collection.
+ */
+package com.org.bansira.lbms.data;
+
+import com.org.bansira.lbms.domain.Book;
+import com.org.bansira.lbms.domain.BookFilter;
+import com.org.bansira.lbms.domain.BookFields;
+import com.org.bansira.lbms.domain.BulkOutcome;
+import com.org.bansira.lbms.domain.ShelfCount;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Book collection operations that cannot be expressed as derived queries.
+ */
+public interface BookRepositoryCustom {
+
+    /**
+     * Inserts books in a single unordered bulk write, so one rejected document does not stop the rest.
+     * Every book whose position is not returned was inserted.
+     * @param books the books to be inserted.
+     * @return positions in {@code books} that were rejected, with {@link BulkOutcome.Status#DUPLICATE} if their ISBN
+     * already exists and {@link BulkOutcome.Status#FAILED} for any other write error.
+     * @throws org.springframework.dao.DataAccessException if the write failed as a whole, e.g. the connection was lost
+     * or the write concern was not satisfied; some of the books may have been inserted.
+     */
+    Map<Integer, BulkOutcome.Status> insertAllUnordered(List<Book> books);
+
+    /**
+     * Keyset paginated lookup that only reads the requested properties from the DB.
+     * @param property the Book property to match, null to match every book.
+     * @param value the value the property must be equal to.
+     * @param after only books with a greater ISBN are returned.
+     * @param limit maximum number of books to return.
+     * @param fields the properties to read, the others are left null.
+     * @return matching books in ISBN order.
+     */
+    List<Book> findProjectedPage(String property, Object value, String after, int limit, BookFields fields);
+
+    /**
+     * Atomically sets the availability of a book if it currently has the expected availability,
+     * incrementing its version, so concurrent checkouts of one copy cannot both succeed.
+     * @param isbn is the unique id of the book.
+     * @param expected the availability the book must have.
+     * @param available the new availability.
+     * @return the updated book, or null if the book does not exist or did not have the expected availability.
+     */
+    Book updateAvailability(String isbn, boolean expected, boolean available);
+
+    /**
+     * Counts the books, and the available books, of every department and genre in a single aggregation.
+     * @return one count per department and genre that has books.
+     */
+    List<ShelfCount> countByDepartmentAndGenre();
+
+    /**
+     * Deletes the books with the given ISBNs that still match the filter when the delete runs.
+     * @param isbns the ISBNs of one batch of books.
+     * @param filter the books must still match, so books changed since they were selected are left alone.
+     * @return the deleted books.
+     */
+    List<Book> deleteMatching(Collection<String> isbns, BookFilter filter);
+
+    /**
+     * Moves the given books to another department, incrementing their versions, each one atomically on its own.
+     * A book is only moved if it still matches the filter and is still in the department it was read from, so the
+     * department it left is known. Books already in the new department are left alone.
+     * @param books one batch of books, as they were read.
+     * @param filter the books must still match, so books changed since they were selected are left alone.
+     * @param department the new department.
+     * @return the moved books as they are after the move.
+     */
+    List<Book> moveMatching(Collection<Book> books, BookFilter filter, String department);
+}
@@ -0,0 +1,155 @@
+/**
+ * This package contains all the DB queries for the Book collection.
+ */
+package com.org.bansira.lbms.data;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.bulk.BulkWriteError;
+import com.org.bansira.lbms.domain.Book;
+import com.org.bansira.lbms.domain.BookFilter;
+import com.org.bansira.lbms.domain.BookFields;
+import com.org.bansira.lbms.domain.BulkOutcome;
+import com.org.bansira.lbms.domain.ShelfCount;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * MongoTemplate backed implementation of {@link BookRepositoryCustom}, picked up as a fragment of {@link BookRepository}.
+ */
+public class BookRepositoryCustomImpl implements BookRepositoryCustom {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public Map<Integer, BulkOutcome.Status> insertAllUnordered(List<Book> books) {
+        if (books.isEmpty()) {
+            return Map.of();
+        }
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Book.class).insert(books).execute();
+            return Map.of();
+        } catch (BulkOperationException e) {
+            if (e.getErrors().isEmpty()) {
+                throw e; // only a write concern error, whether the books were written is not known.
+            }
+            return rejected(e.getErrors());
+        }
+    }
+
+    /**
+     * An unordered bulk write attempts every document, so the documents without a write error were inserted.
+     * @param errors the write errors of a bulk insert.
+     * @return the rejected positions, as duplicates or failures.
+     */
+    static Map<Integer, BulkOutcome.Status> rejected(List<BulkWriteError> errors) {
+        Map<Integer, BulkOutcome.Status> rejected = new HashMap<>();
+        for (BulkWriteError error : errors) {
+            rejected.put(error.getIndex(), ErrorCategory.fromErrorCode(error.getCode()) == ErrorCategory.DUPLICATE_KEY
+                    ? BulkOutcome.Status.DUPLICATE : BulkOutcome.Status.FAILED);
+        }
+        return rejected;
+    }
+
+    @Override
+    public List<Book> findProjectedPage(String property, Object value, String after, int limit, BookFields fields) {
+        Query query = new Query();
+        if (property != null) {
+            query.addCriteria(Criteria.where(property).is(value));
+        }
+        query.addCriteria(Criteria.where("isbn").gt(after)).with(Sort.by("isbn")).limit(limit);
+        for (String field : fields.getProperties()) {
+            if (!field.equals("Id")) {
+                query.fields().include(field);
+            }
+        }
+        if (!fields.includes("Id")) {
+            query.fields().exclude("_id"); // _id is returned unless excluded.
+        }
+        return mongoTemplate.find(query, Book.class);
+    }
+
+    @Override
+    public Book updateAvailability(String isbn, boolean expected, boolean available) {
+        Query query = new Query(Criteria.where("isbn").is(isbn).and("isAvailable").is(expected));
+        Update update = new Update().set("isAvailable", available).inc("version", 1);
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Book.class);
+    }
+
+    @Override
+    public List<ShelfCount> countByDepartmentAndGenre() {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.group("department", "genre").count().as("total")
+                        .sum(ConditionalOperators.when(Criteria.where("isAvailable").is(true)).then(1).otherwise(0))
+                        .as("available"));
+        List<ShelfCount> counts = new ArrayList<>();
+        for (Document group : mongoTemplate.aggregate(aggregation, Book.class, Document.class)) {
+            Document id = group.get("_id", Document.class);
+            counts.add(new ShelfCount(id.getString("department"), id.getString("genre"),
+                    ((Number) group.get("total")).longValue(), ((Number) group.get("available")).longValue()));
+        }
+        return counts;
+    }
+
+    @Override
+    public List<Book> deleteMatching(Collection<String> isbns, BookFilter filter) {
+        return mongoTemplate.findAllAndRemove(new Query(matching(isbns, filter)), Book.class);
+    }
+
+    @Override
+    public List<Book> moveMatching(Collection<Book> books, BookFilter filter, String department) {
+        Update update = new Update().set("department", department).inc("version", 1);
+        FindAndModifyOptions returnNew = FindAndModifyOptions.options().returnNew(true);
+        List<Book> moved = new ArrayList<>();
+        // one findAndModify per book returns exactly the books this call moved, an updateMulti cannot.
+        for (Book book : books) {
+            if (Objects.equals(book.getDepartment(), department)
+                    || filter.getDepartment() != null && !filter.getDepartment().equals(book.getDepartment())) {
+                continue;
+            }
+            Criteria criteria = matching(List.of(book.getIsbn()), filter);
+            if (filter.getDepartment() == null) {
+                criteria.and("department").is(book.getDepartment());
+            }
+            Book updated = mongoTemplate.findAndModify(new Query(criteria), update, returnNew, Book.class);
+            if (updated != null) {
+                moved.add(updated);
+            }
+        }
+        return moved;
+    }
+
+    private static Criteria matching(Collection<String> isbns, BookFilter filter) {
+        Criteria criteria = Criteria.where("isbn").in(isbns);
+        if (filter.getDepartment() != null) {
+            criteria.and("department").is(filter.getDepartment());
+        }
+        if (filter.getGenre() != null) {
+            criteria.and("genre").is(filter.getGenre());
+        }
+        if (filter.getAuthor() != null) {
+            criteria.and("author").is(filter.getAuthor());
+        }
+        if (filter.getIsAvailable() != null) {
+            criteria.and("isAvailable").is(filter.getIsAvailable());
+        }
+        return criteria;
+    }
+}
@@ -0,0 +1,887 @@
+/**
+ * This package contains all the DB queries for the Book collection.
+ */
+package com.org.bansira.lbms.data;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.org.bansira.lbms.domain.Book;
+import com.org.bansira.lbms.domain.BookFilter;
+import com.org.bansira.lbms.domain.BookColumns;
+import com.org.bansira.lbms.domain.BookFields;
+import com.org.bansira.lbms.domain.BulkOutcome;
+import com.org.bansira.lbms.domain.ShelfCount;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.query.FluentQuery;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * In-process {@link BookRepository} selected with the {@code embedded} profile, for small deployments and local runs
+ * without Mongo. Books are held in {@link BookColumns}, with a hash index from ISBN to row, an ISBN ordered key set
+ * for keyset pagination and ordered secondary indexes on title, author, availability and department.
+ * Reads never lock: they go through an index and re-check the book read from the row, which may have been updated
+ * or reused since. Writes are serialized. Every read materializes a new book, as a DB would.
+ * The store is loaded from {@code lbms.embedded.snapshot-file} at startup and written back every
+ * {@code lbms.embedded.snapshot-interval} if it changed, and at shutdown.
+ * With {@code lbms.embedded.log-enabled} every change is also appended to a {@link BookLog} before it is applied,
+ * and replayed after the snapshot at startup, so no change is lost between snapshots. A snapshot is also taken
+ * once the log grows past {@code lbms.embedded.log-compact-size}, which lets the log segments it covers be deleted.
+ */
+@Repository
+@Profile("embedded")
+public class EmbeddedBookRepository implements BookRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddedBookRepository.class);
+
+    private static final Object NULL_KEY = new Object(); // stands in for null values, which concurrent maps reject.
+
+    @Value("${lbms.embedded.snapshot-file:data/books.ndjson}")
+    private String snapshotPath; // empty to keep the store in memory only.
+
+    @Value("${lbms.embedded.snapshot-interval:5m}")
+    private Duration snapshotInterval;
+
+    @Value("${lbms.embedded.log-enabled:false}")
+    private boolean logEnabled;
+
+    @Value("${lbms.embedded.log-sync:interval}")
+    private String logSync; // always, interval or none, see BookLog.Sync.
+
+    @Value("${lbms.embedded.log-sync-interval:100ms}")
+    private Duration logSyncInterval;
+
+    @Value("${lbms.embedded.log-compact-size:64MB}")
+    private DataSize logCompactSize;
+
+    private final ReentrantLock writeLock = new ReentrantLock(); // not a monitor, so blocking on the log does not pin a virtual thread.
+    private final BookColumns books = new BookColumns();
+    private final Map<String, Integer> rows = new ConcurrentHashMap<>(); // isbn to row in books.
+    private final Map<String, String> isbnById = new ConcurrentHashMap<>();
+    private final NavigableSet<String> isbns = new ConcurrentSkipListSet<>();
+    private final SecondaryIndex titles = new SecondaryIndex(Book::getTitle);
+    private final SecondaryIndex authors = new SecondaryIndex(Book::getAuthor);
+    private final SecondaryIndex availability = new SecondaryIndex(Book::getIsAvailable);
+    private final SecondaryIndex departments = new SecondaryIndex(Book::getDepartment);
+    private final List<SecondaryIndex> indexes = List.of(titles, authors, availability, departments);
+
+    private final AtomicLong changes = new AtomicLong(); // bumped by every write, to skip unchanged snapshots.
+    private long snapshotChanges;
+    private Path snapshotFile;
+    private volatile BookLog bookLog; // only set once replayed, so replaying does not log again.
+    private ScheduledExecutorService background;
+
+    // the snapshot keeps the version, which clients may not set through the API.
+    private final ObjectMapper snapshotMapper = new ObjectMapper()
+            .addMixIn(Book.class, SnapshotFields.class)
+            .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    // Lombok copies the annotation to the accessors, so they are overridden too.
+    private abstract static class SnapshotFields {
+        @JsonProperty(access = JsonProperty.Access.READ_WRITE)
+        private Long version;
+
+        @JsonProperty(access = JsonProperty.Access.READ_WRITE)
+        abstract Long getVersion();
+
+        @JsonProperty(access = JsonProperty.Access.READ_WRITE)
+        abstract void setVersion(Long version);
+    }
+
+    /**
+     * Loads the last snapshot, if any, and schedules the periodic snapshots.
+     */
+    @PostConstruct
+    public void load() throws IOException {
+        snapshotFile = snapshotPath == null || snapshotPath.isBlank() ? null : Path.of(snapshotPath);
+        if (snapshotFile != null && Files.exists(snapshotFile)) {
+            long start = System.nanoTime();
+            try (InputStream in = Files.newInputStream(snapshotFile);
+                 MappingIterator<Book> books = snapshotMapper.readerFor(Book.class).readValues(in)) {
+                writeLock.lock();
+                try {
+                    while (books.hasNext()) {
+                        store(null, books.next());
+                    }
+                    snapshotChanges = changes.get();
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+            log.info("Loaded {} books from {} in {} ms", books.size(), snapshotFile, (System.nanoTime() - start) / 1_000_000);
+        }
+        BookLog.Sync sync = null;
+        if (snapshotFile != null && logEnabled) {
+            sync = BookLog.Sync.valueOf(logSync.trim().toUpperCase(Locale.ROOT));
+            writeLock.lock();
+            try {
+                bookLog = BookLog.open(snapshotFile, sync, new Replayer());
+            } finally {
+                writeLock.unlock();
+            }
+        }
+        background = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "embedded-store");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (snapshotFile != null && snapshotInterval != null && !snapshotInterval.isZero()) {
+            long period = snapshotInterval.toMillis();
+            background.scheduleWithFixedDelay(this::snapshotQuietly, period, period, TimeUnit.MILLISECONDS);
+        }
+        if (sync == BookLog.Sync.INTERVAL) {
+            long period = logSyncInterval.toMillis();
+            background.scheduleWithFixedDelay(bookLog::force, period, period, TimeUnit.MILLISECONDS);
+        }
+        if (bookLog != null && logCompactSize != null) {
+            background.scheduleWithFixedDelay(this::compactQuietly, 1, 1, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Writes the final snapshot when the application stops.
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        if (background != null) {
+            background.shutdownNow();
+        }
+        snapshot();
+        if (bookLog != null) {
+            bookLog.close();
+        }
+    }
+
+    /**
+     * Writes every book to the snapshot file as newline delimited JSON, unless nothing changed since the last one.
+     * The books are copied under the write lock, so the snapshot is a consistent point in time, and serialized after
+     * releasing it to a temporary file that replaces the previous snapshot only once complete. The log is moved to a new segment at
+     * the same point, and the segments before it are deleted once the snapshot is in place.
+     * @return true if a snapshot was written.
+     */
+    public boolean snapshot() throws IOException {
+        if (snapshotFile == null) {
+            return false;
+        }
+        List<Book> written;
+        long captured;
+        long logged = 0;
+        writeLock.lock();
+        try {
+            captured = changes.get();
+            if (captured == snapshotChanges && Files.exists(snapshotFile)) {
+                return false;
+            }
+            written = rows.values().stream().map(books::get).filter(Objects::nonNull).toList(); // copies, read from the columns.
+            if (bookLog != null) {
+                logged = bookLog.rotate();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        Path directory = snapshotFile.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, snapshotFile.getFileName().toString(), ".tmp");
+        try {
+            ObjectWriter writer = snapshotMapper.writerFor(Book.class);
+            try (BufferedWriter out = Files.newBufferedWriter(temporary)) {
+                for (Book book : written) {
+                    out.write(writer.writeValueAsString(book));
+                    out.newLine();
+                }
+            }
+            Files.move(temporary, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        writeLock.lock();
+        try {
+            snapshotChanges = Math.max(snapshotChanges, captured);
+        } finally {
+            writeLock.unlock();
+        }
+        if (bookLog != null) {
+            bookLog.deleteThrough(logged);
+        }
+        log.debug("Wrote {} books to {}", written.size(), snapshotFile);
+        return true;
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Could not write the snapshot to {}", snapshotFile, e);
+        }
+    }
+
+    private void compactQuietly() {
+        if (bookLog.size() > logCompactSize.toBytes()) {
+            snapshotQuietly();
+        }
+    }
+
+    @Override
+    public boolean existsByIsbn(String isbn) {
+        return isbn != null && rows.containsKey(isbn);
+    }
+
+    @Override
+    public Optional<Book> findByIsbn(String isbn) {
+        return Optional.ofNullable(get(isbn));
+    }
+
+    @Override
+    public Optional<List<Book>> findByIsAvailable(Boolean isAvailable) {
+        return Optional.of(availability.stream(isAvailable).toList());
+    }
+
+    @Override
+    public Optional<List<Book>> findByTitle(String title) {
+        return Optional.of(titles.stream(title).toList());
+    }
+
+    @Override
+    public Optional<List<Book>> findByAuthor(String author) {
+        return Optional.of(authors.stream(author).toList());
+    }
+
+    @Override
+    public Long deleteByIsbn(String isbn) {
+        return write(() -> {
+            Book existing = get(isbn);
+            if (existing == null) {
+                return 0L;
+            }
+            unstore(existing);
+            return 1L;
+        });
+    }
+
+    @Override
+    public List<Book> findByIsbnGreaterThanOrderByIsbnAsc(String isbn, Limit limit) {
+        return page(isbns.tailSet(isbn, false), Objects::nonNull, limit.max());
+    }
+
+    @Override
+    public List<Book> findByIsAvailableAndIsbnGreaterThanOrderByIsbnAsc(Boolean isAvailable, String isbn, Limit limit) {
+        return availability.page(isAvailable, isbn, limit.max());
+    }
+
+    @Override
+    public List<Book> findByTitleAndIsbnGreaterThanOrderByIsbnAsc(String title, String isbn, Limit limit) {
+        return titles.page(title, isbn, limit.max());
+    }
+
+    @Override
+    public List<Book> findByAuthorAndIsbnGreaterThanOrderByIsbnAsc(String author, String isbn, Limit limit) {
+        return authors.page(author, isbn, limit.max());
+    }
+
+    @Override
+    public List<Book> findByDepartmentAndIsbnGreaterThanOrderByIsbnAsc(String department, String isbn, Limit limit) {
+        return departments.page(department, isbn, limit.max());
+    }
+
+    @Override
+    public Stream<Book> streamAllBy() {
+        return isbns.stream().map(this::get).filter(Objects::nonNull);
+    }
+
+    @Override
+    public Stream<Book> streamByIsAvailable(Boolean isAvailable) {
+        return availability.stream(isAvailable);
+    }
+
+    @Override
+    public Stream<Book> streamByTitle(String title) {
+        return titles.stream(title);
+    }
+
+    @Override
+    public Stream<Book> streamByAuthor(String author) {
+        return authors.stream(author);
+    }
+
+    @Override
+    public Map<Integer, BulkOutcome.Status> insertAllUnordered(List<Book> books) {
+        return write(() -> {
+            Map<Integer, BulkOutcome.Status> rejected = new HashMap<>();
+            for (int i = 0; i < books.size(); i++) {
+                if (books.get(i).getIsbn() == null) {
+                    rejected.put(i, BulkOutcome.Status.FAILED);
+                } else if (rows.containsKey(books.get(i).getIsbn())) {
+                    rejected.put(i, BulkOutcome.Status.DUPLICATE);
+                } else {
+                    insertNew(books.get(i));
+                }
+            }
+            return rejected;
+        });
+    }
+
+    @Override
+    public List<Book> findProjectedPage(String property, Object value, String after, int limit, BookFields fields) {
+        List<Book> books = switch (property == null ? "" : property) {
+            case "" -> findByIsbnGreaterThanOrderByIsbnAsc(after, Limit.of(limit));
+            case "title" -> titles.page(value, after, limit);
+            case "author" -> authors.page(value, after, limit);
+            case "isAvailable" -> availability.page(value, after, limit);
+            case "department" -> departments.page(value, after, limit);
+            default -> throw new IllegalArgumentException("No index on " + property);
+        };
+        return books.stream().map(fields::project).toList();
+    }
+
+    @Override
+    public List<ShelfCount> countByDepartmentAndGenre() {
+        Map<List<String>, ShelfCount> counts = new HashMap<>();
+        try (Stream<Book> books = streamAllBy()) {
+            books.forEach(book -> {
+                ShelfCount count = counts.computeIfAbsent(Arrays.asList(book.getDepartment(), book.getGenre()),
+                        key -> new ShelfCount(book.getDepartment(), book.getGenre(), 0, 0));
+                count.setTotal(count.getTotal() + 1);
+                if (Boolean.TRUE.equals(book.getIsAvailable())) {
+                    count.setAvailable(count.getAvailable() + 1);
+                }
+            });
+        }
+        return new ArrayList<>(counts.values());
+    }
+
+    @Override
+    public Book updateAvailability(String isbn, boolean expected, boolean available) {
+        return write(() -> {
+            Book existing = get(isbn);
+            if (existing == null || !Objects.equals(existing.getIsAvailable(), expected)) {
+                return null;
+            }
+            Book updated = copy(existing);
+            updated.setIsAvailable(available);
+            updated.setVersion(existing.getVersion() == null ? 1 : existing.getVersion() + 1);
+            store(existing, updated);
+            return updated;
+        });
+    }
+
+    @Override
+    public List<Book> deleteMatching(Collection<String> isbns, BookFilter filter) {
+        return write(() -> {
+            List<Book> deleted = new ArrayList<>();
+            for (String isbn : isbns) {
+                Book existing = get(isbn);
+                if (existing != null && filter.matches(existing)) {
+                    unstore(existing);
+                    deleted.add(existing);
+                }
+            }
+            return deleted;
+        });
+    }
+
+    @Override
+    public List<Book> moveMatching(Collection<Book> books, BookFilter filter, String department) {
+        return write(() -> {
+            List<Book> moved = new ArrayList<>();
+            for (Book book : books) {
+                Book existing = get(book.getIsbn());
+                if (existing != null && filter.matches(existing) && Objects.equals(existing.getDepartment(), book.getDepartment())
+                        && !Objects.equals(existing.getDepartment(), department)) {
+                    Book updated = copy(existing);
+                    updated.setDepartment(department);
+                    updated.setVersion(existing.getVersion() == null ? 1 : existing.getVersion() + 1);
+                    store(existing, updated);
+                    moved.add(copy(updated));
+                }
+            }
+            return moved;
+        });
+    }
+
+    @Override
+    public <S extends Book> S insert(S entity) {
+        requireIsbn(entity);
+        return write(() -> {
+            if (rows.containsKey(entity.getIsbn())) {
+                throw new DuplicateKeyException("Duplicate key on isbn: " + entity.getIsbn());
+            }
+            insertNew(entity);
+            return entity;
+        });
+    }
+
+    @Override
+    public <S extends Book> List<S> insert(Iterable<S> entities) {
+        List<S> saved = new ArrayList<>();
+        entities.forEach(entity -> saved.add(insert(entity)));
+        return saved;
+    }
+
+    /**
+     * Inserts a book without a version, otherwise updates it if its version is still current, like Mongo does
+     * for versioned documents.
+     */
+    @Override
+    public <S extends Book> S save(S entity) {
+        if (entity.getVersion() == null) {
+            return insert(entity);
+        }
+        requireIsbn(entity);
+        return write(() -> {
+            String isbn = entity.getId() == null ? null : isbnById.get(entity.getId());
+            Book existing = isbn == null ? null : get(isbn);
+            if (existing == null || !entity.getVersion().equals(existing.getVersion())) {
+                throw new OptimisticLockingFailureException("Book " + entity.getId() + " was changed or removed");
+            }
+            if (!Objects.equals(existing.getIsbn(), entity.getIsbn()) && rows.containsKey(entity.getIsbn())) {
+                throw new DuplicateKeyException("Duplicate key on isbn: " + entity.getIsbn());
+            }
+            entity.setVersion(entity.getVersion() + 1);
+            store(existing, entity);
+            return entity;
+        });
+    }
+
+    @Override
+    public <S extends Book> List<S> saveAll(Iterable<S> entities) {
+        List<S> saved = new ArrayList<>();
+        entities.forEach(entity -> saved.add(save(entity)));
+        return saved;
+    }
+
+    @Override
+    public Optional<Book> findById(String id) {
+        String isbn = isbnById.get(id);
+        return isbn == null ? Optional.empty() : findByIsbn(isbn);
+    }
+
+    @Override
+    public boolean existsById(String id) {
+        return isbnById.containsKey(id);
+    }
+
+    @Override
+    public List<Book> findAll() {
+        return streamAllBy().toList();
+    }
+
+    @Override
+    public List<Book> findAllById(Iterable<String> ids) {
+        List<Book> books = new ArrayList<>();
+        ids.forEach(id -> findById(id).ifPresent(books::add));
+        return books;
+    }
+
+    @Override
+    public long count() {
+        return books.size();
+    }
+
+    @Override
+    public void deleteById(String id) {
+        write(() -> {
+            String isbn = isbnById.get(id);
+            if (isbn != null) {
+                unstore(get(isbn));
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void delete(Book entity) {
+        write(() -> {
+            String isbn = entity.getId() == null ? null : isbnById.get(entity.getId());
+            Book existing = isbn == null ? null : get(isbn);
+            // like Mongo, a versioned book is only removed if it was not changed in the meantime.
+            if (existing != null && (entity.getVersion() == null || entity.getVersion().equals(existing.getVersion()))) {
+                unstore(existing);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends String> ids) {
+        ids.forEach(this::deleteById);
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends Book> entities) {
+        entities.forEach(this::delete);
+    }
+
+    @Override
+    public void deleteAll() {
+        write(() -> {
+            if (bookLog != null) {
+                bookLog.clear();
+            }
+            clear();
+            return null;
+        });
+    }
+
+    @Override
+    public List<Book> findAll(Sort sort) {
+        return streamAllBy().sorted(comparator(sort)).toList();
+    }
+
+    @Override
+    public Page<Book> findAll(Pageable pageable) {
+        Stream<Book> books = streamAllBy();
+        if (pageable.getSort().isSorted()) {
+            books = books.sorted(comparator(pageable.getSort()));
+        }
+        if (pageable.isPaged()) {
+            books = books.skip(pageable.getOffset()).limit(pageable.getPageSize());
+        }
+        return new PageImpl<>(books.toList(), pageable, count());
+    }
+
+    @Override
+    public <S extends Book> Optional<S> findOne(Example<S> example) {
+        throw new UnsupportedOperationException("Query by example is not supported by the embedded store");
+    }
+
+    @Override
+    public <S extends Book> List<S> findAll(Example<S> example) {
+        throw new UnsupportedOperationException("Query by example is not supported by the embedded store");
+    }
+
+    @Override
+    public <S extends Book> List<S> findAll(Example<S> example, Sort sort) {
+        throw new UnsupportedOperationException("Query by example is not supported by the embedded store");
+    }
+
+    @Override
+    public <S extends Book> Page<S> findAll(Example<S> example, Pageable pageable) {
+        throw new UnsupportedOperationException("Query by example is not supported by the embedded store");
+    }
+
+    @Override
+    public <S extends Book> long count(Example<S> example) {
+        throw new UnsupportedOperationException("Query by example is not supported by the embedded store");
+    }
+
+    @Override
+    public <S extends Book> boolean exists(Example<S> example) {
+        throw new UnsupportedOperationException("Query by example is not supported by the embedded store");
+    }
+
+    @Override
+    public <S extends Book, R> R findBy(Example<S> example, Function<FluentQuery.FetchableFluentQuery<S>, R> queryFunction) {
+        throw new UnsupportedOperationException("Query by example is not supported by the embedded store");
+    }
+
+    /**
+     * Rejects a book without an ISBN, which Mongo would store but this store keys every book by.
+     */
+    private static void requireIsbn(Book book) {
+        if (book.getIsbn() == null) {
+            throw new IllegalArgumentException("Book is missing its ISBN");
+        }
+    }
+
+    /**
+     * Assigns the id and initial version like Mongo does on insert, then stores the book.
+     * Must hold the write lock and have checked the ISBN is free.
+     */
+    private void insertNew(Book book) {
+        if (book.getId() == null) {
+            book.setId(new ObjectId().toHexString());
+        }
+        if (book.getVersion() == null) {
+            book.setVersion(0L);
+        }
+        store(null, book);
+    }
+
+    /**
+     * Runs a change under the write lock, then waits for the log to make it durable, outside the lock so that
+     * concurrent changes share one force.
+     */
+    private <T> T write(Supplier<T> change) {
+        T result;
+        writeLock.lock();
+        try {
+            result = change.get();
+        } finally {
+            writeLock.unlock();
+        }
+        BookLog changes = bookLog;
+        if (changes != null) {
+            changes.awaitDurable(changes.appended());
+        }
+        return result;
+    }
+
+    /**
+     * Replaces {@code previous} with {@code book}, or adds {@code book} when previous is null.
+     * Must hold the write lock. The change is logged before it is applied, so a failed append leaves the store
+     * unchanged. The book becomes visible by ISBN before it is reachable through the indexes,
+     * and readers re-check what they find through an index, so they never see a half applied update.
+     */
+    private void store(Book previous, Book book) {
+        if (bookLog != null) {
+            if (availabilityChanged(previous, book)) {
+                bookLog.availability(book.getIsbn(), book.getIsAvailable(), book.getVersion());
+            } else {
+                bookLog.put(book);
+            }
+        }
+        apply(previous, book);
+    }
+
+    private void apply(Book previous, Book book) {
+        if (previous != null && !Objects.equals(previous.getIsbn(), book.getIsbn())) {
+            drop(previous);
+            previous = null;
+        }
+        Integer row = previous == null ? null : rows.get(book.getIsbn());
+        if (row == null) {
+            rows.put(book.getIsbn(), books.insert(book));
+        } else {
+            books.update(row, book);
+        }
+        isbns.add(book.getIsbn());
+        if (book.getId() != null) {
+            isbnById.put(book.getId(), book.getIsbn());
+        }
+        for (SecondaryIndex index : indexes) {
+            index.replace(previous, book);
+        }
+        changes.incrementAndGet();
+    }
+
+    private void unstore(Book book) {
+        if (bookLog != null) {
+            bookLog.remove(book.getIsbn());
+        }
+        drop(book);
+    }
+
+    private void drop(Book book) {
+        for (SecondaryIndex index : indexes) {
+            index.replace(book, null);
+        }
+        isbns.remove(book.getIsbn());
+        if (book.getId() != null) {
+            isbnById.remove(book.getId());
+        }
+        Integer row = rows.remove(book.getIsbn());
+        if (row != null) {
+            books.delete(row);
+        }
+        changes.incrementAndGet();
+    }
+
+    private void clear() {
+        isbns.clear();
+        indexes.forEach(SecondaryIndex::clear);
+        rows.clear();
+        books.clear();
+        isbnById.clear();
+        changes.incrementAndGet();
+    }
+
+    /**
+     * @return true if only the availability and version differ, which is logged without the rest of the book.
+     */
+    private static boolean availabilityChanged(Book previous, Book book) {
+        return previous != null
+                && Objects.equals(previous.getId(), book.getId())
+                && Objects.equals(previous.getTitle(), book.getTitle())
+                && Objects.equals(previous.getIsbn(), book.getIsbn())
+                && Objects.equals(previous.getAuthor(), book.getAuthor())
+                && Objects.equals(previous.getGenre(), book.getGenre())
+                && Objects.equals(previous.getPublicationYear(), book.getPublicationYear())
+                && Objects.equals(previous.getDepartment(), book.getDepartment());
+    }
+
+    private List<Book> page(NavigableSet<String> candidates, Predicate<Book> matches, int limit) {
+        List<Book> page = new ArrayList<>(Math.min(limit, 1024));
+        for (String isbn : candidates) {
+            Book book = get(isbn);
+            if (book != null && matches.test(book)) {
+                page.add(book);
+                if (page.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return page;
+    }
+
+    /**
+     * @return the book with the ISBN, or null. The row is re-checked as it may have been reused by another book
+     * since it was looked up.
+     */
+    private Book get(String isbn) {
+        Integer row = isbn == null ? null : rows.get(isbn);
+        Book book = row == null ? null : books.get(row);
+        return book != null && isbn.equals(book.getIsbn()) ? book : null;
+    }
+
+    private static Book copy(Book book) {
+        if (book == null) {
+            return null;
+        }
+        Book copy = new Book(book.getId(), book.getTitle(), book.getIsbn(), book.getAuthor(), book.getGenre(),
+                book.getPublicationYear(), book.getDepartment(), book.getIsAvailable());
+        copy.setVersion(book.getVersion());
+        return copy;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparator<Book> comparator(Sort sort) {
+        Comparator<Book> comparator = (a, b) -> 0;
+        for (Sort.Order order : sort) {
+            Function<Book, Comparable> property = switch (order.getProperty()) {
+                case "Id", "id", "_id" -> Book::getId;
+                case "title" -> Book::getTitle;
+                case "isbn" -> Book::getIsbn;
+                case "author" -> Book::getAuthor;
+                case "genre" -> Book::getGenre;
+                case "publicationYear" -> Book::getPublicationYear;
+                case "department" -> Book::getDepartment;
+                case "isAvailable" -> Book::getIsAvailable;
+                default -> throw new IllegalArgumentException("Cannot sort by " + order.getProperty());
+            };
+            Comparator<Book> next = Comparator.comparing(property, Comparator.nullsFirst(Comparator.naturalOrder()));
+            comparator = comparator.thenComparing(order.isAscending() ? next : next.reversed());
+        }
+        return comparator;
+    }
+
+    /**
+     * Applies the logged changes at startup, without logging them again.
+     */
+    private class Replayer implements BookLog.Replay {
+        @Override
+        public void put(Book book) {
+            String previousIsbn = book.getId() == null ? null : isbnById.get(book.getId());
+            if (previousIsbn != null && !previousIsbn.equals(book.getIsbn())) {
+                drop(get(previousIsbn));
+            }
+            apply(get(book.getIsbn()), book);
+        }
+
+        @Override
+        public void remove(String isbn) {
+            Book existing = get(isbn);
+            if (existing != null) {
+                drop(existing);
+            }
+        }
+
+        @Override
+        public void availability(String isbn, Boolean isAvailable, Long version) {
+            Book existing = get(isbn);
+            if (existing != null) {
+                Book updated = copy(existing);
+                updated.setIsAvailable(isAvailable);
+                updated.setVersion(version);
+                apply(existing, updated);
+            }
+        }
+
+        @Override
+        public void clear() {
+            EmbeddedBookRepository.this.clear();
+        }
+    }
+
+    /**
+     * ISBNs of the books with each value of one property, in ISBN order.
+     */
+    private class SecondaryIndex {
+        private final Function<Book, Object> property;
+        private final Map<Object, NavigableSet<String>> isbnsByValue = new ConcurrentHashMap<>();
+
+        SecondaryIndex(Function<Book, Object> property) {
+            this.property = property;
+        }
+
+        List<Book> page(Object value, String after, int limit) {
+            NavigableSet<String> candidates = isbnsByValue.get(key(value));
+            if (candidates == null) {
+                return new ArrayList<>();
+            }
+            return EmbeddedBookRepository.this.page(candidates.tailSet(after, false), book -> matches(book, value), limit);
+        }
+
+        Stream<Book> stream(Object value) {
+            NavigableSet<String> candidates = isbnsByValue.get(key(value));
+            if (candidates == null) {
+                return Stream.empty();
+            }
+            return candidates.stream().map(EmbeddedBookRepository.this::get).filter(book -> book != null && matches(book, value));
+        }
+
+        void replace(Book previous, Book book) {
+            Object previousKey = previous == null ? null : key(property.apply(previous));
+            Object key = book == null ? null : key(property.apply(book));
+            if (previousKey != null && !previousKey.equals(key)) {
+                NavigableSet<String> previousIsbns = isbnsByValue.get(previousKey);
+                previousIsbns.remove(previous.getIsbn());
+                if (previousIsbns.isEmpty()) {
+                    isbnsByValue.remove(previousKey);
+                }
+            }
+            if (key != null) {
+                isbnsByValue.computeIfAbsent(key, value -> new ConcurrentSkipListSet<>()).add(book.getIsbn());
+            }
+        }
+
+        void clear() {
+            isbnsByValue.clear();
+        }
+
+        private boolean matches(Book book, Object value) {
+            return Objects.equals(property.apply(book), value);
+        }
+
+        private Object key(Object value) {
+            return value == null ? NULL_KEY : value;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/**
+ * This package contains all the DB queries for the Book collection.
+ */
+package com.org.bansira.lbms.data;
+
+import com.org.bansira.lbms.domain.Book;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link BookRepository}, used by the reactive profile.
+ */
+@Repository
+public interface ReactiveBookRepository extends ReactiveMongoRepository<Book, String>, ReactiveBookRepositoryCustom {
+    Mono<Book> findByIsbn(String isbn);
+
+    Flux<Book> findByIsAvailable(Boolean isAvailable);
+
+    Flux<Book> findByTitle(String title);
+
+    Flux<Book> findByAuthor(String author);
+
+    Mono<Long> deleteByIsbn(String isbn);
+
+    // Keyset pagination: each page starts strictly after the last ISBN of the previous page.
+
+    Flux<Book> findByIsbnGreaterThanOrderByIsbnAsc(String isbn, Limit limit);
+
+    Flux<Book> findByIsAvailableAndIsbnGreaterThanOrderByIsbnAsc(Boolean isAvailable, String isbn, Limit limit);
+
+    Flux<Book> findByTitleAndIsbnGreaterThanOrderByIsbnAsc(String title, String isbn, Limit limit);
+
+    Flux<Book> findByAuthorAndIsbnGreaterThanOrderByIsbnAsc(String author, String isbn, Limit limit);
+}
@@ -0,0 +1,26 @@
+/**
+ * This package contains all the DB queries for the Book collection.
+ */
+package com.org.bansira.lbms.data;
+
+import com.org.bansira.lbms.domain.Book;
+import com.org.bansira.lbms.domain.BulkOutcome;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Non-blocking counterpart of {@link BookRepositoryCustom}.
+ */
+public interface ReactiveBookRepositoryCustom {
+
+    /**
+     * Inserts books in a single unordered bulk write, so one rejected document does not stop the rest.
+     * Every book whose position is not returned was inserted.
+     * @param books the books to be inserted.
+     * @return positions in {@code books} that were rejected, as in {@link BookRepositoryCustom#insertAllUnordered},
+     * or an error if the write failed as a whole.
+     */
+    Mono<Map<Integer, BulkOutcome.Status>> insertAllUnordered(List<Book> books);
+}
@@ -0,0 +1,56 @@
+/**
+ * This package contains all the DB queries for the Book collection.
+ */
+package com.org.bansira.lbms.data;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.org.bansira.lbms.domain.Book;
+import com.org.bansira.lbms.domain.BulkOutcome;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ReactiveMongoTemplate backed implementation of {@link ReactiveBookRepositoryCustom},
+ * picked up as a fragment of {@link ReactiveBookRepository}.
+ */
+public class ReactiveBookRepositoryCustomImpl implements ReactiveBookRepositoryCustom {
+
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Override
+    public Mono<Map<Integer, BulkOutcome.Status>> insertAllUnordered(List<Book> books) {
+        if (books.isEmpty()) {
+            return Mono.just(Map.of());
+        }
+        return reactiveMongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Book.class).insert(books).execute()
+                .<Map<Integer, BulkOutcome.Status>>map(result -> Map.of())
+                .onErrorResume(e -> {
+                    List<BulkWriteError> errors = writeErrors(e);
+                    return errors == null || errors.isEmpty() ? Mono.error(e) : Mono.just(BookRepositoryCustomImpl.rejected(errors));
+                });
+    }
+
+    /**
+     * The reactive template translates bulk write failures into a DuplicateKeyException or a
+     * BulkOperationException depending on the errors, so look for the driver exception in the chain.
+     * @return the write errors of the bulk write, or null if the error did not come from one.
+     */
+    private static List<BulkWriteError> writeErrors(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof BulkOperationException bulk) {
+                return bulk.getErrors();
+            } else if (cause instanceof MongoBulkWriteException bulk) {
+                return bulk.getWriteErrors();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,25 @@
+/**
+ * This package contains the representation of a Book in the library.
+ */
+package com.org.bansira.lbms.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Result of checking a book out or returning it.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AvailabilityChange {
+    private Status status;
+    private Book book; // the updated book, null unless the status is CHANGED.
+
+    public enum Status {
+        CHANGED,
+        CONFLICT, // the book was already checked out, or already returned.
+        NOT_FOUND
+    }
+}
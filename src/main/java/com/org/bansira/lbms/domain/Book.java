@@ -3,28 +3,42 @@
  */
 package com.org.bansira.lbms.domain;
 
-import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.Objects;
 
 @Data
 @Document(collection = "books")
-@AllArgsConstructor
+// lookups by title, author and availability are followed by keyset pagination on isbn.
+@CompoundIndex(name = "title_isbn", def = "{ 'title': 1, 'isbn': 1 }")
+@CompoundIndex(name = "author_isbn", def = "{ 'author': 1, 'isbn': 1 }")
+@CompoundIndex(name = "isAvailable_isbn", def = "{ 'isAvailable': 1, 'isbn': 1 }")
+@CompoundIndex(name = "department_isbn", def = "{ 'department': 1, 'isbn': 1 }")
 @NoArgsConstructor
 public class Book {
     @Id
     private String Id; //unique id of the document
     private String title;
-    private String isbn; //unique id for a book.
+    private String isbn; //unique id for a book, enforced by the partial unique index of BookIndexes.
     private String author;
     private String genre;
     private Integer publicationYear;
     private String department; // a book can be part of only 1 department.
     private Boolean isAvailable; // current availability of the book in the library.
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version; // incremented by every update, assigned by the DB.
+
+    public Book(String Id, String title, String isbn, String author, String genre, Integer publicationYear, String department, Boolean isAvailable) {
+        this(title, isbn, author, genre, publicationYear, department, isAvailable);
+        this.Id = Id;
+    }
 
     public Book(String title, String isbn, String author, String genre, Integer publicationYear, String department, Boolean isAvailable) {
         this.title = title;
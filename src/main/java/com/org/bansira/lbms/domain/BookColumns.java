@@ -0,0 +1,309 @@
+/**
+ * This package contains all the domain objects of library management system.
+ */
+package com.org.bansira.lbms.domain;
+
+import org.bson.types.ObjectId;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Compact in-memory storage for large numbers of books, addressed by row.
+ * Each field is a column: author, genre and department are ids into shared dictionaries, the publication year and
+ * version are primitives, availability and the presence of each optional field are packed into a flags byte, and
+ * Mongo generated ids are held as their 12 bytes. A {@link Book} is only materialized when a row is read.
+ * Writes must be serialized by the caller. Reads never block: they read the row optimistically and only take the
+ * read lock if a write overlapped, so a read always returns a consistent copy of the row.
+ */
+public class BookColumns {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final byte IN_USE = 1;
+    private static final byte AVAILABLE = 1 << 1;
+    private static final byte HAS_AVAILABILITY = 1 << 2;
+    private static final byte HAS_YEAR = 1 << 3;
+    private static final byte HAS_VERSION = 1 << 4;
+    private static final byte OBJECT_ID = 1 << 5; // the id is held as bytes, otherwise as a string.
+
+    private final StampedLock lock = new StampedLock();
+    private final Dictionary authors = new Dictionary();
+    private final Dictionary genres = new Dictionary();
+    private final Dictionary departments = new Dictionary();
+    private volatile Columns columns = new Columns(INITIAL_CAPACITY);
+    private int rows; // rows ever used, including free ones.
+    private int[] freeRows = new int[16];
+    private int freeCount;
+    private volatile int size;
+
+    /**
+     * Stores a book in a free row.
+     * @return the row of the book.
+     */
+    public int insert(Book book) {
+        long stamp = lock.writeLock();
+        try {
+            int row;
+            if (freeCount > 0) {
+                row = freeRows[--freeCount];
+            } else {
+                if (rows == columns.flags.length) {
+                    columns = columns.grow(columns.flags.length * 2);
+                }
+                row = rows++;
+            }
+            write(row, book);
+            size++;
+            return row;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Replaces the book held in a row.
+     */
+    public void update(int row, Book book) {
+        long stamp = lock.writeLock();
+        try {
+            write(row, book);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Frees a row for reuse.
+     */
+    public void delete(int row) {
+        long stamp = lock.writeLock();
+        try {
+            Columns current = columns;
+            if ((current.flags[row] & IN_USE) == 0) {
+                return;
+            }
+            current.flags[row] = 0;
+            current.titles[row] = null;
+            current.isbns[row] = null;
+            current.otherIds[row] = null;
+            if (freeCount == freeRows.length) {
+                freeRows = Arrays.copyOf(freeRows, freeCount * 2);
+            }
+            freeRows[freeCount++] = row;
+            size--;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Frees every row.
+     */
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            columns = new Columns(INITIAL_CAPACITY);
+            rows = 0;
+            freeCount = 0;
+            size = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return a new book with the values held in the row, or null if the row is free.
+     */
+    public Book get(int row) {
+        long stamp = lock.tryOptimisticRead();
+        Book book = read(row);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                book = read(row);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return book;
+    }
+
+    /**
+     * Reads the title without materializing the book or checking for a concurrent write, for callers that already
+     * exclude writes.
+     * @return the title held in the row.
+     */
+    public String title(int row) {
+        Columns current = columns;
+        return row < current.titles.length ? current.titles[row] : null;
+    }
+
+    /**
+     * @return the number of rows in use.
+     */
+    public int size() {
+        return size;
+    }
+
+    private void write(int row, Book book) {
+        Columns current = columns;
+        byte flags = IN_USE;
+        if (book.getIsAvailable() != null) {
+            flags |= HAS_AVAILABILITY;
+            if (book.getIsAvailable()) {
+                flags |= AVAILABLE;
+            }
+        }
+        if (book.getPublicationYear() != null) {
+            flags |= HAS_YEAR;
+            current.years[row] = book.getPublicationYear();
+        }
+        if (book.getVersion() != null) {
+            flags |= HAS_VERSION;
+            current.versions[row] = book.getVersion();
+        }
+        if (isObjectId(book.getId())) {
+            flags |= OBJECT_ID;
+            ByteBuffer id = ByteBuffer.wrap(new ObjectId(book.getId()).toByteArray());
+            current.idHigh[row] = id.getLong();
+            current.idLow[row] = id.getInt();
+            current.otherIds[row] = null;
+        } else {
+            current.otherIds[row] = book.getId();
+        }
+        current.titles[row] = book.getTitle();
+        current.isbns[row] = book.getIsbn();
+        current.authors[row] = authors.id(book.getAuthor());
+        current.genres[row] = genres.id(book.getGenre());
+        current.departments[row] = departments.id(book.getDepartment());
+        current.flags[row] = flags;
+    }
+
+    /**
+     * Reads a row without locking, the caller validates the result.
+     */
+    private Book read(int row) {
+        Columns current = columns;
+        if (row < 0 || row >= current.flags.length) {
+            return null;
+        }
+        byte flags = current.flags[row];
+        if ((flags & IN_USE) == 0) {
+            return null;
+        }
+        String id;
+        if ((flags & OBJECT_ID) != 0) {
+            id = new ObjectId(ByteBuffer.allocate(12).putLong(current.idHigh[row]).putInt(current.idLow[row]).array())
+                    .toHexString();
+        } else {
+            id = current.otherIds[row];
+        }
+        Book book = new Book(id, current.titles[row], current.isbns[row],
+                authors.value(current.authors[row]),
+                genres.value(current.genres[row]),
+                (flags & HAS_YEAR) != 0 ? current.years[row] : null,
+                departments.value(current.departments[row]),
+                (flags & HAS_AVAILABILITY) != 0 ? (flags & AVAILABLE) != 0 : null);
+        if ((flags & HAS_VERSION) != 0) {
+            book.setVersion(current.versions[row]);
+        }
+        return book;
+    }
+
+    /**
+     * @return true if the id is the lower case hex form of a Mongo ObjectId, which round trips through its bytes.
+     */
+    private static boolean isObjectId(String id) {
+        if (id == null || id.length() != 24) {
+            return false;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The column arrays, replaced as a whole when they grow so a reader always sees arrays of the same length.
+     */
+    private static final class Columns {
+        final String[] titles;
+        final String[] isbns;
+        final String[] otherIds;
+        final int[] authors;
+        final int[] genres;
+        final int[] departments;
+        final int[] years;
+        final long[] versions;
+        final long[] idHigh;
+        final int[] idLow;
+        final byte[] flags;
+
+        Columns(int capacity) {
+            this(new String[capacity], new String[capacity], new String[capacity], new int[capacity], new int[capacity],
+                    new int[capacity], new int[capacity], new long[capacity], new long[capacity], new int[capacity],
+                    new byte[capacity]);
+        }
+
+        private Columns(String[] titles, String[] isbns, String[] otherIds, int[] authors, int[] genres,
+                        int[] departments, int[] years, long[] versions, long[] idHigh, int[] idLow, byte[] flags) {
+            this.titles = titles;
+            this.isbns = isbns;
+            this.otherIds = otherIds;
+            this.authors = authors;
+            this.genres = genres;
+            this.departments = departments;
+            this.years = years;
+            this.versions = versions;
+            this.idHigh = idHigh;
+            this.idLow = idLow;
+            this.flags = flags;
+        }
+
+        Columns grow(int capacity) {
+            return new Columns(Arrays.copyOf(titles, capacity), Arrays.copyOf(isbns, capacity),
+                    Arrays.copyOf(otherIds, capacity), Arrays.copyOf(authors, capacity), Arrays.copyOf(genres, capacity),
+                    Arrays.copyOf(departments, capacity), Arrays.copyOf(years, capacity),
+                    Arrays.copyOf(versions, capacity), Arrays.copyOf(idHigh, capacity),
+                    Arrays.copyOf(idLow, capacity), Arrays.copyOf(flags, capacity));
+        }
+    }
+
+    /**
+     * Assigns a stable id to every distinct value, 0 standing for null. Values are never removed, there are only as
+     * many as there are distinct authors, genres or departments.
+     */
+    private static final class Dictionary {
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+        private volatile String[] values = new String[64];
+        private int next = 1;
+
+        int id(String value) {
+            if (value == null) {
+                return 0;
+            }
+            Integer id = ids.get(value);
+            if (id != null) {
+                return id;
+            }
+            if (next == values.length) {
+                values = Arrays.copyOf(values, next * 2);
+            }
+            values[next] = value; // readers only look it up once a row holding the id is published.
+            ids.put(value, next);
+            return next++;
+        }
+
+        String value(int id) {
+            String[] current = values;
+            return id > 0 && id < current.length ? current[id] : null;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * This package contains the representation of a Book in the library.
+ */
+package com.org.bansira.lbms.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
+import lombok.Data;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The subset of {@link Book} properties a listing should return, parsed from the {@code fields} request parameter.
+ * Only these properties are read from the DB; the others are left null and omitted from JSON responses.
+ * The ISBN is always included because the page cursor is built from it.
+ */
+@Data
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class BookFields {
+    public static final String SUMMARY_VIEW = "summary";
+
+    // response field name -> Book property name.
+    private static final Map<String, String> PROPERTIES = Map.of(
+            "id", "Id",
+            "title", "title",
+            "isbn", "isbn",
+            "author", "author",
+            "genre", "genre",
+            "publicationYear", "publicationYear",
+            "department", "department",
+            "isAvailable", "isAvailable");
+
+    /** What catalogue browsing needs: title, author, ISBN and availability. */
+    public static final BookFields SUMMARY = new BookFields(Set.of("title", "author", "isbn", "isAvailable"));
+
+    private final Set<String> properties;
+
+    /**
+     * @param fields {@value #SUMMARY_VIEW} or a comma separated list of response field names, e.g. "title,author".
+     * @return the properties to read.
+     * @throws IllegalArgumentException if a field name is unknown.
+     */
+    public static BookFields parse(String fields) {
+        if (SUMMARY_VIEW.equalsIgnoreCase(fields.trim())) {
+            return SUMMARY;
+        }
+        Set<String> properties = new HashSet<>();
+        properties.add("isbn");
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            String property = PROPERTIES.get(name);
+            if (property == null) {
+                throw new IllegalArgumentException("Unknown field " + name + ", expected one of " + PROPERTIES.keySet() + " or " + SUMMARY_VIEW);
+            }
+            properties.add(property);
+        }
+        return new BookFields(Set.copyOf(properties));
+    }
+
+    public boolean includes(String property) {
+        return properties.contains(property);
+    }
+
+    /**
+     * Copies the included properties of a book, for backends that cannot project while reading.
+     * @param book a fully populated book.
+     * @return a new book holding only the included properties.
+     */
+    public Book project(Book book) {
+        Book projected = new Book();
+        projected.setId(includes("Id") ? book.getId() : null);
+        projected.setTitle(includes("title") ? book.getTitle() : null);
+        projected.setIsbn(book.getIsbn());
+        projected.setAuthor(includes("author") ? book.getAuthor() : null);
+        projected.setGenre(includes("genre") ? book.getGenre() : null);
+        projected.setPublicationYear(includes("publicationYear") ? book.getPublicationYear() : null);
+        projected.setDepartment(includes("department") ? book.getDepartment() : null);
+        projected.setIsAvailable(includes("isAvailable") ? book.getIsAvailable() : null);
+        return projected;
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * This package contains all the domain objects of library management system.
+ */
+package com.org.bansira.lbms.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Objects;
+
+/**
+ * Selects the books a bulk job applies to. A book matches if it has every property that is set, null properties
+ * match any book.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookFilter {
+    private String department;
+    private String genre;
+    private String author;
+    private Boolean isAvailable;
+
+    /**
+     * @param book the book to be tested.
+     * @return true if the book has every property set on this filter.
+     */
+    public boolean matches(Book book) {
+        return (department == null || department.equals(book.getDepartment()))
+                && (genre == null || genre.equals(book.getGenre()))
+                && (author == null || author.equals(book.getAuthor()))
+                && (isAvailable == null || Objects.equals(isAvailable, book.getIsAvailable()));
+    }
+
+    /**
+     * @return true if no property is set, so the filter matches every book.
+     */
+    @JsonIgnore
+    public boolean isEmpty() {
+        return department == null && genre == null && author == null && isAvailable == null;
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * This package contains the representation of a Book in the library.
+ */
+package com.org.bansira.lbms.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A single page of books, ordered by ISBN for listings or by relevance for searches.
+ * The next page is fetched by passing {@code nextCursor} back as the {@code after} parameter.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookPage {
+    public static final int DEFAULT_SIZE = 100;
+    public static final int MAX_SIZE = 1000;
+
+    private List<Book> books;
+    private String nextCursor; // opaque position after the last book on this page, null when there are no more pages.
+
+    /**
+     * Caps a requested page size to the range the API allows.
+     * @param size the requested page size, may be null.
+     * @return the default size if none was requested, otherwise the size clamped to [1, MAX_SIZE].
+     */
+    public static int clampSize(Integer size) {
+        if (size == null) {
+            return DEFAULT_SIZE;
+        }
+        return Math.max(1, Math.min(size, MAX_SIZE));
+    }
+
+    /**
+     * Builds a page from a result fetched with one extra row, so we know whether a next page exists
+     * without issuing a count query.
+     * @param fetched books fetched with a limit of {@code size + 1}.
+     * @param size the requested page size.
+     * @return a page holding at most {@code size} books.
+     */
+    public static BookPage of(List<Book> fetched, int size) {
+        if (fetched.size() <= size) {
+            return new BookPage(fetched, null);
+        }
+        List<Book> books = fetched.subList(0, size);
+        return new BookPage(books, books.get(size - 1).getIsbn());
+    }
+}
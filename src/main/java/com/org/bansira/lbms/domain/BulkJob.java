@@ -0,0 +1,45 @@
+/**
+ * This package contains all the domain objects of library management system.
+ */
+package com.org.bansira.lbms.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Progress of a bulk delete or move of the books matching a filter, as it was when it was read.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkJob {
+    private String id;
+    private Type type;
+    private BookFilter filter;
+    private String targetDepartment; // only set when moving books.
+    private Status status;
+    private long estimatedTotal; // books in the department, or the catalogue, when the job started.
+    private long scanned; // books read so far, progress is scanned out of estimatedTotal.
+    private long matched; // books read so far that matched the filter.
+    private long processed; // books deleted or moved so far.
+    private Instant createdAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private String error; // why the job failed or stopped.
+
+    public enum Type {
+        DELETE,
+        MOVE
+    }
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        CANCELLED, // by request or by shutdown, the batches already applied are kept.
+        FAILED
+    }
+}
@@ -0,0 +1,26 @@
+/**
+ * This package contains the representation of a Book in the library.
+ */
+package com.org.bansira.lbms.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Result of ingesting a single book as part of a bulk request.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkOutcome {
+    private String isbn;
+    private Status status;
+
+    public enum Status {
+        INSERTED,
+        DUPLICATE, // a book with the same ISBN is already in the library or earlier in the request.
+        INVALID, // the book is missing its ISBN or title.
+        FAILED // the DB rejected the book for another reason, e.g. a document validation rule.
+    }
+}
@@ -0,0 +1,36 @@
+/**
+ * This package contains the representation of a Book in the library.
+ */
+package com.org.bansira.lbms.domain;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Summary of a bulk ingestion request with the outcome of every book it contained.
+ */
+@Data
+public class BulkResult {
+    private int inserted;
+    private int duplicates;
+    private int invalid;
+    private int failed;
+    private List<BulkOutcome> outcomes = new ArrayList<>();
+
+    /**
+     * Records the outcome of one book and updates the matching counter.
+     * @param isbn of the book, may be null for invalid books.
+     * @param status what happened to the book.
+     */
+    public void add(String isbn, BulkOutcome.Status status) {
+        outcomes.add(new BulkOutcome(isbn, status));
+        switch (status) {
+            case INSERTED -> inserted++;
+            case DUPLICATE -> duplicates++;
+            case INVALID -> invalid++;
+            case FAILED -> failed++;
+        }
+    }
+}
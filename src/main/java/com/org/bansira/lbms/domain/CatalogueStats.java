@@ -0,0 +1,34 @@
+/**
+ * This package contains all the domain objects of library management system.
+ */
+package com.org.bansira.lbms.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Totals and available counts of the whole catalogue, per department and per genre.
+ * Books without a department or genre are counted under the empty name.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CatalogueStats {
+    private long total;
+    private long available;
+    private Map<String, Counts> departments;
+    private Map<String, Counts> genres;
+    private Instant reconciledAt; // when the counts were last checked against the DB, null if never.
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Counts {
+        private long total;
+        private long available;
+    }
+}
@@ -0,0 +1,29 @@
+/**
+ * This package contains all the domain objects of library management system.
+ */
+package com.org.bansira.lbms.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Acknowledgement of a book queued to be written behind the request, and the outcome once it is written.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class QueuedWrite {
+    private String id; // null unless the book was queued.
+    private String isbn;
+    private Status status;
+
+    public enum Status {
+        QUEUED,
+        INSERTED,
+        DUPLICATE, // a book with the same ISBN is already in the library or waiting to be written.
+        FAILED, // the DB rejected the book or the whole batch, the book was not written.
+        REJECTED, // the queue was full or shutting down, nothing was queued.
+        INVALID // the book is missing its ISBN.
+    }
+}
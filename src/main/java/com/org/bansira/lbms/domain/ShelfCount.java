@@ -0,0 +1,21 @@
+/**
+ * This package contains all the domain objects of library management system.
+ */
+package com.org.bansira.lbms.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Number of books, and of available books, with one department and genre.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ShelfCount {
+    private String department;
+    private String genre;
+    private long total;
+    private long available;
+}
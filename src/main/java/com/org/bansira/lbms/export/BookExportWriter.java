@@ -0,0 +1,21 @@
+/**
+ * This package contains the bulk export formats of the library catalogue.
+ */
+package com.org.bansira.lbms.export;
+
+import com.org.bansira.lbms.domain.Book;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes books one at a time to an export stream. Closing the writer completes the format and closes the stream.
+ */
+public interface BookExportWriter extends Closeable {
+
+    /**
+     * Appends a book to the export.
+     * @param book the book to be written.
+     */
+    void write(Book book) throws IOException;
+}
@@ -0,0 +1,117 @@
+/**
+ * This package contains the bulk export formats of the library catalogue.
+ */
+package com.org.bansira.lbms.export;
+
+import com.org.bansira.lbms.domain.Book;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Reads books written by {@link ColumnarBookWriter}, one chunk at a time.
+ */
+public final class ColumnarBookReader {
+
+    private ColumnarBookReader() {
+    }
+
+    /**
+     * @param in the export, which is not closed.
+     * @param books receives every book in the order it was written.
+     * @return the number of books read.
+     * @throws IOException if the stream is not a columnar export or ends early.
+     */
+    public static long read(InputStream in, Consumer<Book> books) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+        byte[] magic = new byte[ColumnarBookWriter.MAGIC.length];
+        data.readFully(magic);
+        if (!Arrays.equals(magic, ColumnarBookWriter.MAGIC) || data.readUnsignedByte() != ColumnarBookWriter.VERSION) {
+            throw new IOException("Not a columnar book export");
+        }
+        String[] columns = new String[readVarint(data)];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = readString(data);
+        }
+        if (!Arrays.asList(columns).equals(ColumnarBookWriter.COLUMNS)) {
+            throw new IOException("Unsupported columns " + Arrays.toString(columns));
+        }
+        long count = 0;
+        int rows;
+        while ((rows = data.readInt()) > 0) {
+            String[] isbns = strings(data, rows);
+            String[] titles = strings(data, rows);
+            String[] authors = dictionary(data, rows);
+            String[] genres = dictionary(data, rows);
+            byte[] hasYear = bitmap(data, rows);
+            Integer[] years = new Integer[rows];
+            for (int i = 0; i < rows; i++) {
+                years[i] = bit(hasYear, i) ? data.readInt() : null;
+            }
+            String[] departments = dictionary(data, rows);
+            byte[] hasAvailability = bitmap(data, rows);
+            byte[] available = bitmap(data, rows);
+            for (int i = 0; i < rows; i++) {
+                books.accept(new Book(titles[i], isbns[i], authors[i], genres[i], years[i], departments[i],
+                        bit(hasAvailability, i) ? bit(available, i) : null));
+            }
+            count += rows;
+        }
+        return count;
+    }
+
+    private static String[] strings(DataInputStream data, int rows) throws IOException {
+        String[] values = new String[rows];
+        for (int i = 0; i < rows; i++) {
+            values[i] = readString(data);
+        }
+        return values;
+    }
+
+    private static String[] dictionary(DataInputStream data, int rows) throws IOException {
+        String[] entries = strings(data, readVarint(data));
+        String[] values = new String[rows];
+        for (int i = 0; i < rows; i++) {
+            int id = readVarint(data);
+            values[i] = id == 0 ? null : entries[id - 1];
+        }
+        return values;
+    }
+
+    private static byte[] bitmap(DataInputStream data, int rows) throws IOException {
+        byte[] bits = new byte[(rows + 7) / 8];
+        data.readFully(bits);
+        return bits;
+    }
+
+    private static boolean bit(byte[] bits, int row) {
+        return (bits[row / 8] & (1 << (row % 8))) != 0;
+    }
+
+    private static String readString(DataInputStream data) throws IOException {
+        int length = readVarint(data);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length - 1];
+        data.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int readVarint(DataInputStream data) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = data.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,164 @@
+/**
+ * This package contains the bulk export formats of the library catalogue.
+ */
+package com.org.bansira.lbms.export;
+
+import com.org.bansira.lbms.domain.Book;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Writes books in a compact columnar format, buffering at most {@link #CHUNK_SIZE} books at a time.
+ * <pre>
+ * file    = magic "LBMC" version:u8 columns:varint (name:string)* chunk* end:i32(0)
+ * chunk   = rows:i32 isbn title author genre publicationYear department isAvailable
+ * isbn, title          = string * rows
+ * author, genre, dept  = size:varint string * size, id:varint * rows   (id 0 is null, id n is the nth string)
+ * publicationYear      = present:bitmap, i32 for each present row
+ * isAvailable          = present:bitmap, value:bitmap
+ * string               = length + 1:varint, UTF-8 bytes                (length 0 is null)
+ * bitmap               = (rows + 7) / 8 bytes, row i is bit i % 8 of byte i / 8
+ * </pre>
+ * Integers are big endian and varints are unsigned LEB128. Dictionaries are local to their chunk, so memory use does
+ * not grow with the catalogue. {@link ColumnarBookReader} reads the format back.
+ */
+public class ColumnarBookWriter implements BookExportWriter {
+
+    static final byte[] MAGIC = {'L', 'B', 'M', 'C'};
+    static final int VERSION = 1;
+    static final int CHUNK_SIZE = 8192;
+    static final List<String> COLUMNS = List.of("isbn", "title", "author", "genre", "publicationYear", "department",
+            "isAvailable");
+
+    private final DataOutputStream out;
+    private final Book[] chunk = new Book[CHUNK_SIZE];
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private final List<String> entries = new ArrayList<>();
+    private final int[] ids = new int[CHUNK_SIZE];
+    private int rows;
+    private boolean started;
+
+    public ColumnarBookWriter(OutputStream out) {
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+    }
+
+    @Override
+    public void write(Book book) throws IOException {
+        chunk[rows++] = book;
+        if (rows == CHUNK_SIZE) {
+            flushChunk();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flushChunk();
+        header();
+        out.writeInt(0);
+        out.close();
+    }
+
+    private void header() throws IOException {
+        if (started) {
+            return;
+        }
+        started = true;
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+        writeVarint(COLUMNS.size());
+        for (String column : COLUMNS) {
+            writeString(column);
+        }
+    }
+
+    private void flushChunk() throws IOException {
+        if (rows == 0) {
+            return;
+        }
+        header();
+        out.writeInt(rows);
+        for (int i = 0; i < rows; i++) {
+            writeString(chunk[i].getIsbn());
+        }
+        for (int i = 0; i < rows; i++) {
+            writeString(chunk[i].getTitle());
+        }
+        dictionaryColumn(Book::getAuthor);
+        dictionaryColumn(Book::getGenre);
+        writeBitmap(book -> book.getPublicationYear() != null);
+        for (int i = 0; i < rows; i++) {
+            if (chunk[i].getPublicationYear() != null) {
+                out.writeInt(chunk[i].getPublicationYear());
+            }
+        }
+        dictionaryColumn(Book::getDepartment);
+        writeBitmap(book -> book.getIsAvailable() != null);
+        writeBitmap(book -> Boolean.TRUE.equals(book.getIsAvailable()));
+        Arrays.fill(chunk, 0, rows, null);
+        rows = 0;
+    }
+
+    private void dictionaryColumn(Function<Book, String> property) throws IOException {
+        dictionary.clear();
+        entries.clear();
+        for (int i = 0; i < rows; i++) {
+            String value = property.apply(chunk[i]);
+            ids[i] = value == null ? 0 : dictionary.computeIfAbsent(value, key -> {
+                entries.add(key);
+                return entries.size();
+            });
+        }
+        writeVarint(entries.size());
+        for (String entry : entries) {
+            writeString(entry);
+        }
+        for (int i = 0; i < rows; i++) {
+            writeVarint(ids[i]);
+        }
+    }
+
+    private void writeBitmap(Predicate<Book> bit) throws IOException {
+        int current = 0;
+        for (int i = 0; i < rows; i++) {
+            if (bit.test(chunk[i])) {
+                current |= 1 << (i % 8);
+            }
+            if (i % 8 == 7) {
+                out.writeByte(current);
+                current = 0;
+            }
+        }
+        if (rows % 8 != 0) {
+            out.writeByte(current);
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            writeVarint(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(bytes.length + 1);
+        out.write(bytes);
+    }
+
+    private void writeVarint(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * This package contains the bulk export formats of the library catalogue.
+ */
+package com.org.bansira.lbms.export;
+
+import com.org.bansira.lbms.domain.Book;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes books as CSV with a header row, in the layout the CLI batch loader reads back.
+ * Fields containing a comma, quote or line break are quoted and quotes are doubled. Missing values are left empty.
+ */
+public class CsvBookWriter implements BookExportWriter {
+
+    public static final String HEADER = "isbn,title,author,genre,publicationYear,department,isAvailable";
+
+    private final Writer out;
+
+    public CsvBookWriter(OutputStream out) {
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+        try {
+            this.out.write(HEADER);
+            this.out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void write(Book book) throws IOException {
+        field(book.getIsbn());
+        out.write(',');
+        field(book.getTitle());
+        out.write(',');
+        field(book.getAuthor());
+        out.write(',');
+        field(book.getGenre());
+        out.write(',');
+        if (book.getPublicationYear() != null) {
+            out.write(Integer.toString(book.getPublicationYear()));
+        }
+        out.write(',');
+        field(book.getDepartment());
+        out.write(',');
+        if (book.getIsAvailable() != null) {
+            out.write(book.getIsAvailable().toString());
+        }
+        out.write('\n');
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void field(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * This package contains the bulk export formats of the library catalogue.
+ */
+package com.org.bansira.lbms.export;
+
+import org.springframework.http.MediaType;
+
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Formats the catalogue can be exported in.
+ */
+public enum ExportFormat {
+    CSV(new MediaType("text", "csv"), "csv", CsvBookWriter::new),
+    COLUMNAR(new MediaType("application", "x-lbms-columnar"), "lbmc", ColumnarBookWriter::new);
+
+    private final MediaType mediaType;
+    private final String extension;
+    private final Function<OutputStream, BookExportWriter> writer;
+
+    ExportFormat(MediaType mediaType, String extension, Function<OutputStream, BookExportWriter> writer) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+        this.writer = writer;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * @param out the stream the export is written to, closed with the writer.
+     * @return a writer of this format.
+     */
+    public BookExportWriter open(OutputStream out) {
+        return writer.apply(out);
+    }
+
+    /**
+     * @param format the name of a format, e.g. "csv" or "columnar".
+     * @return the format.
+     * @throws IllegalArgumentException if the format is unknown.
+     */
+    public static ExportFormat parse(String format) {
+        try {
+            return valueOf(format.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown export format " + format + ", expected csv or columnar");
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * This package contains the metrics and diagnostics published by the library.
+ */
+package com.org.bansira.lbms.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Endpoint level metrics that are not visible from the HTTP status alone:
+ * {@code lbms.api.results} is the number of books returned per request and
+ * {@code lbms.api.outcomes} counts conflicts and lookups that found nothing, both tagged by endpoint.
+ */
+@Component
+public class LibraryMetrics {
+
+    public static final String CONFLICT = "conflict";
+    public static final String NOT_FOUND = "not_found";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * @param endpoint name of the API endpoint.
+     * @param count number of books in the response.
+     */
+    public void recordResults(String endpoint, long count) {
+        DistributionSummary.builder("lbms.api.results")
+                .baseUnit("books")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry)
+                .record(count);
+    }
+
+    /**
+     * @param endpoint name of the API endpoint.
+     * @param outcome {@link #CONFLICT} or {@link #NOT_FOUND}.
+     */
+    public void recordOutcome(String endpoint, String outcome) {
+        Counter.builder("lbms.api.outcomes")
+                .tag("endpoint", endpoint)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * This package contains the metrics and diagnostics published by the library.
+ */
+package com.org.bansira.lbms.metrics;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logs every Mongo command that takes longer than a threshold, with a summary of the command and its duration,
+ * and counts them as {@code lbms.mongodb.slow.commands}.
+ * The command document is only available when a command starts, and is released once the listener returns, so
+ * only its name, the collection, the filter fields and the pipeline stages are kept until it completes. Values are
+ * never read, which keeps starting a command cheap and keeps the books' data out of the log.
+ */
+public class SlowCommandLogger implements CommandListener {
+
+    private static final Logger log = LoggerFactory.getLogger(SlowCommandLogger.class);
+
+    private static final int MAX_LOGGED_COMMAND_LENGTH = 2000;
+
+    private final long thresholdNanos;
+    private final MeterRegistry meterRegistry;
+    private final Map<Integer, Started> inFlight = new ConcurrentHashMap<>();
+
+    private record Started(String commandName, String summary, long startedMillis) {
+    }
+
+    public SlowCommandLogger(Duration threshold, MeterRegistry meterRegistry) {
+        this.thresholdNanos = threshold.toNanos();
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        String commandName = event.getCommandName();
+        inFlight.put(event.getRequestId(), new Started(commandName, summary(commandName, event.getCommand()), System.currentTimeMillis()));
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        completed(event.getRequestId(), event.getDatabaseName(), event.getCommandName(), event.getElapsedTime(TimeUnit.NANOSECONDS), "succeeded");
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        completed(event.getRequestId(), event.getDatabaseName(), event.getCommandName(), event.getElapsedTime(TimeUnit.NANOSECONDS), "failed");
+    }
+
+    private void completed(int requestId, String database, String commandName, long elapsedNanos, String outcome) {
+        Started started = inFlight.remove(requestId);
+        if (elapsedNanos < thresholdNanos) {
+            return;
+        }
+        Counter.builder("lbms.mongodb.slow.commands")
+                .tag("command", commandName)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+        if (log.isWarnEnabled()) {
+            String summary = started == null ? "" : started.summary();
+            if (summary.length() > MAX_LOGGED_COMMAND_LENGTH) {
+                summary = summary.substring(0, MAX_LOGGED_COMMAND_LENGTH) + "...";
+            }
+            log.warn("Slow Mongo command {} on {} {} after {} ms, started at {}: {}", commandName, database, outcome,
+                    elapsedNanos / 1_000_000, started == null ? "?" : Instant.ofEpochMilli(started.startedMillis()), summary);
+        }
+    }
+
+    /**
+     * @return the collection the command runs on, the fields its filter tests and its pipeline stages, e.g.
+     * {@code books filter [author, isAvailable]}.
+     */
+    static String summary(String commandName, BsonDocument command) {
+        StringBuilder summary = new StringBuilder();
+        BsonValue collection = command.get(commandName);
+        if (collection != null && collection.isString()) {
+            summary.append(collection.asString().getValue());
+        }
+        BsonValue filter = command.get("filter");
+        if (filter != null && filter.isDocument()) {
+            summary.append(" filter ").append(filter.asDocument().keySet());
+        }
+        BsonValue pipeline = command.get("pipeline");
+        if (pipeline != null && pipeline.isArray()) {
+            summary.append(" pipeline ").append(pipeline.asArray().stream()
+                    .filter(stage -> stage.isDocument() && !stage.asDocument().isEmpty())
+                    .map(stage -> stage.asDocument().getFirstKey())
+                    .toList());
+        }
+        return summary.toString();
+    }
+}
@@ -0,0 +1,454 @@
+/**
+ * This package contains the in-memory full text search over the library catalogue.
+ */
+package com.org.bansira.lbms.search;
+
+import com.org.bansira.lbms.data.BookRepository;
+import com.org.bansira.lbms.domain.Book;
+import com.org.bansira.lbms.domain.BookColumns;
+import com.org.bansira.lbms.domain.BookPage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Inverted index over book titles and authors supporting prefix and typo tolerant search.
+ * Every term is indexed with its exact postings, its prefixes of {@value #MIN_PREFIX} to {@value #MAX_PREFIX}
+ * characters, and its single character deletions which are used to find terms one edit away from a query term.
+ * The index is rebuilt from the DB at startup and kept current by the service layer on every write. A rebuild fills
+ * a new index without holding the lock, then swaps it in after replaying the writes made while it was read.
+ * The indexed books are held in {@link BookColumns} and only materialized for the page of results returned.
+ */
+@Component
+public class BookSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(BookSearchIndex.class);
+
+    static final int MIN_PREFIX = 2;
+    static final int MAX_PREFIX = 8;
+    static final int MIN_FUZZY_LENGTH = 4; // shorter terms have too many neighbours one edit away.
+
+    private static final int EXACT_SCORE = 3;
+    private static final int PREFIX_SCORE = 2;
+    private static final int FUZZY_SCORE = 1;
+    private static final int TITLE_WEIGHT = 2;
+    private static final int AUTHOR_WEIGHT = 1;
+
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock rebuildLock = new ReentrantLock(); // one rebuild at a time.
+    private Postings current = new Postings(); // guarded by lock.
+    private List<Consumer<Postings>> pendingWrites; // writes made during a rebuild, guarded by lock.
+
+    /**
+     * Rebuilds the index from every book in the DB once the application has started.
+     * Searches keep being served from the previous index until the new one is complete.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            long start = System.nanoTime();
+            Postings rebuilt = new Postings();
+            lock.writeLock().lock();
+            try {
+                pendingWrites = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            try (Stream<Book> books = bookRepository.streamAllBy()) {
+                books.forEach(rebuilt::index);
+            } catch (RuntimeException | Error e) {
+                lock.writeLock().lock();
+                try {
+                    pendingWrites = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                throw e;
+            }
+            lock.writeLock().lock();
+            try {
+                // the DB may have been read before or after each of these writes, replaying them gives the latest state.
+                pendingWrites.forEach(write -> write.accept(rebuilt));
+                pendingWrites = null;
+                current = rebuilt;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Indexed {} books for search in {} ms", size(), (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Adds a book to the index, replacing any earlier version with the same ISBN.
+     * @param book the book to be indexed.
+     */
+    public void index(Book book) {
+        if (book.getIsbn() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            current.index(book);
+            if (pendingWrites != null) {
+                pendingWrites.add(postings -> postings.index(book));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a book from the index.
+     * @param isbn is the unique id of the book to be removed.
+     * @return the removed book, or null if it was not indexed.
+     */
+    public Book remove(String isbn) {
+        lock.writeLock().lock();
+        try {
+            if (pendingWrites != null) {
+                pendingWrites.add(postings -> postings.remove(isbn));
+            }
+            return current.remove(isbn);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of indexed books.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return current.rows.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds books whose title or author matches every term of the query, best matches first.
+     * A term matches a word exactly, as a prefix, or with a single typo. Title matches rank above author matches.
+     * Only the books of the requested page are ranked in order, so a page costs the same however many books match.
+     * The cursor is the rank of the last book returned, so books added or removed meanwhile do not shift later pages.
+     * @param query free text typed by the patron.
+     * @param after cursor returned with the previous page, null for the first page.
+     * @param size the requested page size, capped at {@link BookPage#MAX_SIZE}.
+     * @return a page of matching books and the cursor for the next page.
+     * @throws IllegalArgumentException if the cursor was not returned by this method.
+     */
+    public BookPage search(String query, String after, Integer size) {
+        int pageSize = BookPage.clampSize(size);
+        Hit last = after == null ? null : Hit.parse(after);
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            return new BookPage(List.of(), null);
+        }
+        lock.readLock().lock();
+        try {
+            Postings postings = current;
+            Map<String, Integer> scores = null;
+            for (String term : terms) {
+                Map<String, Integer> termScores = new HashMap<>();
+                postings.titles.score(term, termScores);
+                postings.authors.score(term, termScores);
+                scores = scores == null ? termScores : intersect(scores, termScores);
+                if (scores.isEmpty()) {
+                    return new BookPage(List.of(), null);
+                }
+            }
+            // the best pageSize + 1 hits after the cursor, the worst of them on top; the extra one tells if there is a next page.
+            PriorityQueue<Hit> best = new PriorityQueue<>(pageSize + 2, Hit.RANKING.reversed());
+            for (Map.Entry<String, Integer> scored : scores.entrySet()) {
+                Hit hit = new Hit(scored.getValue(), postings.title(scored.getKey()), scored.getKey());
+                if (last != null && Hit.RANKING.compare(hit, last) <= 0) {
+                    continue;
+                }
+                if (best.size() <= pageSize) {
+                    best.add(hit);
+                } else if (Hit.RANKING.compare(hit, best.peek()) < 0) {
+                    best.poll();
+                    best.add(hit);
+                }
+            }
+            List<Hit> ranked = new ArrayList<>(best);
+            ranked.sort(Hit.RANKING);
+            boolean more = ranked.size() > pageSize;
+            List<Book> books = new ArrayList<>(Math.min(ranked.size(), pageSize));
+            for (Hit hit : ranked.subList(0, Math.min(ranked.size(), pageSize))) {
+                books.add(postings.document(hit.isbn()));
+            }
+            return new BookPage(books, more ? ranked.get(pageSize - 1).cursor() : null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Splits text into lower case terms with accents removed.
+     * @param text the text to be split, may be null.
+     * @return the terms in order of appearance.
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String folded = COMBINING_MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFKD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        List<String> terms = new ArrayList<>();
+        for (String term : NON_ALPHANUMERIC.split(folded)) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    private static Map<String, Integer> intersect(Map<String, Integer> left, Map<String, Integer> right) {
+        Map<String, Integer> smaller = left.size() <= right.size() ? left : right;
+        Map<String, Integer> larger = smaller == left ? right : left;
+        Map<String, Integer> result = new HashMap<>();
+        smaller.forEach((isbn, score) -> {
+            Integer other = larger.get(isbn);
+            if (other != null) {
+                result.put(isbn, score + other);
+            }
+        });
+        return result;
+    }
+
+    private static List<String> deletions(String term) {
+        List<String> variants = new ArrayList<>(term.length());
+        for (int i = 0; i < term.length(); i++) {
+            variants.add(term.substring(0, i) + term.substring(i + 1));
+        }
+        return variants;
+    }
+
+    private static void addAll(Set<String> target, Set<String> source) {
+        if (source != null) {
+            target.addAll(source);
+        }
+    }
+
+    private static void removePosting(Map<String, Set<String>> postings, String key, String value) {
+        Set<String> values = postings.get(key);
+        if (values != null && values.remove(value) && values.isEmpty()) {
+            postings.remove(key);
+        }
+    }
+
+    private static Set<String> prefixesOf(Set<String> terms) {
+        Set<String> prefixes = new HashSet<>();
+        for (String term : terms) {
+            for (int length = MIN_PREFIX; length < term.length() && length <= MAX_PREFIX; length++) {
+                prefixes.add(term.substring(0, length));
+            }
+        }
+        return prefixes;
+    }
+
+    /**
+     * A search hit in ranking order: best score first, then by title and ISBN so the order is total and stable.
+     * @param score the summed score of every query term.
+     * @param title the title of the book, may be null.
+     * @param isbn the ISBN of the book.
+     */
+    record Hit(int score, String title, String isbn) {
+        static final Comparator<Hit> RANKING = Comparator.comparingInt((Hit hit) -> -hit.score)
+                .thenComparing(Hit::title, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(Hit::isbn);
+
+        /**
+         * @return an opaque cursor holding this hit, URL safe.
+         */
+        String cursor() {
+            String position = score + "\n" + isbn + (title == null ? "" : "\n" + title);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * @param cursor returned by {@link #cursor()}.
+         * @return the hit held by the cursor.
+         * @throws IllegalArgumentException if the cursor is malformed.
+         */
+        static Hit parse(String cursor) {
+            try {
+                String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\n", 3);
+                return new Hit(Integer.parseInt(position[0]), position.length > 2 ? position[2] : null, position[1]);
+            } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Malformed search cursor " + cursor);
+            }
+        }
+    }
+
+    /**
+     * The indexed books and the postings of every field. Guarded by the lock of the enclosing index once it is current.
+     */
+    private static class Postings {
+        private final BookColumns documents = new BookColumns();
+        private final Map<String, Integer> rows = new HashMap<>(); // isbn -> row in documents
+        private final FieldIndex titles = new FieldIndex(Book::getTitle, TITLE_WEIGHT, this::document);
+        private final FieldIndex authors = new FieldIndex(Book::getAuthor, AUTHOR_WEIGHT, this::document);
+
+        void index(Book book) {
+            Integer row = rows.get(book.getIsbn());
+            if (row == null) {
+                rows.put(book.getIsbn(), documents.insert(book));
+            } else {
+                Book previous = documents.get(row);
+                documents.update(row, book);
+                titles.remove(previous);
+                authors.remove(previous);
+            }
+            titles.add(book);
+            authors.add(book);
+        }
+
+        Book remove(String isbn) {
+            Integer row = rows.remove(isbn);
+            if (row == null) {
+                return null;
+            }
+            Book previous = documents.get(row);
+            documents.delete(row);
+            titles.remove(previous);
+            authors.remove(previous);
+            return previous;
+        }
+
+        Book document(String isbn) {
+            return documents.get(rows.get(isbn));
+        }
+
+        String title(String isbn) {
+            return documents.title(rows.get(isbn));
+        }
+    }
+
+    /**
+     * Postings of a single field.
+     */
+    private static class FieldIndex {
+        private final Function<Book, String> text;
+        private final int weight;
+        private final Function<String, Book> documents; // isbn -> indexed book
+        private final Map<String, Set<String>> exact = new HashMap<>(); // term -> isbns
+        private final Map<String, Set<String>> prefixes = new HashMap<>(); // prefix -> isbns
+        private final Map<String, Set<String>> neighbours = new HashMap<>(); // term with one character deleted -> terms
+
+        FieldIndex(Function<Book, String> text, int weight, Function<String, Book> documents) {
+            this.text = text;
+            this.weight = weight;
+            this.documents = documents;
+        }
+
+        void add(Book book) {
+            String isbn = book.getIsbn();
+            Set<String> terms = new HashSet<>(tokenize(text.apply(book)));
+            for (String term : terms) {
+                Set<String> postings = exact.computeIfAbsent(term, key -> new HashSet<>());
+                if (postings.isEmpty() && term.length() >= MIN_FUZZY_LENGTH) {
+                    for (String variant : deletions(term)) {
+                        neighbours.computeIfAbsent(variant, key -> new HashSet<>()).add(term);
+                    }
+                }
+                postings.add(isbn);
+            }
+            for (String prefix : prefixesOf(terms)) {
+                prefixes.computeIfAbsent(prefix, key -> new HashSet<>()).add(isbn);
+            }
+        }
+
+        void remove(Book book) {
+            String isbn = book.getIsbn();
+            Set<String> terms = new HashSet<>(tokenize(text.apply(book)));
+            for (String term : terms) {
+                Set<String> postings = exact.get(term);
+                if (postings != null && postings.remove(isbn) && postings.isEmpty()) {
+                    exact.remove(term);
+                    if (term.length() >= MIN_FUZZY_LENGTH) {
+                        for (String variant : deletions(term)) {
+                            removePosting(neighbours, variant, term);
+                        }
+                    }
+                }
+            }
+            for (String prefix : prefixesOf(terms)) {
+                removePosting(prefixes, prefix, isbn);
+            }
+        }
+
+        /**
+         * Adds the best score of this field for a query term to every matching book.
+         */
+        void score(String term, Map<String, Integer> scores) {
+            Set<String> fuzzyTerms = new HashSet<>();
+            if (term.length() >= MIN_FUZZY_LENGTH) {
+                addAll(fuzzyTerms, neighbours.get(term)); // the query is missing a character.
+                for (String variant : deletions(term)) {
+                    if (exact.containsKey(variant)) {
+                        fuzzyTerms.add(variant); // the query has an extra character.
+                    }
+                    addAll(fuzzyTerms, neighbours.get(variant)); // the query has a wrong character.
+                }
+            }
+            for (String fuzzyTerm : fuzzyTerms) {
+                award(exact.get(fuzzyTerm), FUZZY_SCORE, scores);
+            }
+            if (term.length() <= MAX_PREFIX) {
+                award(prefixes.get(term), PREFIX_SCORE, scores);
+            } else {
+                // prefixes are only indexed up to MAX_PREFIX characters, longer ones are checked against the text.
+                Set<String> candidates = prefixes.get(term.substring(0, MAX_PREFIX));
+                if (candidates != null) {
+                    Set<String> matches = new HashSet<>();
+                    for (String isbn : candidates) {
+                        for (String word : tokenize(text.apply(documents.apply(isbn)))) {
+                            if (word.length() > term.length() && word.startsWith(term)) {
+                                matches.add(isbn);
+                                break;
+                            }
+                        }
+                    }
+                    award(matches, PREFIX_SCORE, scores);
+                }
+            }
+            award(exact.get(term), EXACT_SCORE, scores);
+        }
+
+        private void award(Set<String> isbns, int score, Map<String, Integer> scores) {
+            if (isbns == null) {
+                return;
+            }
+            int weighted = score * weight;
+            for (String isbn : isbns) {
+                scores.merge(isbn, weighted, Math::max);
+            }
+        }
+    }
+}
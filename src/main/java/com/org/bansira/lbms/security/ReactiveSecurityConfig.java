@@ -0,0 +1,30 @@
+/**
+ * This package contains web security configuration of the APIs.
+ */
+package com.org.bansira.lbms.security;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+
+/**
+ * Same rules as {@link SecurityConfig} for the reactive profile.
+ */
+@Configuration
+@Profile("reactive")
+@EnableWebFluxSecurity
+public class ReactiveSecurityConfig {
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
+        http
+                .authorizeExchange(exchanges ->
+                        exchanges.anyExchange().permitAll()  // Allow all requests.
+                )
+                .csrf(ServerHttpSecurity.CsrfSpec::disable);  // disabled csrf for testing APIs through postman.
+
+        return http.build();
+    }
+}
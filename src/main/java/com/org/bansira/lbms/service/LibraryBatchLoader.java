@@ -0,0 +1,222 @@
+/**
+ * This package contains service layer implementations of Library APIs.
+ */
+package com.org.bansira.lbms.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.org.bansira.lbms.domain.Book;
+import com.org.bansira.lbms.domain.BulkResult;
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Loads a file of books into the library for the CLI, without going through the interactive prompts.
+ * The file is either newline delimited JSON, one book per line, or CSV (by its {@code .csv} extension) with a
+ * header row naming the book fields, e.g. {@code isbn,title,author,genre,publicationYear,department,isAvailable}.
+ * A record may carry an {@code action} of {@code add} (the default) or {@code remove}, removals only need the ISBN.
+ * The file is streamed, adds are sent to the bulk insert in chunks of {@code lbms.cli.batch-chunk-size} books and
+ * progress is printed after every chunk. Records are applied in file order.
+ */
+@Service
+public class LibraryBatchLoader {
+
+    private static final String ACTION = "action";
+
+    @Autowired
+    private LibraryService libraryService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${lbms.cli.batch-chunk-size:1000}")
+    private int chunkSize;
+
+    /**
+     * Applies every record of the file.
+     * @param file NDJSON or CSV file of books.
+     * @param out where progress and the summary are printed.
+     * @return the counts of the whole file.
+     */
+    public Report load(Path file, PrintStream out) throws IOException {
+        Report report = new Report(System.nanoTime());
+        boolean csv = file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv");
+        List<Book> chunk = new ArrayList<>(chunkSize);
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String[] header = csv ? parseCsv(reader.readLine()) : null;
+            long line = csv ? 1 : 0;
+            String text;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                long first = line;
+                String next;
+                while (csv && openQuote(text) && (next = reader.readLine()) != null) {
+                    line++;
+                    text += "\n" + next; // a quoted field spanning lines, e.g. a title with a line break.
+                }
+                if (text.isBlank()) {
+                    continue;
+                }
+                String action;
+                Book book;
+                try {
+                    ObjectNode record = csv ? csvRecord(header, parseCsv(text)) : (ObjectNode) objectMapper.readTree(text);
+                    action = record.has(ACTION) ? record.remove(ACTION).asText() : "add";
+                    book = objectMapper.treeToValue(record, Book.class);
+                } catch (JsonProcessingException | ClassCastException | IllegalArgumentException e) {
+                    out.println("Skipping malformed record on line " + first);
+                    report.invalid++;
+                    continue;
+                }
+                if (book.getIsbn() == null || book.getIsbn().isBlank()) {
+                    out.println("Skipping record without an ISBN on line " + first);
+                    report.invalid++;
+                } else if (action.equalsIgnoreCase("remove")) {
+                    flush(chunk, report, out); // keeps removals after the adds that precede them.
+                    Long removed = libraryService.removeBook(book.getIsbn());
+                    if (removed != null && removed > 0) {
+                        report.removed++;
+                    } else {
+                        report.missing++;
+                    }
+                } else if (action.equalsIgnoreCase("add")) {
+                    chunk.add(book);
+                    if (chunk.size() == chunkSize) {
+                        flush(chunk, report, out);
+                    }
+                } else {
+                    out.println("Skipping unknown action " + action + " on line " + first);
+                    report.invalid++;
+                }
+            }
+        }
+        flush(chunk, report, out);
+        out.println("Done: " + report);
+        return report;
+    }
+
+    private void flush(List<Book> chunk, Report report, PrintStream out) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        BulkResult result = libraryService.addBooks(chunk.iterator());
+        report.inserted += result.getInserted();
+        report.duplicates += result.getDuplicates();
+        report.invalid += result.getInvalid();
+        report.failed += result.getFailed();
+        chunk.clear();
+        out.println(report);
+    }
+
+    private ObjectNode csvRecord(String[] header, String[] values) {
+        if (values.length > header.length) {
+            throw new IllegalArgumentException("More values than columns");
+        }
+        ObjectNode record = objectMapper.createObjectNode();
+        for (int i = 0; i < values.length; i++) {
+            if (!values[i].isEmpty()) {
+                record.put(header[i].trim(), values[i]); // Jackson coerces the text of numeric and boolean fields.
+            }
+        }
+        return record;
+    }
+
+    /**
+     * @return true if the text ends inside a quoted field, so the record goes on with the next line.
+     */
+    static boolean openQuote(String text) {
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '"') {
+                quoted = !quoted; // a doubled quote flips twice.
+            }
+        }
+        return quoted;
+    }
+
+    /**
+     * Splits one CSV record, fields may be quoted with {@code "} and quotes escaped by doubling them.
+     * Quoted fields may hold line breaks, which are read back as {@code \n}.
+     */
+    static String[] parseCsv(String line) {
+        if (line == null) {
+            throw new IllegalArgumentException("Missing CSV header");
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quote");
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
+    }
+
+    /**
+     * Running counts of a batch load.
+     */
+    @Getter
+    public static class Report {
+        @Getter(AccessLevel.NONE)
+        private final long start;
+        private long inserted;
+        private long duplicates;
+        private long invalid;
+        private long failed; // rejected by the DB for another reason than a duplicate ISBN.
+        private long removed;
+        private long missing; // removals of ISBNs that were not in the library.
+
+        Report(long start) {
+            this.start = start;
+        }
+
+        /**
+         * @return the records applied so far, including skipped ones.
+         */
+        public long getProcessed() {
+            return inserted + duplicates + invalid + failed + removed + missing;
+        }
+
+        @Override
+        public String toString() {
+            double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+            return String.format(Locale.ROOT,
+                    "%d records in %.1f s (%.0f records/s): %d inserted, %d duplicates, %d invalid, %d failed, %d removed, %d not found",
+                    getProcessed(), seconds, getProcessed() / seconds, inserted, duplicates, invalid, failed, removed, missing);
+        }
+    }
+}
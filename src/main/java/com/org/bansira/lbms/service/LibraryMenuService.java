@@ -4,34 +4,84 @@
 package com.org.bansira.lbms.service;
 
 import com.org.bansira.lbms.domain.Book;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.InputMismatchException;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Scanner;
 
 /**
  * Interactive CLI Menu for Library Management
+ * The menu runs on its own thread so it never holds up startup, and ends quietly when stdin is closed.
+ * With {@code lbms.cli.batch-file} set the file is loaded by {@link LibraryBatchLoader} instead of showing the menu,
+ * and {@code lbms.cli.exit-after-batch=true} stops the application once it is loaded.
+ * Set {@code lbms.cli.enabled=false} to run without the CLI.
  */
 @Service
+@ConditionalOnProperty(name = "lbms.cli.enabled", havingValue = "true", matchIfMissing = true)
 public class LibraryMenuService implements CommandLineRunner {
 
+    private static final Logger log = LoggerFactory.getLogger(LibraryMenuService.class);
+
     @Autowired
     private LibraryService libraryService;
 
+    @Autowired
+    private LibraryBatchLoader libraryBatchLoader;
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    @Value("${lbms.cli.batch-file:}")
+    private String batchFile;
+
+    @Value("${lbms.cli.exit-after-batch:false}")
+    private boolean exitAfterBatch;
+
     private Scanner scanner = new Scanner(System.in);
 
     @Override
     public void run(String... args) {
+        Thread cli = new Thread(batchFile.isBlank() ? this::menu : this::batch, "library-cli");
+        cli.setDaemon(true); // the web server keeps the application running.
+        cli.start();
+    }
+
+    private void batch() {
+        boolean loaded = loadBooks(batchFile.trim());
+        if (exitAfterBatch) {
+            System.exit(SpringApplication.exit(context, () -> loaded ? 0 : 1));
+        }
+    }
+
+    private void menu() {
         boolean exit = false;
 
         while (!exit) {
             System.out.println();
             showMenu();
-            int choice = scanner.nextInt();
-            scanner.nextLine(); // consume newline
+            int choice;
+            try {
+                choice = scanner.nextInt();
+                scanner.nextLine(); // consume newline
+            } catch (InputMismatchException e) {
+                scanner.nextLine(); // discard the invalid input.
+                choice = 0;
+            } catch (NoSuchElementException e) {
+                return; // stdin was closed, e.g. when running in the background.
+            }
 
             switch (choice) {
                 case 1 -> addBook();
@@ -42,6 +92,7 @@ public class LibraryMenuService implements CommandLineRunner {
                 case 6 -> listAllBooks();
                 case 7 -> listAvailableBooks();
                 case 8 -> exit = true;
+                case 9 -> loadBooks();
                 default -> System.out.println("Invalid choice. Please try again.");
             }
         }
@@ -57,6 +108,7 @@ public class LibraryMenuService implements CommandLineRunner {
         System.out.println("6. List All Books");
         System.out.println("7. List Available Books");
         System.out.println("8. Exit");
+        System.out.println("9. Load Books from File");
         System.out.print("Enter your choice: ");
     }
 
@@ -66,6 +118,10 @@ public class LibraryMenuService implements CommandLineRunner {
         String departmentId = scanner.nextLine();
         System.out.print("Enter book ISBN: ");
         String isbn = scanner.nextLine();
+        if (isbn.isBlank()) {
+            System.out.println("Book is missing its ISBN.");
+            return;
+        }
         System.out.print("Enter book title: ");
         String title = scanner.nextLine();
         System.out.print("Enter book author: ");
@@ -128,4 +184,19 @@ public class LibraryMenuService implements CommandLineRunner {
         Optional<List<Book>> books = libraryService.listAvailableBooks();
         books.get().forEach(System.out::println);
     }
+
+    private void loadBooks() {
+        System.out.print("Enter path of the CSV or NDJSON file: ");
+        loadBooks(scanner.nextLine().trim());
+    }
+
+    private boolean loadBooks(String file) {
+        try {
+            libraryBatchLoader.load(Path.of(file), System.out);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.error("Could not load books from {}", file, e);
+            return false;
+        }
+    }
 }
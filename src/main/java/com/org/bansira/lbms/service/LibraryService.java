@@ -3,14 +3,32 @@
  */
 package com.org.bansira.lbms.service;
 
+import com.org.bansira.lbms.domain.AvailabilityChange;
 import com.org.bansira.lbms.domain.Book;
+import com.org.bansira.lbms.domain.BookFilter;
+import com.org.bansira.lbms.domain.BookFields;
+import com.org.bansira.lbms.domain.BookPage;
+import com.org.bansira.lbms.domain.BulkJob;
+import com.org.bansira.lbms.domain.BulkResult;
+import com.org.bansira.lbms.domain.CatalogueStats;
+import com.org.bansira.lbms.domain.QueuedWrite;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface LibraryService {
     Optional<Book> addBook(Book book);
 
+    BulkResult addBooks(Iterator<Book> books);
+
+    boolean isWriteBehind();
+
+    QueuedWrite queueBook(Book book);
+
+    Optional<QueuedWrite> findQueuedWrite(String id);
+
     Optional<Book> findBookByIsbn(String isbn);
 
     Optional<List<Book>> listAllBooks();
@@ -22,4 +40,54 @@ public interface LibraryService {
     Optional<List<Book>> findBookByAuthor(String author);
 
     Long removeBook(String isbn);
+
+    BulkJob removeBooks(BookFilter filter);
+
+    BulkJob moveBooks(BookFilter filter, String department);
+
+    Optional<BulkJob> findBulkJob(String id);
+
+    Optional<BulkJob> cancelBulkJob(String id);
+
+    AvailabilityChange checkoutBook(String isbn);
+
+    AvailabilityChange returnBook(String isbn);
+
+    BookPage listAllBooks(String after, Integer size);
+
+    BookPage listAvailableBooks(String after, Integer size);
+
+    BookPage findBookByTitle(String title, String after, Integer size);
+
+    BookPage findBookByAuthor(String author, String after, Integer size);
+
+    BookPage findBooksByDepartment(String department, String after, Integer size);
+
+    BookPage listAllBooks(String after, Integer size, BookFields fields);
+
+    BookPage listAvailableBooks(String after, Integer size, BookFields fields);
+
+    BookPage findBookByTitle(String title, String after, Integer size, BookFields fields);
+
+    BookPage findBookByAuthor(String author, String after, Integer size, BookFields fields);
+
+    BookPage findBooksByDepartment(String department, String after, Integer size, BookFields fields);
+
+    String catalogueVersion();
+
+    String departmentVersion(String department);
+
+    String authorVersion(String author);
+
+    CatalogueStats catalogueStats();
+
+    BookPage searchBooks(String query, String after, Integer size);
+
+    Stream<Book> streamAllBooks();
+
+    Stream<Book> streamAvailableBooks();
+
+    Stream<Book> streamBooksByTitle(String title);
+
+    Stream<Book> streamBooksByAuthor(String author);
 }
@@ -0,0 +1,41 @@
+/**
+ * This package contains service layer implementations of Library APIs.
+ */
+package com.org.bansira.lbms.service;
+
+import com.org.bansira.lbms.domain.Book;
+import com.org.bansira.lbms.domain.BookPage;
+import com.org.bansira.lbms.domain.BulkResult;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link LibraryService}. Lookups that find nothing complete empty.
+ */
+public interface ReactiveLibraryService {
+    Mono<Book> addBook(Book book);
+
+    Mono<BulkResult> addBooks(Flux<Book> books);
+
+    Mono<Book> findBookByIsbn(String isbn);
+
+    Flux<Book> listAllBooks();
+
+    Flux<Book> listAvailableBooks();
+
+    Flux<Book> findBookByTitle(String title);
+
+    Flux<Book> findBookByAuthor(String author);
+
+    Mono<Long> removeBook(String isbn);
+
+    Mono<BookPage> listAllBooks(String after, Integer size);
+
+    Mono<BookPage> listAvailableBooks(String after, Integer size);
+
+    Mono<BookPage> findBookByTitle(String title, String after, Integer size);
+
+    Mono<BookPage> findBookByAuthor(String author, String after, Integer size);
+
+    Mono<BookPage> searchBooks(String query, String after, Integer size);
+}
@@ -0,0 +1,256 @@
+/**
+ * This package contains service layer implementations of Library APIs.
+ */
+package com.org.bansira.lbms.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.org.bansira.lbms.config.CacheConfig;
+import com.org.bansira.lbms.data.BookRepository;
+import com.org.bansira.lbms.domain.Book;
+import com.org.bansira.lbms.domain.BulkOutcome;
+import com.org.bansira.lbms.domain.QueuedWrite;
+import com.org.bansira.lbms.search.BookSearchIndex;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Writes added books behind the request: books are acknowledged once queued and a single writer thread inserts
+ * them with unordered bulk writes of up to {@code lbms.write-behind.batch-size} books, or whatever has queued
+ * within {@code lbms.write-behind.flush-interval} of the first one.
+ * The ISBNs waiting in the queue are kept in a set so a second add of the same ISBN is refused before it is queued;
+ * ISBNs already in the DB are refused by the unique index when the batch is written. The outcome of every queued
+ * book can be looked up by its id for {@code lbms.write-behind.status-retention}.
+ * The queue holds at most {@code lbms.write-behind.queue-capacity} books, adds are rejected while it is full.
+ * On shutdown the queue stops accepting books and the writer flushes what is left before the DB is closed.
+ * Enabled with {@code lbms.write-behind.enabled=true}.
+ */
+@Component
+@ConditionalOnProperty(name = "lbms.write-behind.enabled", havingValue = "true")
+public class BookWriteBehind {
+
+    private static final Logger log = LoggerFactory.getLogger(BookWriteBehind.class);
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    @Autowired
+    private CatalogueVersion catalogueVersion;
+
+    @Autowired
+    private CatalogueStatistics catalogueStatistics;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired(required = false)
+    private CacheManager cacheManager; // absent when the caches are disabled.
+
+    @Value("${lbms.write-behind.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${lbms.write-behind.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${lbms.write-behind.flush-interval:50ms}")
+    private Duration flushInterval;
+
+    @Value("${lbms.write-behind.status-retention:10m}")
+    private Duration statusRetention;
+
+    private final Set<String> pendingIsbns = ConcurrentHashMap.newKeySet();
+    // held for reading by every add from its check of closed to its offer, and for writing to close the queue.
+    private final ReadWriteLock closing = new ReentrantReadWriteLock();
+    private BlockingQueue<Pending> queue;
+    private Cache<String, QueuedWrite> writes;
+    private Thread writer;
+    private volatile boolean closed;
+
+    /**
+     * Starts the writer thread.
+     */
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        writes = Caffeine.newBuilder().expireAfterWrite(statusRetention).build();
+        Gauge.builder("lbms.writebehind.queued", queue, BlockingQueue::size)
+                .description("Books waiting to be written")
+                .register(meterRegistry);
+        writer = new Thread(this::run, "book-write-behind");
+        writer.setDaemon(true); // the queue is flushed by close, not by holding the JVM open.
+        writer.start();
+    }
+
+    /**
+     * Queues a book to be inserted.
+     * @param book the book to be added.
+     * @return the acknowledgement, QUEUED with the id to follow the write, or why the book was not queued.
+     */
+    public QueuedWrite submit(Book book) {
+        String isbn = book.getIsbn();
+        if (isbn == null || isbn.isBlank()) {
+            return new QueuedWrite(null, isbn, QueuedWrite.Status.INVALID);
+        }
+        closing.readLock().lock();
+        try {
+            if (closed) {
+                return new QueuedWrite(null, isbn, QueuedWrite.Status.REJECTED);
+            }
+            if (!pendingIsbns.add(isbn)) {
+                return new QueuedWrite(null, isbn, QueuedWrite.Status.DUPLICATE);
+            }
+            QueuedWrite queued = new QueuedWrite(UUID.randomUUID().toString(), isbn, QueuedWrite.Status.QUEUED);
+            writes.put(queued.getId(), queued); // before the writer can complete it.
+            if (!queue.offer(new Pending(queued.getId(), book))) {
+                writes.invalidate(queued.getId());
+                pendingIsbns.remove(isbn);
+                return new QueuedWrite(null, isbn, QueuedWrite.Status.REJECTED);
+            }
+            return queued;
+        } finally {
+            closing.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param id the id returned when the book was queued.
+     * @return the current status of the write, empty if the id is unknown or expired.
+     */
+    public Optional<QueuedWrite> find(String id) {
+        return Optional.ofNullable(writes.getIfPresent(id));
+    }
+
+    /**
+     * @return the number of books waiting to be written.
+     */
+    public int queued() {
+        return queue.size();
+    }
+
+    /**
+     * Stops accepting books and waits for the writer to flush the queue. Adds that already passed the check of
+     * closed are waited for, so every book acknowledged as queued is in the queue before the writer drains it.
+     */
+    @PreDestroy
+    public void close() throws InterruptedException {
+        closing.writeLock().lock();
+        try {
+            closed = true;
+        } finally {
+            closing.writeLock().unlock();
+        }
+        writer.join();
+        List<Pending> late = new ArrayList<>(); // left behind if the writer was interrupted.
+        queue.drainTo(late);
+        if (!late.isEmpty()) {
+            flush(late);
+        }
+        log.info("Write-behind queue flushed");
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                collect(batch);
+            } catch (InterruptedException e) {
+                closed = true; // still flush what was taken and what is queued.
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Waits for a first book, then for the batch to fill up until the flush interval has passed.
+     */
+    private void collect(List<Pending> batch) throws InterruptedException {
+        Pending first = queue.poll(flushInterval.toNanos(), TimeUnit.NANOSECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + flushInterval.toNanos();
+        while (batch.size() < batchSize && !closed) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() == batchSize || remaining <= 0) {
+                break;
+            }
+            Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        queue.drainTo(batch, batchSize - batch.size());
+    }
+
+    private void flush(List<Pending> batch) {
+        List<Book> books = batch.stream().map(Pending::book).toList();
+        try {
+            Map<Integer, BulkOutcome.Status> rejected = bookRepository.insertAllUnordered(books);
+            for (int i = 0; i < batch.size(); i++) {
+                Book book = books.get(i);
+                if (rejected.containsKey(i)) {
+                    complete(batch.get(i), rejected.get(i) == BulkOutcome.Status.DUPLICATE
+                            ? QueuedWrite.Status.DUPLICATE : QueuedWrite.Status.FAILED);
+                } else {
+                    bookSearchIndex.index(book);
+                    catalogueVersion.changed(book);
+                    catalogueStatistics.added(book);
+                    evict(book.getIsbn());
+                    complete(batch.get(i), QueuedWrite.Status.INSERTED);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Could not write {} queued books", batch.size(), e);
+            batch.forEach(pending -> complete(pending, QueuedWrite.Status.FAILED));
+        }
+    }
+
+    private void complete(Pending pending, QueuedWrite.Status status) {
+        writes.put(pending.id(), new QueuedWrite(pending.id(), pending.book().getIsbn(), status));
+        pendingIsbns.remove(pending.book().getIsbn());
+    }
+
+    private void evict(String isbn) {
+        if (cacheManager != null) {
+            org.springframework.cache.Cache cache = cacheManager.getCache(CacheConfig.BOOKS_BY_ISBN);
+            if (cache != null) {
+                cache.evict(isbn); // a lookup made while the book was queued may have cached the miss.
+            }
+        }
+    }
+
+    private record Pending(String id, Book book) {
+    }
+}
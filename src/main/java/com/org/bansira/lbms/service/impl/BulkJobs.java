@@ -0,0 +1,295 @@
+/**
+ * This package contains service layer implementations of Library APIs.
+ */
+package com.org.bansira.lbms.service.impl;
+
+import com.org.bansira.lbms.config.CacheConfig;
+import com.org.bansira.lbms.data.BookRepository;
+import com.org.bansira.lbms.domain.Book;
+import com.org.bansira.lbms.domain.BookFilter;
+import com.org.bansira.lbms.domain.BulkJob;
+import com.org.bansira.lbms.domain.CatalogueStats;
+import com.org.bansira.lbms.search.BookSearchIndex;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes the books matching a filter, or moves them to another department, in the background.
+ * A job walks the department, or the whole catalogue when the filter has no department, in ISBN order
+ * {@code lbms.bulk-jobs.batch-size} books at a time and deletes each batch with a single conditional delete, or moves
+ * each of its books with a conditional update, so books changed since they were read are only touched if they still
+ * match. Every batch updates the search index, the ISBN cache, the catalogue versions and the statistics like single
+ * book writes do.
+ * Jobs run one at a time on their own thread and pause between batches for {@code lbms.bulk-jobs.batch-pause},
+ * or as long as the batch took if that is longer, so a job never keeps the DB busy more than half of the time.
+ * Jobs can be cancelled between batches. Finished jobs are kept for {@code lbms.bulk-jobs.retention}.
+ * Jobs live in the memory of this instance: other instances neither see them nor wait for them, and a job stops
+ * with the instance and is not resumed.
+ */
+@Component
+public class BulkJobs {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkJobs.class);
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    @Autowired
+    private CatalogueVersion catalogueVersion;
+
+    @Autowired
+    private CatalogueStatistics catalogueStatistics;
+
+    @Autowired(required = false)
+    private CacheManager cacheManager; // absent when the caches are disabled.
+
+    @Value("${lbms.bulk-jobs.batch-size:500}")
+    private int batchSize;
+
+    @Value("${lbms.bulk-jobs.batch-pause:100ms}")
+    private Duration batchPause;
+
+    @Value("${lbms.bulk-jobs.retention:1h}")
+    private Duration retention;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private ExecutorService runner;
+
+    /**
+     * Starts the thread jobs run on.
+     */
+    @PostConstruct
+    public void start() {
+        runner = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bulk-jobs");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Stops the running job after its current batch and drops the queued ones.
+     */
+    @PreDestroy
+    public void stop() {
+        runner.shutdownNow();
+        jobs.values().forEach(job -> job.finish(BulkJob.Status.CANCELLED, "Stopped by shutdown"));
+    }
+
+    /**
+     * Queues a job deleting the books matching the filter.
+     * @param filter the books to be deleted, at least one property must be set.
+     * @return the queued job.
+     */
+    public BulkJob delete(BookFilter filter) {
+        return submit(BulkJob.Type.DELETE, filter, null);
+    }
+
+    /**
+     * Queues a job moving the books matching the filter to another department.
+     * @param filter the books to be moved, at least one property must be set.
+     * @param department the department to move them to.
+     * @return the queued job.
+     */
+    public BulkJob move(BookFilter filter, String department) {
+        if (department == null || department.isBlank()) {
+            throw new IllegalArgumentException("Missing the department to move the books to");
+        }
+        if (department.equals(filter.getDepartment())) {
+            throw new IllegalArgumentException("The books are already in department " + department);
+        }
+        return submit(BulkJob.Type.MOVE, filter, department);
+    }
+
+    /**
+     * @param id returned when the job was queued.
+     * @return the progress of the job, empty if the id is unknown or expired.
+     */
+    public Optional<BulkJob> find(String id) {
+        Job job = jobs.get(id);
+        return job == null ? Optional.empty() : Optional.of(job.snapshot());
+    }
+
+    /**
+     * Stops a job before its next batch. Finished jobs are left as they are.
+     * @param id returned when the job was queued.
+     * @return the progress of the job, empty if the id is unknown or expired.
+     */
+    public Optional<BulkJob> cancel(String id) {
+        Job job = jobs.get(id);
+        if (job == null) {
+            return Optional.empty();
+        }
+        job.finish(BulkJob.Status.CANCELLED, "Cancelled");
+        return Optional.of(job.snapshot());
+    }
+
+    private BulkJob submit(BulkJob.Type type, BookFilter filter, String department) {
+        if (filter == null || filter.isEmpty()) {
+            throw new IllegalArgumentException("A bulk job needs a filter, e.g. a department");
+        }
+        expire();
+        CatalogueStats stats = catalogueStatistics.stats();
+        CatalogueStats.Counts counts = filter.getDepartment() == null ? null : stats.getDepartments().get(filter.getDepartment());
+        long estimatedTotal = filter.getDepartment() == null ? stats.getTotal() : counts == null ? 0 : counts.getTotal();
+        Job job = new Job(new BulkJob(UUID.randomUUID().toString(), type, filter, department, BulkJob.Status.QUEUED,
+                estimatedTotal, 0, 0, 0, Instant.now(), null, null, null));
+        jobs.put(job.id(), job);
+        runner.execute(() -> run(job));
+        return job.snapshot();
+    }
+
+    private void run(Job job) {
+        if (!job.begin()) {
+            return; // cancelled while queued.
+        }
+        BookFilter filter = job.state.getFilter();
+        String after = "";
+        try {
+            while (!job.isFinished()) {
+                long started = System.nanoTime();
+                List<Book> page = filter.getDepartment() == null
+                        ? bookRepository.findByIsbnGreaterThanOrderByIsbnAsc(after, Limit.of(batchSize))
+                        : bookRepository.findByDepartmentAndIsbnGreaterThanOrderByIsbnAsc(filter.getDepartment(), after, Limit.of(batchSize));
+                if (page.isEmpty()) {
+                    break;
+                }
+                after = page.get(page.size() - 1).getIsbn();
+                Map<String, Book> selected = new LinkedHashMap<>();
+                for (Book book : page) {
+                    if (filter.matches(book) && (job.state.getType() == BulkJob.Type.DELETE
+                            || !job.state.getTargetDepartment().equals(book.getDepartment()))) {
+                        selected.put(book.getIsbn(), book);
+                    }
+                }
+                int processed = selected.isEmpty() ? 0 : job.state.getType() == BulkJob.Type.DELETE
+                        ? delete(selected, filter) : move(selected, filter, job.state.getTargetDepartment());
+                job.progress(page.size(), selected.size(), processed);
+                if (page.size() < batchSize) {
+                    break;
+                }
+                long elapsed = System.nanoTime() - started;
+                TimeUnit.NANOSECONDS.sleep(Math.max(batchPause.toNanos(), elapsed));
+            }
+            job.finish(BulkJob.Status.COMPLETED, null);
+        } catch (InterruptedException e) {
+            job.finish(BulkJob.Status.CANCELLED, "Stopped by shutdown");
+        } catch (RuntimeException e) {
+            log.error("Bulk job {} failed", job.id(), e);
+            job.finish(BulkJob.Status.FAILED, e.getMessage());
+        }
+    }
+
+    private int delete(Map<String, Book> selected, BookFilter filter) {
+        List<Book> deleted = bookRepository.deleteMatching(selected.keySet(), filter);
+        for (Book book : deleted) {
+            bookSearchIndex.remove(book.getIsbn());
+            catalogueVersion.changed(book);
+            catalogueStatistics.removed(book);
+            evict(book.getIsbn());
+        }
+        return deleted.size();
+    }
+
+    private int move(Map<String, Book> selected, BookFilter filter, String department) {
+        List<Book> moved = bookRepository.moveMatching(selected.values(), filter, department);
+        for (Book book : moved) {
+            String previous = selected.get(book.getIsbn()).getDepartment(); // only moved if still there.
+            bookSearchIndex.index(book);
+            catalogueVersion.moved(book, previous);
+            catalogueStatistics.moved(book, previous);
+            evict(book.getIsbn());
+        }
+        return moved.size();
+    }
+
+    private void evict(String isbn) {
+        if (cacheManager != null) {
+            Cache cache = cacheManager.getCache(CacheConfig.BOOKS_BY_ISBN);
+            if (cache != null) {
+                cache.evict(isbn);
+            }
+        }
+    }
+
+    private void expire() {
+        Instant oldest = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> job.finishedBefore(oldest));
+    }
+
+    /**
+     * A job and its progress, guarded by the job itself.
+     */
+    private static final class Job {
+        private final BulkJob state;
+
+        Job(BulkJob state) {
+            this.state = state;
+        }
+
+        String id() {
+            return state.getId();
+        }
+
+        synchronized boolean begin() {
+            if (isFinished()) {
+                return false;
+            }
+            state.setStatus(BulkJob.Status.RUNNING);
+            state.setStartedAt(Instant.now());
+            return true;
+        }
+
+        synchronized void progress(long scanned, long matched, long processed) {
+            state.setScanned(state.getScanned() + scanned);
+            state.setMatched(state.getMatched() + matched);
+            state.setProcessed(state.getProcessed() + processed);
+        }
+
+        synchronized void finish(BulkJob.Status status, String error) {
+            if (!isFinished()) {
+                state.setStatus(status);
+                state.setError(error);
+                state.setFinishedAt(Instant.now());
+            }
+        }
+
+        synchronized boolean isFinished() {
+            return state.getFinishedAt() != null;
+        }
+
+        synchronized boolean finishedBefore(Instant instant) {
+            return state.getFinishedAt() != null && state.getFinishedAt().isBefore(instant);
+        }
+
+        synchronized BulkJob snapshot() {
+            return new BulkJob(state.getId(), state.getType(), state.getFilter(), state.getTargetDepartment(),
+                    state.getStatus(), state.getEstimatedTotal(), state.getScanned(), state.getMatched(),
+                    state.getProcessed(), state.getCreatedAt(), state.getStartedAt(), state.getFinishedAt(),
+                    state.getError());
+        }
+    }
+}
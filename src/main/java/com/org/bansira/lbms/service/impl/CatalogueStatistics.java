@@ -0,0 +1,239 @@
+/**
+ * This package contains service layer implementations of Library APIs.
+ */
+package com.org.bansira.lbms.service.impl;
+
+import com.org.bansira.lbms.data.BookRepository;
+import com.org.bansira.lbms.domain.Book;
+import com.org.bansira.lbms.domain.CatalogueStats;
+import com.org.bansira.lbms.domain.ShelfCount;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per department and per genre counts of books and available books, kept current by the service layer on every
+ * add, removal and availability change, so reading them costs as much as the number of departments and genres
+ * rather than a scan of the catalogue.
+ * Like the search index the counters only see writes made through this instance, so they are replaced with the
+ * result of a single aggregation over the DB once the application has started and then every
+ * {@code lbms.stats.reconcile-interval}. Writes that overlap an aggregation may be counted twice or not at all until
+ * the next one; the drift found by each reconciliation is logged. Departments whose counts drifted, e.g. after
+ * writes through another instance, get a new {@link CatalogueVersion} so their ETags and cached responses expire.
+ */
+@Component
+public class CatalogueStatistics {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogueStatistics.class);
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CatalogueVersion catalogueVersion;
+
+    @Value("${lbms.stats.reconcile-interval:10m}")
+    private Duration reconcileInterval;
+
+    private volatile Tally tally = new Tally();
+    private volatile Instant reconciledAt;
+    private ScheduledExecutorService reconciler;
+
+    /**
+     * Records a book added to the library.
+     * @param book the saved book.
+     */
+    public void added(Book book) {
+        tally.add(book, 1, Boolean.TRUE.equals(book.getIsAvailable()) ? 1 : 0);
+    }
+
+    /**
+     * Records a book removed from the library.
+     * @param book the removed book, as it was last counted.
+     */
+    public void removed(Book book) {
+        tally.add(book, -1, Boolean.TRUE.equals(book.getIsAvailable()) ? -1 : 0);
+    }
+
+    /**
+     * Records a book checked out or returned.
+     * @param updated the book with its new availability.
+     */
+    public void availabilityChanged(Book updated) {
+        tally.add(updated, 0, Boolean.TRUE.equals(updated.getIsAvailable()) ? 1 : -1);
+    }
+
+    /**
+     * Records a book moved to another department.
+     * @param updated the book in its new department.
+     * @param department the department it was moved from.
+     */
+    public void moved(Book updated, String department) {
+        long available = Boolean.TRUE.equals(updated.getIsAvailable()) ? 1 : 0;
+        Tally current = tally;
+        current.departments.add(department, -1, -available);
+        current.departments.add(updated.getDepartment(), 1, available);
+    }
+
+    /**
+     * @return a copy of the current counts, departments and genres in name order.
+     */
+    public CatalogueStats stats() {
+        Tally current = tally;
+        return new CatalogueStats(current.total.get(), current.available.get(), current.departments.snapshot(),
+                current.genres.snapshot(), reconciledAt);
+    }
+
+    /**
+     * Replaces the counters with counts aggregated by the DB, and changes the version of every department whose
+     * books or available books were miscounted.
+     * @return the number of books the department counters were off by before they were replaced.
+     */
+    public long reconcile() {
+        List<ShelfCount> counts = bookRepository.countByDepartmentAndGenre();
+        Tally fresh = new Tally();
+        for (ShelfCount count : counts) {
+            fresh.add(count.getDepartment(), count.getGenre(), count.getTotal(), count.getAvailable());
+        }
+        Tally previous = tally;
+        long drift = fresh.departments.difference(previous.departments);
+        Set<String> drifted = fresh.departments.changed(previous.departments);
+        tally = fresh;
+        reconciledAt = Instant.now();
+        drifted.forEach(catalogueVersion::changed);
+        if (drift != 0) {
+            log.warn("Catalogue statistics were off by {} books, reconciled with the DB", drift);
+        }
+        return drift;
+    }
+
+    /**
+     * Counts the catalogue once the application has started and schedules the periodic reconciliation.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        reconcileQuietly();
+        if (reconcileInterval != null && !reconcileInterval.isZero()) {
+            reconciler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "catalogue-statistics");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = reconcileInterval.toMillis();
+            reconciler.scheduleWithFixedDelay(this::reconcileQuietly, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (reconciler != null) {
+            reconciler.shutdownNow();
+        }
+    }
+
+    private void reconcileQuietly() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            log.warn("Could not reconcile catalogue statistics", e);
+        }
+    }
+
+    /**
+     * One generation of counters, replaced as a whole on reconciliation.
+     */
+    private static final class Tally {
+        final AtomicLong total = new AtomicLong();
+        final AtomicLong available = new AtomicLong();
+        final Shelves departments = new Shelves();
+        final Shelves genres = new Shelves();
+
+        void add(Book book, long total, long available) {
+            add(book.getDepartment(), book.getGenre(), total, available);
+        }
+
+        void add(String department, String genre, long total, long available) {
+            this.total.addAndGet(total);
+            this.available.addAndGet(available);
+            departments.add(department, total, available);
+            genres.add(genre, total, available);
+        }
+    }
+
+    /**
+     * Counts keyed by department or genre name, books without one are counted under the empty name.
+     */
+    private static final class Shelves {
+        private final Map<String, AtomicLong[]> counts = new ConcurrentHashMap<>();
+
+        void add(String name, long total, long available) {
+            AtomicLong[] count = counts.computeIfAbsent(name == null ? "" : name,
+                    key -> new AtomicLong[] {new AtomicLong(), new AtomicLong()});
+            count[0].addAndGet(total);
+            count[1].addAndGet(available);
+        }
+
+        long difference(Shelves other) {
+            long difference = 0;
+            for (Map.Entry<String, AtomicLong[]> count : counts.entrySet()) {
+                AtomicLong[] previous = other.counts.get(count.getKey());
+                difference += Math.abs(count.getValue()[0].get() - (previous == null ? 0 : previous[0].get()));
+            }
+            for (Map.Entry<String, AtomicLong[]> previous : other.counts.entrySet()) {
+                if (!counts.containsKey(previous.getKey())) {
+                    difference += Math.abs(previous.getValue()[0].get());
+                }
+            }
+            return difference;
+        }
+
+        /**
+         * @return the names whose count of books or of available books differs from the other counts.
+         */
+        Set<String> changed(Shelves other) {
+            Set<String> changed = new HashSet<>();
+            counts.forEach((name, count) -> {
+                AtomicLong[] previous = other.counts.get(name);
+                if (previous == null ? count[0].get() != 0 || count[1].get() != 0
+                        : count[0].get() != previous[0].get() || count[1].get() != previous[1].get()) {
+                    changed.add(name);
+                }
+            });
+            other.counts.forEach((name, previous) -> {
+                if (!counts.containsKey(name) && (previous[0].get() != 0 || previous[1].get() != 0)) {
+                    changed.add(name);
+                }
+            });
+            return changed;
+        }
+
+        Map<String, CatalogueStats.Counts> snapshot() {
+            Map<String, CatalogueStats.Counts> snapshot = new TreeMap<>();
+            counts.forEach((name, count) -> {
+                long total = count[0].get();
+                if (total > 0) {
+                    snapshot.put(name, new CatalogueStats.Counts(total, count[1].get()));
+                }
+            });
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * This package contains service layer implementations of Library APIs.
+ */
+package com.org.bansira.lbms.service.impl;
+
+import com.org.bansira.lbms.domain.Book;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monotonically increasing versions of the whole catalogue, of each department and of each author, used as ETags
+ * so clients polling an unchanged listing get a 304 without the listing being read or serialized, and to key the
+ * serialized response cache. A version is the start time of this instance and a counter, and later versions of the
+ * same scope compare {@link #newer} than earlier ones.
+ * Versions are bumped after a write completes and readers take the version before reading, so data read
+ * under a version is at least as new as the version, provided the read started after the version was taken.
+ * Reads that are shared between callers must therefore be keyed by the version as well. Versions live in
+ * memory and start over on restart; like the search index they only see writes made through this instance.
+ */
+@Component
+public class CatalogueVersion {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong catalogue = new AtomicLong();
+    private final Scope departments = new Scope();
+    private final Scope authors = new Scope();
+
+    /**
+     * @return the version of the whole catalogue.
+     */
+    public String current() {
+        return epoch + "-" + catalogue.get();
+    }
+
+    /**
+     * @param department name of the department.
+     * @return the version of the books in the department, unaffected by changes in other departments.
+     */
+    public String current(String department) {
+        return epoch + "-" + departments.current(department);
+    }
+
+    /**
+     * @param author name of the author.
+     * @return the version of the books by the author, unaffected by changes to books by other authors.
+     */
+    public String currentOfAuthor(String author) {
+        return epoch + "-" + authors.current(author);
+    }
+
+    /**
+     * Records a change to a book: added, removed or changed in place. Changes the version of its department, of its
+     * author and of the whole catalogue.
+     * @param book the changed book, as it was saved or last read.
+     */
+    public void changed(Book book) {
+        departments.changed(book.getDepartment());
+        authors.changed(book.getAuthor());
+        catalogue.incrementAndGet();
+    }
+
+    /**
+     * Records a book moved to another department.
+     * @param book the book in its new department.
+     * @param previousDepartment the department it was moved from.
+     */
+    public void moved(Book book, String previousDepartment) {
+        departments.changed(previousDepartment);
+        changed(book);
+    }
+
+    /**
+     * Records a change to the books of a department by authors that are not known, so every author version changes.
+     * @param department the department of the changed books.
+     */
+    public void changed(String department) {
+        departments.changed(department);
+        authors.changedEverywhere();
+        catalogue.incrementAndGet();
+    }
+
+    /**
+     * Records a change to a book whose department and author are not known, so every version changes.
+     */
+    public void changedAnywhere() {
+        departments.changedEverywhere();
+        authors.changedEverywhere();
+        catalogue.incrementAndGet();
+    }
+
+    /**
+     * @param version a version returned by this class.
+     * @param than another version of the same scope, e.g. of the same department.
+     * @return true if version was taken after a change that than was taken before.
+     */
+    public static boolean newer(String version, String than) {
+        int split = version.lastIndexOf('-');
+        int thanSplit = than.lastIndexOf('-');
+        long epoch = Long.parseLong(version, 0, split, 36);
+        long thanEpoch = Long.parseLong(than, 0, thanSplit, 36);
+        if (epoch != thanEpoch) {
+            return epoch > thanEpoch;
+        }
+        return Long.parseLong(version, split + 1, version.length(), 10) > Long.parseLong(than, thanSplit + 1, than.length(), 10);
+    }
+
+    /**
+     * Versions keyed by department or author name. A version is the sum of a counter for changes everywhere and
+     * one for the name, both only grow, so the sum changes and grows with either.
+     */
+    private static final class Scope {
+        private final AtomicLong everywhere = new AtomicLong(); // changes whose department or author is not known.
+        private final Map<String, AtomicLong> names = new ConcurrentHashMap<>(); // only names that changed.
+
+        long current(String name) {
+            AtomicLong version = names.get(key(name));
+            return everywhere.get() + (version == null ? 0 : version.get());
+        }
+
+        void changed(String name) {
+            names.computeIfAbsent(key(name), key -> new AtomicLong()).incrementAndGet();
+        }
+
+        void changedEverywhere() {
+            everywhere.incrementAndGet();
+        }
+
+        private static String key(String name) {
+            return name == null ? "" : name;
+        }
+    }
+}
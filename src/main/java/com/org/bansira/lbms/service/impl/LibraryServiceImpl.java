@@ -3,74 +3,212 @@
  */
 package com.org.bansira.lbms.service.impl;
 
+import com.org.bansira.lbms.config.CacheConfig;
 import com.org.bansira.lbms.data.BookRepository;
+import com.org.bansira.lbms.domain.AvailabilityChange;
 import com.org.bansira.lbms.domain.Book;
+import com.org.bansira.lbms.domain.BookFilter;
+import com.org.bansira.lbms.domain.BookFields;
+import com.org.bansira.lbms.domain.BookPage;
+import com.org.bansira.lbms.domain.BulkJob;
+import com.org.bansira.lbms.domain.BulkOutcome;
+import com.org.bansira.lbms.domain.BulkResult;
+import com.org.bansira.lbms.domain.CatalogueStats;
+import com.org.bansira.lbms.domain.QueuedWrite;
+import com.org.bansira.lbms.search.BookSearchIndex;
 import com.org.bansira.lbms.service.LibraryService;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Service
+@Timed(value = "lbms.service", histogram = true)
 public class LibraryServiceImpl implements LibraryService {
 
+    public static final int BULK_BATCH_SIZE = 1000; // books sent to the DB per bulk write.
+
     @Autowired
     BookRepository bookRepository;
 
+    @Autowired
+    BookSearchIndex bookSearchIndex;
+
+    @Autowired
+    SingleFlight singleFlight;
+
+    @Autowired
+    CatalogueVersion catalogueVersion;
+
+    @Autowired
+    CatalogueStatistics catalogueStatistics;
+
+    @Autowired
+    BulkJobs bulkJobs;
+
+    @Autowired(required = false)
+    BookWriteBehind bookWriteBehind; // only present with lbms.write-behind.enabled=true.
+
+    @Autowired(required = false)
+    CacheManager cacheManager; // absent when the caches are disabled.
+
     /** Adds a book to the library.
+     * Relies on the unique ISBN index instead of checking for the book first, so it costs a single
+     * round trip and concurrent adds of the same ISBN cannot both succeed.
      * @param book the book to be added.
      * @return a saved book if saved successfully or returns an empty Optional object.
+     * @throws IllegalArgumentException if the book has no ISBN.
      */
     @Override
+    @CacheEvict(cacheNames = CacheConfig.BOOKS_BY_ISBN, key = "#book.isbn")
     public Optional<Book> addBook(Book book) {
-        if (bookRepository.existsByIsbn(book.getIsbn())) {
+        if (isBlank(book.getIsbn())) {
+            throw new IllegalArgumentException("Book is missing its ISBN");
+        }
+        try {
+            Book saved = bookRepository.insert(book);
+            bookSearchIndex.index(saved);
+            catalogueVersion.changed(saved);
+            catalogueStatistics.added(saved);
+            return Optional.of(saved);
+        } catch (DuplicateKeyException e) {
             return Optional.empty();
         }
-        return Optional.of(bookRepository.save(book));
+    }
+
+    /** Adds books to the library in batches of unordered bulk writes.
+     * Books without an ISBN or title and books rejected by the unique ISBN index or another DB rule are skipped
+     * and reported without failing the rest of the request.
+     * @param books the books to be added, consumed lazily so large requests are never fully buffered.
+     * @return the number of inserted, duplicate, invalid and failed books and the outcome for each ISBN.
+     */
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.BOOKS_BY_ISBN, allEntries = true)
+    public BulkResult addBooks(Iterator<Book> books) {
+        BulkResult result = new BulkResult();
+        List<Book> batch = new ArrayList<>(BULK_BATCH_SIZE);
+        while (books.hasNext()) {
+            Book book = books.next();
+            if (isBlank(book.getIsbn()) || isBlank(book.getTitle())) {
+                result.add(book.getIsbn(), BulkOutcome.Status.INVALID);
+            } else {
+                batch.add(book);
+                if (batch.size() == BULK_BATCH_SIZE) {
+                    insertBatch(batch, result);
+                    batch.clear();
+                }
+            }
+        }
+        insertBatch(batch, result);
+        return result;
+    }
+
+    /** Whether added books are written behind the request, see {@link #queueBook(Book)}.
+     * @return true if lbms.write-behind.enabled is set.
+     */
+    @Override
+    public boolean isWriteBehind() {
+        return bookWriteBehind != null;
+    }
+
+    /** Queues a book to be inserted by the background writer in a batch with other queued books.
+     * @param book the book to be added.
+     * @return the id to follow the write with, or why the book was not queued.
+     * @throws IllegalStateException if write-behind is off, use {@link #addBook(Book)} then.
+     */
+    @Override
+    public QueuedWrite queueBook(Book book) {
+        if (bookWriteBehind == null) {
+            throw new IllegalStateException("Write-behind is disabled, set lbms.write-behind.enabled=true to queue books");
+        }
+        return bookWriteBehind.submit(book);
+    }
+
+    /** Fetches the outcome of a queued book.
+     * @param id returned when the book was queued.
+     * @return the status of the write, or an empty Optional object if the id is unknown or expired.
+     */
+    @Override
+    public Optional<QueuedWrite> findQueuedWrite(String id) {
+        return bookWriteBehind == null ? Optional.empty() : bookWriteBehind.find(id);
     }
 
     /** Fetches a Book by ISBN.
+     * Results are cached by ISBN, including misses, until the book is added, removed or changed.
+     * A result is only kept if the catalogue did not change while it was read: every write changes the catalogue
+     * version before evicting its ISBN, so a lookup that read the DB before a write cannot cache what the write replaced.
+     * Concurrent cache misses for the same ISBN share one query.
      * @param isbn is the unique id of the book to be fetched.
      * @returnthe book with given ISBN or null object wrapped in Optional object.
      */
     @Override
     public Optional<Book> findBookByIsbn(String isbn) {
-        return bookRepository.findByIsbn(isbn);
+        Cache cache = cacheManager == null ? null : cacheManager.getCache(CacheConfig.BOOKS_BY_ISBN);
+        if (cache == null) {
+            return shared("findBookByIsbn", isbn, () -> bookRepository.findByIsbn(isbn));
+        }
+        Cache.ValueWrapper cached = cache.get(isbn);
+        if (cached != null) {
+            return Optional.ofNullable((Book) cached.get());
+        }
+        String version = catalogueVersion.current();
+        Optional<Book> book = singleFlight.execute("findBookByIsbn", Arrays.asList(isbn, version), () -> bookRepository.findByIsbn(isbn));
+        cache.put(isbn, book.orElse(null));
+        if (!version.equals(catalogueVersion.current())) {
+            cache.evict(isbn); // a write may have evicted the ISBN before this result was put.
+        }
+        return book;
     }
 
     /** Fetches all registered books in the library.
+     * Concurrent calls share one query unless a write completes between them.
      * @return a list of books registered in the library.
      */
     @Override
     public Optional<List<Book>> listAllBooks() {
-        return Optional.of(bookRepository.findAll());
+        return shared("listAllBooks", null, () -> Optional.of(bookRepository.findAll()));
     }
 
     /** Fetches all books that are currently available in the library.
+     * Concurrent calls share one query unless a write completes between them.
      * @return a list of books currently available in the library.
      */
     @Override
     public Optional<List<Book>> listAvailableBooks() {
-        return bookRepository.findByIsAvailable(Boolean.TRUE);
+        return shared("listAvailableBooks", null, () -> bookRepository.findByIsAvailable(Boolean.TRUE));
     }
 
     /** Fetches all books matching a title provided.
+     * Concurrent calls for the same title share one query unless a write completes between them.
      * @param title to match the books in the library.
      * @return a list of books matching the given title wrapped in Optional object.
      */
     @Override
     public Optional<List<Book>> findBookByTitle(String title) {
-        return bookRepository.findByTitle(title);
+        return shared("findBookByTitle", title, () -> bookRepository.findByTitle(title));
     }
 
     /** Fetches all books by author.
+     * Concurrent calls for the same author share one query unless a write completes between them.
      * @param author of the books to be fetched from the library.
      * @return a list of books by the author provided.
      */
     @Override
     public Optional<List<Book>> findBookByAuthor(String author) {
-        return bookRepository.findByAuthor(author);
+        return shared("findBookByAuthor", author, () -> bookRepository.findByAuthor(author));
     }
 
     /** Removes a book by ISBN provided.
@@ -78,7 +216,334 @@ public class LibraryServiceImpl implements LibraryService {
      * @return a count of books successfully removed from the library.
      */
     @Override
+    @CacheEvict(cacheNames = CacheConfig.BOOKS_BY_ISBN, key = "#isbn")
     public Long removeBook(String isbn) {
-        return bookRepository.deleteByIsbn(isbn);
+        Long removed = bookRepository.deleteByIsbn(isbn);
+        if (removed != null && removed > 0) {
+            Book book = bookSearchIndex.remove(isbn);
+            if (book != null) {
+                catalogueVersion.changed(book);
+                catalogueStatistics.removed(book);
+            } else { // counted again on the next reconciliation.
+                catalogueVersion.changedAnywhere();
+            }
+        }
+        return removed;
+    }
+
+    /** Removes every book matching the filter in a background job, batch by batch.
+     * @param filter the books to be removed, e.g. a department. An empty filter is rejected.
+     * @return the queued job, to follow with {@link #findBulkJob(String)}.
+     */
+    @Override
+    public BulkJob removeBooks(BookFilter filter) {
+        return bulkJobs.delete(filter);
+    }
+
+    /** Moves every book matching the filter to another department in a background job, batch by batch.
+     * @param filter the books to be moved, e.g. a department. An empty filter is rejected.
+     * @param department the department to move the books to.
+     * @return the queued job, to follow with {@link #findBulkJob(String)}.
+     */
+    @Override
+    public BulkJob moveBooks(BookFilter filter, String department) {
+        return bulkJobs.move(filter, department);
+    }
+
+    /** Fetches the progress of a bulk remove or move.
+     * @param id returned when the job was queued.
+     * @return the progress of the job, or an empty Optional object if the id is unknown or expired.
+     */
+    @Override
+    public Optional<BulkJob> findBulkJob(String id) {
+        return bulkJobs.find(id);
+    }
+
+    /** Stops a bulk remove or move before its next batch, the batches already applied are kept.
+     * @param id returned when the job was queued.
+     * @return the progress of the job, or an empty Optional object if the id is unknown or expired.
+     */
+    @Override
+    public Optional<BulkJob> cancelBulkJob(String id) {
+        return bulkJobs.cancel(id);
+    }
+
+    /** Checks out an available book with a single conditional update, so concurrent checkouts of the same
+     * book cannot both succeed and no update is lost. A book that is already checked out fails immediately.
+     * @param isbn is the unique id of the book to be checked out.
+     * @return the updated book, or whether the book was already checked out or does not exist.
+     */
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.BOOKS_BY_ISBN, key = "#isbn")
+    public AvailabilityChange checkoutBook(String isbn) {
+        return changeAvailability(isbn, false);
+    }
+
+    /** Returns a checked out book with a single conditional update.
+     * @param isbn is the unique id of the book to be returned.
+     * @return the updated book, or whether the book was not checked out or does not exist.
+     */
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.BOOKS_BY_ISBN, key = "#isbn")
+    public AvailabilityChange returnBook(String isbn) {
+        return changeAvailability(isbn, true);
+    }
+
+    /** Fetches a page of registered books in ISBN order.
+     * @param after ISBN of the last book of the previous page, null for the first page.
+     * @param size the requested page size, capped at {@link BookPage#MAX_SIZE}.
+     * @return a page of books and the cursor for the next page.
+     */
+    @Override
+    public BookPage listAllBooks(String after, Integer size) {
+        int pageSize = BookPage.clampSize(size);
+        return shared("listAllBooksPage", Arrays.asList(after, pageSize), () ->
+                BookPage.of(bookRepository.findByIsbnGreaterThanOrderByIsbnAsc(cursor(after), Limit.of(pageSize + 1)), pageSize));
+    }
+
+    /** Fetches a page of currently available books in ISBN order.
+     * @param after ISBN of the last book of the previous page, null for the first page.
+     * @param size the requested page size, capped at {@link BookPage#MAX_SIZE}.
+     * @return a page of books and the cursor for the next page.
+     */
+    @Override
+    public BookPage listAvailableBooks(String after, Integer size) {
+        int pageSize = BookPage.clampSize(size);
+        return shared("listAvailableBooksPage", Arrays.asList(after, pageSize), () ->
+                BookPage.of(bookRepository.findByIsAvailableAndIsbnGreaterThanOrderByIsbnAsc(Boolean.TRUE, cursor(after), Limit.of(pageSize + 1)), pageSize));
+    }
+
+    /** Fetches a page of books matching a title in ISBN order.
+     * @param title to match the books in the library.
+     * @param after ISBN of the last book of the previous page, null for the first page.
+     * @param size the requested page size, capped at {@link BookPage#MAX_SIZE}.
+     * @return a page of books and the cursor for the next page.
+     */
+    @Override
+    public BookPage findBookByTitle(String title, String after, Integer size) {
+        int pageSize = BookPage.clampSize(size);
+        return shared("findBookByTitlePage", Arrays.asList(title, after, pageSize), () ->
+                BookPage.of(bookRepository.findByTitleAndIsbnGreaterThanOrderByIsbnAsc(title, cursor(after), Limit.of(pageSize + 1)), pageSize));
+    }
+
+    /** Fetches a page of books by an author in ISBN order.
+     * @param author of the books to be fetched from the library.
+     * @param after ISBN of the last book of the previous page, null for the first page.
+     * @param size the requested page size, capped at {@link BookPage#MAX_SIZE}.
+     * @return a page of books and the cursor for the next page.
+     */
+    @Override
+    public BookPage findBookByAuthor(String author, String after, Integer size) {
+        int pageSize = BookPage.clampSize(size);
+        return shared("findBookByAuthorPage", Arrays.asList(author, after, pageSize), () ->
+                BookPage.of(bookRepository.findByAuthorAndIsbnGreaterThanOrderByIsbnAsc(author, cursor(after), Limit.of(pageSize + 1)), pageSize));
+    }
+
+    /** Fetches a page of books of a department in ISBN order.
+     * @param department name of the department.
+     * @param after ISBN of the last book of the previous page, null for the first page.
+     * @param size the requested page size, capped at {@link BookPage#MAX_SIZE}.
+     * @return a page of books and the cursor for the next page.
+     */
+    @Override
+    public BookPage findBooksByDepartment(String department, String after, Integer size) {
+        int pageSize = BookPage.clampSize(size);
+        return shared("findBooksByDepartmentPage", Arrays.asList(department, after, pageSize), () ->
+                BookPage.of(bookRepository.findByDepartmentAndIsbnGreaterThanOrderByIsbnAsc(department, cursor(after), Limit.of(pageSize + 1)), pageSize));
+    }
+
+    /** Fetches a page of registered books in ISBN order, reading only the requested fields.
+     * @param after ISBN of the last book of the previous page, null for the first page.
+     * @param size the requested page size, capped at {@link BookPage#MAX_SIZE}.
+     * @param fields the properties to read, e.g. {@link BookFields#SUMMARY}.
+     * @return a page of trimmed books and the cursor for the next page.
+     */
+    @Override
+    public BookPage listAllBooks(String after, Integer size, BookFields fields) {
+        return projectedPage("listAllBooksProjected", null, null, after, size, fields);
+    }
+
+    /** Fetches a page of currently available books in ISBN order, reading only the requested fields.
+     * @param after ISBN of the last book of the previous page, null for the first page.
+     * @param size the requested page size, capped at {@link BookPage#MAX_SIZE}.
+     * @param fields the properties to read, e.g. {@link BookFields#SUMMARY}.
+     * @return a page of trimmed books and the cursor for the next page.
+     */
+    @Override
+    public BookPage listAvailableBooks(String after, Integer size, BookFields fields) {
+        return projectedPage("listAvailableBooksProjected", "isAvailable", Boolean.TRUE, after, size, fields);
+    }
+
+    /** Fetches a page of books matching a title in ISBN order, reading only the requested fields.
+     * @param title to match the books in the library.
+     * @param after ISBN of the last book of the previous page, null for the first page.
+     * @param size the requested page size, capped at {@link BookPage#MAX_SIZE}.
+     * @param fields the properties to read, e.g. {@link BookFields#SUMMARY}.
+     * @return a page of trimmed books and the cursor for the next page.
+     */
+    @Override
+    public BookPage findBookByTitle(String title, String after, Integer size, BookFields fields) {
+        return projectedPage("findBookByTitleProjected", "title", title, after, size, fields);
+    }
+
+    /** Fetches a page of books by an author in ISBN order, reading only the requested fields.
+     * @param author of the books to be fetched from the library.
+     * @param after ISBN of the last book of the previous page, null for the first page.
+     * @param size the requested page size, capped at {@link BookPage#MAX_SIZE}.
+     * @param fields the properties to read, e.g. {@link BookFields#SUMMARY}.
+     * @return a page of trimmed books and the cursor for the next page.
+     */
+    @Override
+    public BookPage findBookByAuthor(String author, String after, Integer size, BookFields fields) {
+        return projectedPage("findBookByAuthorProjected", "author", author, after, size, fields);
+    }
+
+    /** Fetches a page of books of a department in ISBN order, reading only the requested fields.
+     * @param department name of the department.
+     * @param after ISBN of the last book of the previous page, null for the first page.
+     * @param size the requested page size, capped at {@link BookPage#MAX_SIZE}.
+     * @param fields the properties to read, e.g. {@link BookFields#SUMMARY}.
+     * @return a page of trimmed books and the cursor for the next page.
+     */
+    @Override
+    public BookPage findBooksByDepartment(String department, String after, Integer size, BookFields fields) {
+        return projectedPage("findBooksByDepartmentProjected", "department", department, after, size, fields);
+    }
+
+    /** Version of the whole catalogue, which changes whenever a book is added, removed or changes availability.
+     * Read it before the data it labels.
+     * @return an opaque version to be used as an ETag.
+     */
+    @Override
+    public String catalogueVersion() {
+        return catalogueVersion.current();
+    }
+
+    /** Version of the books in a department, which only changes with the books of that department.
+     * Read it before the data it labels.
+     * @param department name of the department.
+     * @return an opaque version to be used as an ETag.
+     */
+    @Override
+    public String departmentVersion(String department) {
+        return catalogueVersion.current(department);
+    }
+
+    /** Version of the books by an author, which only changes with the books by that author.
+     * Read it before the data it labels.
+     * @param author name of the author.
+     * @return an opaque version to be used as an ETag.
+     */
+    @Override
+    public String authorVersion(String author) {
+        return catalogueVersion.currentOfAuthor(author);
+    }
+
+    /** Counts of books and available books for the whole catalogue, every department and every genre.
+     * Served from counters kept current on every write and periodically reconciled with the DB.
+     * @return the current counts.
+     */
+    @Override
+    public CatalogueStats catalogueStats() {
+        return catalogueStatistics.stats();
+    }
+
+    /** Searches titles and authors for books matching every word of a free text query.
+     * Served entirely from the in-memory search index.
+     * @param query free text, each word may be a prefix or contain a single typo.
+     * @param after cursor returned with the previous page, null for the first page.
+     * @param size the requested page size, capped at {@link BookPage#MAX_SIZE}.
+     * @return a page of matching books, best matches first.
+     */
+    @Override
+    public BookPage searchBooks(String query, String after, Integer size) {
+        return bookSearchIndex.search(query, after, size);
+    }
+
+    /** Streams all registered books from a DB cursor.
+     * @return a stream of books, which must be closed by the caller.
+     */
+    @Override
+    public Stream<Book> streamAllBooks() {
+        return bookRepository.streamAllBy();
+    }
+
+    /** Streams all currently available books from a DB cursor.
+     * @return a stream of books, which must be closed by the caller.
+     */
+    @Override
+    public Stream<Book> streamAvailableBooks() {
+        return bookRepository.streamByIsAvailable(Boolean.TRUE);
+    }
+
+    /** Streams all books matching a title from a DB cursor.
+     * @param title to match the books in the library.
+     * @return a stream of books, which must be closed by the caller.
+     */
+    @Override
+    public Stream<Book> streamBooksByTitle(String title) {
+        return bookRepository.streamByTitle(title);
+    }
+
+    /** Streams all books by an author from a DB cursor.
+     * @param author of the books to be fetched from the library.
+     * @return a stream of books, which must be closed by the caller.
+     */
+    @Override
+    public Stream<Book> streamBooksByAuthor(String author) {
+        return bookRepository.streamByAuthor(author);
+    }
+
+    private static String cursor(String after) {
+        return after == null ? "" : after; // every ISBN sorts after the empty string.
+    }
+
+    private AvailabilityChange changeAvailability(String isbn, boolean available) {
+        Book updated = bookRepository.updateAvailability(isbn, !available, available);
+        if (updated == null) {
+            // only failures pay for telling a conflict from a missing book.
+            return new AvailabilityChange(bookRepository.existsByIsbn(isbn)
+                    ? AvailabilityChange.Status.CONFLICT : AvailabilityChange.Status.NOT_FOUND, null);
+        }
+        bookSearchIndex.index(updated);
+        catalogueVersion.changed(updated);
+        catalogueStatistics.availabilityChanged(updated);
+        return new AvailabilityChange(AvailabilityChange.Status.CHANGED, updated);
+    }
+
+    private BookPage projectedPage(String operation, String property, Object value, String after, Integer size, BookFields fields) {
+        int pageSize = BookPage.clampSize(size);
+        return shared(operation, Arrays.asList(value, after, pageSize, fields), () ->
+                BookPage.of(bookRepository.findProjectedPage(property, value, cursor(after), pageSize + 1, fields), pageSize));
+    }
+
+    /**
+     * Runs a read through the single flight, shared only by callers that took the same catalogue version first.
+     * Writes change the version once they complete, so a caller that took the version after a write, e.g. for an
+     * ETag or a cached response, never gets the result of a read that started before it.
+     */
+    private <V> V shared(String operation, Object key, Supplier<V> query) {
+        return singleFlight.execute(operation, Arrays.asList(catalogueVersion.current(), key), query);
+    }
+
+    private void insertBatch(List<Book> batch, BulkResult result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Map<Integer, BulkOutcome.Status> rejected = bookRepository.insertAllUnordered(batch);
+        for (int i = 0; i < batch.size(); i++) {
+            if (rejected.containsKey(i)) {
+                result.add(batch.get(i).getIsbn(), rejected.get(i));
+            } else {
+                bookSearchIndex.index(batch.get(i));
+                catalogueVersion.changed(batch.get(i));
+                catalogueStatistics.added(batch.get(i));
+                result.add(batch.get(i).getIsbn(), BulkOutcome.Status.INSERTED);
+            }
+        }
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
     }
 }
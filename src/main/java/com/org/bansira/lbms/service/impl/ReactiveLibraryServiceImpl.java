@@ -0,0 +1,249 @@
+/**
+ * This package contains service layer implementations of Library APIs.
+ */
+package com.org.bansira.lbms.service.impl;
+
+import com.org.bansira.lbms.config.CacheConfig;
+import com.org.bansira.lbms.data.ReactiveBookRepository;
+import com.org.bansira.lbms.domain.Book;
+import com.org.bansira.lbms.domain.BookPage;
+import com.org.bansira.lbms.domain.BulkOutcome;
+import com.org.bansira.lbms.domain.BulkResult;
+import com.org.bansira.lbms.search.BookSearchIndex;
+import com.org.bansira.lbms.service.ReactiveLibraryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@Profile("reactive")
+public class ReactiveLibraryServiceImpl implements ReactiveLibraryService {
+
+    @Autowired
+    ReactiveBookRepository reactiveBookRepository;
+
+    @Autowired
+    BookSearchIndex bookSearchIndex;
+
+    @Autowired
+    CatalogueVersion catalogueVersion;
+
+    @Autowired
+    CatalogueStatistics catalogueStatistics;
+
+    @Autowired(required = false)
+    CacheManager cacheManager; // absent when the caches are disabled.
+
+    /** Adds a book to the library, relying on the unique ISBN index to reject duplicates.
+     * @param book the book to be added.
+     * @return the saved book, or an empty Mono if a book with the same ISBN already exists.
+     * @throws IllegalArgumentException through the Mono if the book has no ISBN.
+     */
+    @Override
+    public Mono<Book> addBook(Book book) {
+        if (isBlank(book.getIsbn())) {
+            return Mono.error(new IllegalArgumentException("Book is missing its ISBN"));
+        }
+        return reactiveBookRepository.insert(book)
+                .doOnNext(this::added)
+                .onErrorResume(DuplicateKeyException.class, e -> Mono.empty());
+    }
+
+    /** Adds books to the library in batches of unordered bulk writes.
+     * Batches are requested from the source only as fast as they are written.
+     * @param books the books to be added.
+     * @return the number of inserted, duplicate, invalid and failed books and the outcome for each ISBN.
+     */
+    @Override
+    public Mono<BulkResult> addBooks(Flux<Book> books) {
+        BulkResult result = new BulkResult();
+        return books
+                .buffer(LibraryServiceImpl.BULK_BATCH_SIZE)
+                .concatMap(batch -> {
+                    List<Book> valid = new ArrayList<>(batch.size());
+                    for (Book book : batch) {
+                        if (isBlank(book.getIsbn()) || isBlank(book.getTitle())) {
+                            result.add(book.getIsbn(), BulkOutcome.Status.INVALID);
+                        } else {
+                            valid.add(book);
+                        }
+                    }
+                    return reactiveBookRepository.insertAllUnordered(valid).doOnNext(rejected -> record(valid, rejected, result));
+                })
+                .then(Mono.fromSupplier(() -> result));
+    }
+
+    /** Fetches a Book by ISBN.
+     * @param isbn is the unique id of the book to be fetched.
+     * @return the book with given ISBN or an empty Mono.
+     */
+    @Override
+    public Mono<Book> findBookByIsbn(String isbn) {
+        return reactiveBookRepository.findByIsbn(isbn);
+    }
+
+    /** Streams all registered books in the library.
+     * @return the books registered in the library, emitted as the subscriber requests them.
+     */
+    @Override
+    public Flux<Book> listAllBooks() {
+        return reactiveBookRepository.findAll();
+    }
+
+    /** Streams all books that are currently available in the library.
+     * @return the books currently available in the library.
+     */
+    @Override
+    public Flux<Book> listAvailableBooks() {
+        return reactiveBookRepository.findByIsAvailable(Boolean.TRUE);
+    }
+
+    /** Streams all books matching a title provided.
+     * @param title to match the books in the library.
+     * @return the books matching the given title.
+     */
+    @Override
+    public Flux<Book> findBookByTitle(String title) {
+        return reactiveBookRepository.findByTitle(title);
+    }
+
+    /** Streams all books by author.
+     * @param author of the books to be fetched from the library.
+     * @return the books by the author provided.
+     */
+    @Override
+    public Flux<Book> findBookByAuthor(String author) {
+        return reactiveBookRepository.findByAuthor(author);
+    }
+
+    /** Removes a book by ISBN provided.
+     * @param isbn is the unique id of the book to be removed from the library.
+     * @return a count of books successfully removed from the library.
+     */
+    @Override
+    public Mono<Long> removeBook(String isbn) {
+        return reactiveBookRepository.deleteByIsbn(isbn)
+                .doOnNext(removed -> {
+                    if (removed > 0) {
+                        Book book = bookSearchIndex.remove(isbn);
+                        if (book != null) {
+                            catalogueVersion.changed(book);
+                            catalogueStatistics.removed(book);
+                        } else { // counted again on the next reconciliation.
+                            catalogueVersion.changedAnywhere();
+                        }
+                        evict(isbn);
+                    }
+                });
+    }
+
+    /** Fetches a page of registered books in ISBN order.
+     * @param after ISBN of the last book of the previous page, null for the first page.
+     * @param size the requested page size, capped at {@link BookPage#MAX_SIZE}.
+     * @return a page of books and the cursor for the next page.
+     */
+    @Override
+    public Mono<BookPage> listAllBooks(String after, Integer size) {
+        int pageSize = BookPage.clampSize(size);
+        return page(reactiveBookRepository.findByIsbnGreaterThanOrderByIsbnAsc(cursor(after), Limit.of(pageSize + 1)), pageSize);
+    }
+
+    /** Fetches a page of currently available books in ISBN order.
+     * @param after ISBN of the last book of the previous page, null for the first page.
+     * @param size the requested page size, capped at {@link BookPage#MAX_SIZE}.
+     * @return a page of books and the cursor for the next page.
+     */
+    @Override
+    public Mono<BookPage> listAvailableBooks(String after, Integer size) {
+        int pageSize = BookPage.clampSize(size);
+        return page(reactiveBookRepository.findByIsAvailableAndIsbnGreaterThanOrderByIsbnAsc(Boolean.TRUE, cursor(after), Limit.of(pageSize + 1)), pageSize);
+    }
+
+    /** Fetches a page of books matching a title in ISBN order.
+     * @param title to match the books in the library.
+     * @param after ISBN of the last book of the previous page, null for the first page.
+     * @param size the requested page size, capped at {@link BookPage#MAX_SIZE}.
+     * @return a page of books and the cursor for the next page.
+     */
+    @Override
+    public Mono<BookPage> findBookByTitle(String title, String after, Integer size) {
+        int pageSize = BookPage.clampSize(size);
+        return page(reactiveBookRepository.findByTitleAndIsbnGreaterThanOrderByIsbnAsc(title, cursor(after), Limit.of(pageSize + 1)), pageSize);
+    }
+
+    /** Fetches a page of books by an author in ISBN order.
+     * @param author of the books to be fetched from the library.
+     * @param after ISBN of the last book of the previous page, null for the first page.
+     * @param size the requested page size, capped at {@link BookPage#MAX_SIZE}.
+     * @return a page of books and the cursor for the next page.
+     */
+    @Override
+    public Mono<BookPage> findBookByAuthor(String author, String after, Integer size) {
+        int pageSize = BookPage.clampSize(size);
+        return page(reactiveBookRepository.findByAuthorAndIsbnGreaterThanOrderByIsbnAsc(author, cursor(after), Limit.of(pageSize + 1)), pageSize);
+    }
+
+    /** Searches titles and authors using the in-memory search index.
+     * @param query free text, each word may be a prefix or contain a single typo.
+     * @param after cursor returned with the previous page, null for the first page.
+     * @param size the requested page size, capped at {@link BookPage#MAX_SIZE}.
+     * @return a page of matching books, best matches first.
+     */
+    @Override
+    public Mono<BookPage> searchBooks(String query, String after, Integer size) {
+        return Mono.fromSupplier(() -> bookSearchIndex.search(query, after, size));
+    }
+
+    private void record(List<Book> batch, Map<Integer, BulkOutcome.Status> rejected, BulkResult result) {
+        for (int i = 0; i < batch.size(); i++) {
+            if (rejected.containsKey(i)) {
+                result.add(batch.get(i).getIsbn(), rejected.get(i));
+            } else {
+                added(batch.get(i));
+                result.add(batch.get(i).getIsbn(), BulkOutcome.Status.INSERTED);
+            }
+        }
+    }
+
+    /**
+     * Keeps the search index, the catalogue version and statistics, and the ISBN cache of the blocking service
+     * current with a book inserted here, in the same order as {@link LibraryServiceImpl}.
+     */
+    private void added(Book book) {
+        bookSearchIndex.index(book);
+        catalogueVersion.changed(book);
+        catalogueStatistics.added(book);
+        evict(book.getIsbn());
+    }
+
+    private void evict(String isbn) {
+        if (cacheManager != null) {
+            Cache cache = cacheManager.getCache(CacheConfig.BOOKS_BY_ISBN);
+            if (cache != null) {
+                cache.evict(isbn); // the CLI looks books up through the cached blocking service.
+            }
+        }
+    }
+
+    private static Mono<BookPage> page(Flux<Book> fetched, int size) {
+        return fetched.collectList().map(books -> BookPage.of(books, size));
+    }
+
+    private static String cursor(String after) {
+        return after == null ? "" : after; // every ISBN sorts after the empty string.
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * This package contains service layer implementations of Library APIs.
+ */
+package com.org.bansira.lbms.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent identical lookups into one backend query.
+ * The first caller for a key runs the query, callers arriving while it is in flight wait for and share its result
+ * or exception. Nothing is kept once the query completes, so later callers always query again.
+ * Every call is counted as {@code lbms.singleflight.calls} and every shared one as
+ * {@code lbms.singleflight.collapsed}, both tagged by operation.
+ */
+@Component
+public class SingleFlight {
+
+    private final Map<List<Object>, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Counter[]> counters = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public SingleFlight(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * @param operation name of the lookup, part of the key and the metrics tag.
+     * @param key the lookup arguments, compared with {@code equals}, use a list for several arguments.
+     * @param query runs the lookup when no identical one is in flight.
+     * @return the result of the query, possibly shared with other callers so it must not be modified.
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V execute(String operation, Object key, Supplier<V> query) {
+        Counter[] operationCounters = counters.computeIfAbsent(operation, this::register);
+        operationCounters[0].increment();
+        List<Object> flightKey = Arrays.asList(operation, key);
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> leader = inFlight.putIfAbsent(flightKey, flight);
+        if (leader != null) {
+            operationCounters[1].increment();
+            return (V) await(leader);
+        }
+        try {
+            V result = query.get();
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, flight);
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> leader) {
+        try {
+            return leader.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private Counter[] register(String operation) {
+        return new Counter[] {
+                Counter.builder("lbms.singleflight.calls").tag("operation", operation).register(meterRegistry),
+                Counter.builder("lbms.singleflight.collapsed").tag("operation", operation).register(meterRegistry)
+        };
+    }
+}
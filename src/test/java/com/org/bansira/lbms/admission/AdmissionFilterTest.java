@@ -0,0 +1,68 @@
+/**
+ * This package contains the unit tests for admission control.
+ */
+package com.org.bansira.lbms.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdmissionFilterTest {
+
+    @Test
+    @DisplayName("Requests are classified by endpoint")
+    void testClassify() {
+        assertEquals(AdmissionLimiter.RequestClass.LOOKUP, AdmissionFilter.classify(request("GET", "/api/books/978-0-45228-425-0")));
+        assertEquals(AdmissionLimiter.RequestClass.SCAN, AdmissionFilter.classify(request("GET", "/api/books")));
+        assertEquals(AdmissionLimiter.RequestClass.SCAN, AdmissionFilter.classify(request("GET", "/api/books/available")));
+        assertEquals(AdmissionLimiter.RequestClass.SCAN, AdmissionFilter.classify(request("GET", "/api/books/author/Orwell")));
+        assertEquals(AdmissionLimiter.RequestClass.WRITE, AdmissionFilter.classify(request("POST", "/api/books/isbn-1/checkout")));
+        assertEquals(AdmissionLimiter.RequestClass.WRITE, AdmissionFilter.classify(request("DELETE", "/api/books/isbn-1")));
+        assertEquals(AdmissionLimiter.RequestClass.BULK, AdmissionFilter.classify(request("POST", "/api/books/bulk")));
+        assertEquals(AdmissionLimiter.RequestClass.BULK, AdmissionFilter.classify(request("GET", "/api/books/export")));
+        MockHttpServletRequest stream = request("GET", "/api/books/available");
+        stream.addHeader("Accept", "application/x-ndjson");
+        assertEquals(AdmissionLimiter.RequestClass.BULK, AdmissionFilter.classify(stream));
+        assertNull(AdmissionFilter.classify(request("GET", "/api/books/search")));
+        assertNull(AdmissionFilter.classify(request("GET", "/api/stats")));
+    }
+
+    @Test
+    @DisplayName("Rejected requests get 503 with Retry-After and never reach the endpoint")
+    void testDoFilter_Rejected() throws Exception {
+        AdmissionLimiter limiter = new AdmissionLimiter(Map.of(
+                AdmissionLimiter.RequestClass.LOOKUP, new AdaptiveLimit(1, 1, 1, false),
+                AdmissionLimiter.RequestClass.WRITE, new AdaptiveLimit(1, 1, 1, false),
+                AdmissionLimiter.RequestClass.SCAN, new AdaptiveLimit(1, 1, 1, false),
+                AdmissionLimiter.RequestClass.BULK, new AdaptiveLimit(1, 1, 1, false)),
+                Map.of(), new SimpleMeterRegistry());
+        AdmissionFilter filter = new AdmissionFilter(limiter, 2);
+        AdmissionLimiter.Permit held = limiter.tryAcquire(AdmissionLimiter.RequestClass.SCAN);
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        MockFilterChain rejectedChain = new MockFilterChain();
+        filter.doFilter(request("GET", "/api/books"), rejected, rejectedChain);
+        held.release();
+        MockHttpServletResponse admitted = new MockHttpServletResponse();
+        MockFilterChain admittedChain = new MockFilterChain();
+        filter.doFilter(request("GET", "/api/books"), admitted, admittedChain);
+
+        assertEquals(503, rejected.getStatus());
+        assertEquals("2", rejected.getHeader("Retry-After"));
+        assertNull(rejectedChain.getRequest());
+        assertEquals(200, admitted.getStatus());
+        assertNotNull(admittedChain.getRequest());
+        assertNotNull(limiter.tryAcquire(AdmissionLimiter.RequestClass.SCAN)); // the admitted request released its permit.
+    }
+
+    private static MockHttpServletRequest request(String method, String uri) {
+        return new MockHttpServletRequest(method, uri);
+    }
+}
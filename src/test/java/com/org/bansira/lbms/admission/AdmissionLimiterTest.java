@@ -0,0 +1,101 @@
+/**
+ * This package contains the unit tests for admission control.
+ */
+package com.org.bansira.lbms.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdmissionLimiterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private AdmissionLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        limiter = new AdmissionLimiter(Map.of(
+                AdmissionLimiter.RequestClass.LOOKUP, new AdaptiveLimit(1, 1, 10, false),
+                AdmissionLimiter.RequestClass.WRITE, new AdaptiveLimit(1, 1, 10, false),
+                AdmissionLimiter.RequestClass.SCAN, new AdaptiveLimit(2, 1, 10, false),
+                AdmissionLimiter.RequestClass.BULK, new AdaptiveLimit(1, 1, 1, false)),
+                Map.of(AdmissionLimiter.RequestClass.LOOKUP, new AdmissionLimiter.Queueing(1, Duration.ofSeconds(5))),
+                meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Requests over the limit of a class without a queue are rejected at once")
+    void testTryAcquire_RejectsOverLimit() throws InterruptedException {
+        AdmissionLimiter.Permit first = limiter.tryAcquire(AdmissionLimiter.RequestClass.SCAN);
+        AdmissionLimiter.Permit second = limiter.tryAcquire(AdmissionLimiter.RequestClass.SCAN);
+
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNull(limiter.tryAcquire(AdmissionLimiter.RequestClass.SCAN));
+        second.release();
+        second.release(); // a second release is ignored.
+        assertNotNull(limiter.tryAcquire(AdmissionLimiter.RequestClass.SCAN));
+        assertNull(limiter.tryAcquire(AdmissionLimiter.RequestClass.SCAN));
+        assertEquals(2, meterRegistry.counter("lbms.admission.rejected", "class", "scan", "reason", "limit").count());
+        assertEquals(2, meterRegistry.get("lbms.admission.in.flight").tag("class", "scan").gauge().value());
+    }
+
+    @Test
+    @DisplayName("A waiting lookup gets the next permit and holds back lower classes meanwhile")
+    void testTryAcquire_LookupsFirst() throws Exception {
+        AdmissionLimiter.Permit held = limiter.tryAcquire(AdmissionLimiter.RequestClass.LOOKUP);
+        CompletableFuture<AdmissionLimiter.Permit> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return limiter.tryAcquire(AdmissionLimiter.RequestClass.LOOKUP);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        while (meterRegistry.get("lbms.admission.queued").tag("class", "lookup").gauge().value() < 1) {
+            Thread.sleep(5);
+        }
+
+        assertNull(limiter.tryAcquire(AdmissionLimiter.RequestClass.SCAN));
+        assertNull(limiter.tryAcquire(AdmissionLimiter.RequestClass.LOOKUP)); // the queue holds a single lookup.
+        held.release();
+        assertNotNull(waiting.get(5, TimeUnit.SECONDS));
+        assertNotNull(limiter.tryAcquire(AdmissionLimiter.RequestClass.SCAN));
+    }
+
+    @Test
+    @DisplayName("The limit grows while latency is steady and shrinks when requests slow down")
+    void testAdaptiveLimit_FollowsLatency() {
+        AdaptiveLimit limit = new AdaptiveLimit(10, 2, 100, true);
+        for (int i = 0; i < 50; i++) {
+            limit.sample(TimeUnit.MILLISECONDS.toNanos(5), limit.get());
+        }
+        int grown = limit.get();
+        for (int i = 0; i < 50; i++) {
+            limit.sample(TimeUnit.MILLISECONDS.toNanos(100), limit.get());
+        }
+
+        assertTrue(grown > 10, "grew to " + grown);
+        assertTrue(limit.get() < grown / 2, "shrank to " + limit.get());
+        assertTrue(limit.get() >= 2);
+    }
+
+    @Test
+    @DisplayName("An idle class does not grow its limit")
+    void testAdaptiveLimit_IdleKeepsLimit() {
+        AdaptiveLimit limit = new AdaptiveLimit(10, 2, 100, true);
+        for (int i = 0; i < 50; i++) {
+            limit.sample(TimeUnit.MILLISECONDS.toNanos(5), 1);
+        }
+
+        assertEquals(10, limit.get());
+    }
+}
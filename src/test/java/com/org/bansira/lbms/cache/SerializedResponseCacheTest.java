@@ -0,0 +1,100 @@
+/**
+ * This package contains the unit tests for the cache of serialized responses.
+ */
+package com.org.bansira.lbms.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SerializedResponseCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private SerializedResponseCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new SerializedResponseCache(meterRegistry);
+        ReflectionTestUtils.setField(cache, "maxSize", DataSize.ofMegabytes(1));
+    }
+
+    @Test
+    @DisplayName("A body is served at the version it was stored for and dropped once asked for at a newer version")
+    void testGet_Version() throws IOException {
+        byte[] json = "[{\"isbn\":\"isbn-1\"}]".getBytes(StandardCharsets.UTF_8);
+        SerializedResponseCache.Body stored = cache.put(List.of("available"), "v-1", json, 1);
+        cache.put(List.of("author", "Tolkien"), "v-4", json, 1);
+
+        SerializedResponseCache.Body hit = cache.get(List.of("available"), "v-1");
+        assertSame(stored, hit);
+        assertArrayEquals(json, new GZIPInputStream(new ByteArrayInputStream(hit.gzip())).readAllBytes());
+        assertEquals(1, hit.results());
+        assertNull(cache.get(List.of("available"), "v-0"));
+        assertEquals(2, cache.entries());
+
+        assertNull(cache.get(List.of("available"), "v-2"));
+        assertNotNull(cache.get(List.of("author", "Tolkien"), "v-4"));
+        assertEquals(1, cache.entries());
+        assertEquals(2, meterRegistry.get("lbms.response.cache.requests").tag("result", "hit").counter().count());
+        assertEquals(2, meterRegistry.get("lbms.response.cache.requests").tag("result", "miss").counter().count());
+        assertEquals(1, meterRegistry.get("lbms.response.cache.evictions").counter().count());
+    }
+
+    @Test
+    @DisplayName("A body read at an older version does not replace the one kept")
+    void testPut_OlderVersionDropped() {
+        byte[] fresh = "[{\"isbn\":\"isbn-2\"}]".getBytes(StandardCharsets.UTF_8);
+        byte[] stale = "[{\"isbn\":\"isbn-1\"}]".getBytes(StandardCharsets.UTF_8);
+        SerializedResponseCache.Body kept = cache.put(List.of("available"), "v-10", fresh, 1);
+
+        SerializedResponseCache.Body served = cache.put(List.of("available"), "v-9", stale, 1);
+
+        assertArrayEquals(stale, served.json());
+        assertSame(kept, cache.get(List.of("available"), "v-10"));
+        assertNull(cache.get(List.of("available"), "v-9"));
+        assertEquals(kept.size(), cache.size());
+    }
+
+    @Test
+    @DisplayName("The least recently used bodies are evicted to stay within the memory budget")
+    void testPut_EvictsLeastRecentlyUsed() {
+        byte[] json = new byte[100_000]; // gzips to a few hundred bytes.
+        SerializedResponseCache.Body body = cache.put(List.of("author", "a"), "v-1", json, 0);
+        ReflectionTestUtils.setField(cache, "maxSize", DataSize.ofBytes(body.size() * 4));
+        cache.put(List.of("author", "b"), "v-1", json, 0);
+        cache.put(List.of("author", "c"), "v-1", json, 0);
+        cache.put(List.of("author", "d"), "v-1", json, 0);
+        cache.get(List.of("author", "a"), "v-1");
+
+        cache.put(List.of("author", "e"), "v-1", json, 0);
+
+        assertNotNull(cache.get(List.of("author", "a"), "v-1"));
+        assertNull(cache.get(List.of("author", "b"), "v-1"));
+        assertNotNull(cache.get(List.of("author", "e"), "v-1"));
+        assertEquals(4, cache.entries());
+        assertEquals(body.size() * 4, cache.size());
+        assertEquals(1, meterRegistry.get("lbms.response.cache.evictions").counter().count());
+    }
+
+    @Test
+    @DisplayName("A body over a quarter of the budget is served but not kept")
+    void testPut_TooLarge() {
+        SerializedResponseCache.Body body = cache.put(List.of("available"), "v-1", new byte[300_000], 0);
+
+        assertEquals(300_000, body.json().length);
+        assertNull(cache.get(List.of("available"), "v-1"));
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * This package contains the unit tests for the binary encodings of the book payloads.
+ */
+package com.org.bansira.lbms.codec;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.protobuf.schema.NativeProtobufSchema;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufField;
+import com.org.bansira.lbms.domain.Book;
+import com.org.bansira.lbms.domain.BookFields;
+import com.org.bansira.lbms.domain.BookPage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProtobufBookHttpMessageConverterTest {
+
+    private final ProtobufBookHttpMessageConverter converter = new ProtobufBookHttpMessageConverter();
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @Test
+    @DisplayName("The protobuf schema has a field for every JSON property of a book and a page")
+    void testSchema_MatchesJson() throws IOException {
+        Book book = new Book("id-1", "1984", "978-0-45228-425-0", "George Orwell", "Dystopian", 1949, "Literature", true);
+        book.setVersion(3L);
+        NativeProtobufSchema schema = ProtobufBookHttpMessageConverter.schema();
+
+        assertEquals(jsonProperties(book), fieldNames(schema, "Book"));
+        assertEquals(jsonProperties(new BookPage(List.of(book), "978-0-45228-425-0")), fieldNames(schema, "BookPage"));
+    }
+
+    @Test
+    @DisplayName("A book, a list and a page of projected books read back as they were written")
+    void testRoundTrip() throws IOException {
+        Book book = new Book("id-1", "1984", "978-0-45228-425-0", "George Orwell", "Dystopian", 1949, "Literature", false);
+        Book summary = BookFields.SUMMARY.project(new Book("The Hobbit", "978-0-26110-221-7", "J. R. R. Tolkien",
+                "Fantasy", 1937, "Literature", true));
+        Type bookList = new TypeReference<List<Book>>() { }.getType();
+
+        assertEquals(json(book), json(roundTrip(book, Book.class)));
+        assertEquals(json(List.of(book, summary)), json(roundTrip(List.of(book, summary), bookList)));
+        assertEquals(json(new BookPage(List.of(summary), summary.getIsbn())),
+                json(roundTrip(new BookPage(List.of(summary), summary.getIsbn()), BookPage.class)));
+        assertEquals(List.of(), roundTrip(List.of(), bookList));
+        assertEquals(new BookPage(List.of(), null), roundTrip(new BookPage(List.of(), null), BookPage.class));
+    }
+
+    @Test
+    @DisplayName("Bodies other than books are not encoded")
+    void testWrite_NotBooks() {
+        assertThrows(HttpMessageNotWritableException.class, () -> converter.write(List.of("No Books Found"), new ByteArrayOutputStream()));
+        assertThrows(HttpMessageNotWritableException.class, () -> converter.write("No Books Found", new ByteArrayOutputStream()));
+    }
+
+    private Object roundTrip(Object value, Type type) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        converter.write(value, out);
+        return converter.read(type, new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private String json(Object value) throws IOException {
+        return objectMapper.writeValueAsString(value);
+    }
+
+    private Set<String> jsonProperties(Object value) {
+        Set<String> names = new HashSet<>();
+        objectMapper.valueToTree(value).fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+
+    private static Set<String> fieldNames(NativeProtobufSchema schema, String message) {
+        Set<String> names = new HashSet<>();
+        for (ProtobufField field : schema.forType(message).getRootType().fields()) {
+            names.add(field.name);
+        }
+        return names;
+    }
+}
@@ -3,9 +3,23 @@
  */
 package com.org.bansira.lbms.controller;
 
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.org.bansira.lbms.cache.SerializedResponseCache;
+import com.org.bansira.lbms.codec.ProtobufBookHttpMessageConverter;
+import com.org.bansira.lbms.domain.AvailabilityChange;
 import com.org.bansira.lbms.domain.Book;
+import com.org.bansira.lbms.domain.BookFields;
+import com.org.bansira.lbms.domain.BookFilter;
+import com.org.bansira.lbms.domain.BookPage;
+import com.org.bansira.lbms.domain.BulkJob;
+import com.org.bansira.lbms.domain.BulkOutcome;
+import com.org.bansira.lbms.domain.BulkResult;
+import com.org.bansira.lbms.domain.QueuedWrite;
+import com.org.bansira.lbms.metrics.LibraryMetrics;
 import com.org.bansira.lbms.security.TestSecurityConfig;
 import com.org.bansira.lbms.service.LibraryService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -14,16 +28,35 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpInputMessage;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
-
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -39,9 +72,23 @@ public class LibraryControllerTest {
     @MockBean
     private LibraryService libraryService;
 
+    @MockBean
+    private LibraryMetrics libraryMetrics;
+
     private Book book1;
     private Book book2;
 
+    /**
+     * The serialized response cache with its own meter registry, so the slice does not start recording requests.
+     */
+    @TestConfiguration
+    static class ResponseCacheConfig {
+        @Bean
+        SerializedResponseCache serializedResponseCache() {
+            return new SerializedResponseCache(new SimpleMeterRegistry());
+        }
+    }
+
     /**
      * Dummy Book objects for running tests.
      */
@@ -75,6 +122,92 @@ public class LibraryControllerTest {
                         .content("{ \"isbn\": \"978-1-56619-909-4\", \"title\": \"The Adventures of Sherlock Holmes\", \"author\": \"Arthur Conan Doyle\", \"genre\": \"Mystery\", \"publicationYear\": 1892, \"department\": \"Literature\", \"isAvailable\": true }"))
                 .andExpect(status().isConflict())
                 .andExpect(content().string("Book with ISBN 978-1-56619-909-4 already exists"));
+        verify(libraryMetrics).recordOutcome("add", LibraryMetrics.CONFLICT);
+    }
+
+    @Test
+    @WithMockUser
+    @DisplayName("Add Book without an ISBN Scenario")
+    public void testAddBook_MissingIsbn() throws Exception {
+        when(libraryService.addBook(any(Book.class))).thenThrow(new IllegalArgumentException("Book is missing its ISBN"));
+
+        mockMvc.perform(post("/api/books/add")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"title\": \"The Adventures of Sherlock Holmes\", \"author\": \"Arthur Conan Doyle\" }"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Book is missing its ISBN"));
+    }
+
+    @Test
+    @WithMockUser
+    @DisplayName("Add Book with write-behind is accepted and can be followed")
+    public void testAddBook_WriteBehindQueued() throws Exception {
+        when(libraryService.isWriteBehind()).thenReturn(true);
+        when(libraryService.queueBook(any(Book.class))).thenReturn(new QueuedWrite("w-1", book1.getIsbn(), QueuedWrite.Status.QUEUED));
+        when(libraryService.findQueuedWrite("w-1")).thenReturn(Optional.of(new QueuedWrite("w-1", book1.getIsbn(), QueuedWrite.Status.INSERTED)));
+
+        mockMvc.perform(post("/api/books/add")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"isbn\": \"978-1-56619-909-4\", \"title\": \"The Adventures of Sherlock Holmes\" }"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/books/writes/w-1"))
+                .andExpect(jsonPath("$.status").value("QUEUED"));
+        mockMvc.perform(get("/api/books/writes/w-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("INSERTED"));
+        mockMvc.perform(get("/api/books/writes/unknown"))
+                .andExpect(status().isNotFound());
+        verify(libraryService, never()).addBook(any(Book.class));
+    }
+
+    @Test
+    @WithMockUser
+    @DisplayName("Add Book with write-behind while the queue is full")
+    public void testAddBook_WriteBehindFull() throws Exception {
+        when(libraryService.isWriteBehind()).thenReturn(true);
+        when(libraryService.queueBook(any(Book.class))).thenReturn(new QueuedWrite(null, book1.getIsbn(), QueuedWrite.Status.REJECTED));
+
+        mockMvc.perform(post("/api/books/add")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"isbn\": \"978-1-56619-909-4\", \"title\": \"The Adventures of Sherlock Holmes\" }"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "1"));
+    }
+
+    @Test
+    @WithMockUser
+    @DisplayName("Bulk move of a department is accepted and can be followed and cancelled")
+    public void testMoveBooks_Job() throws Exception {
+        BookFilter filter = new BookFilter("Literature", null, null, null);
+        BulkJob queued = new BulkJob("j-1", BulkJob.Type.MOVE, filter, "Archive", BulkJob.Status.QUEUED, 2, 0, 0, 0, null, null, null, null);
+        BulkJob cancelled = new BulkJob("j-1", BulkJob.Type.MOVE, filter, "Archive", BulkJob.Status.CANCELLED, 2, 1, 1, 1, null, null, null, "Cancelled");
+        when(libraryService.moveBooks(filter, "Archive")).thenReturn(queued);
+        when(libraryService.cancelBulkJob("j-1")).thenReturn(Optional.of(cancelled));
+
+        mockMvc.perform(post("/api/books/jobs/move").param("to", "Archive")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"department\": \"Literature\" }"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/books/jobs/j-1"))
+                .andExpect(jsonPath("$.status").value("QUEUED"));
+        mockMvc.perform(delete("/api/books/jobs/j-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.processed").value(1))
+                .andExpect(jsonPath("$.status").value("CANCELLED"));
+        mockMvc.perform(get("/api/books/jobs/unknown"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser
+    @DisplayName("Bulk remove without a filter is rejected")
+    public void testRemoveBooks_EmptyFilter() throws Exception {
+        when(libraryService.removeBooks(any(BookFilter.class))).thenThrow(new IllegalArgumentException("A bulk job needs a filter"));
+
+        mockMvc.perform(post("/api/books/jobs/remove")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(status().isBadRequest());
     }
 
     @Test
@@ -104,23 +237,25 @@ public class LibraryControllerTest {
     @DisplayName("Get All Registered Books Success Scenario")
     public void testGetAllBooks_Found() throws Exception {
         List<Book> books = Arrays.asList(book1, book2);
-        when(libraryService.listAllBooks()).thenReturn(Optional.of(books));
+        when(libraryService.listAllBooks(null, null)).thenReturn(new BookPage(books, null));
 
         mockMvc.perform(get("/api/books"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$[0].isbn").value(book1.getIsbn()))
-                .andExpect(jsonPath("$[1].isbn").value(book2.getIsbn()));
+                .andExpect(jsonPath("$.books[0].isbn").value(book1.getIsbn()))
+                .andExpect(jsonPath("$.books[1].isbn").value(book2.getIsbn()));
+        verify(libraryService, never()).listAllBooks();
     }
 
     @Test
     @WithMockUser
     @DisplayName("Get All Registered Books Failure Scenario")
     public void testGetAllBooks_NotFound() throws Exception {
-        when(libraryService.listAllBooks()).thenReturn(Optional.empty());
+        when(libraryService.listAllBooks(null, null)).thenReturn(new BookPage(List.of(), null));
 
         mockMvc.perform(get("/api/books"))
                 .andExpect(status().isOk())
-                .andExpect(content().string("No Books Found"));
+                .andExpect(jsonPath("$.books").isEmpty())
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
     }
 
     @Test
@@ -128,23 +263,24 @@ public class LibraryControllerTest {
     @DisplayName("Get All Available Books Success Scenario")
     public void testGetAllAvailableBooks_Found() throws Exception {
         List<Book> books = Arrays.asList(book1, book2);
-        when(libraryService.listAvailableBooks()).thenReturn(Optional.of(books));
+        when(libraryService.listAvailableBooks(null, null)).thenReturn(new BookPage(books, book2.getIsbn()));
 
         mockMvc.perform(get("/api/books/available"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$[0].isbn").value(book1.getIsbn()))
-                .andExpect(jsonPath("$[1].isbn").value(book2.getIsbn()));
+                .andExpect(jsonPath("$.books[0].isbn").value(book1.getIsbn()))
+                .andExpect(jsonPath("$.books[1].isbn").value(book2.getIsbn()))
+                .andExpect(jsonPath("$.nextCursor").value(book2.getIsbn()));
     }
 
     @Test
     @WithMockUser
     @DisplayName("Get All Available Books Failure Scenario")
     public void testGetAllAvailableBooks_NotFound() throws Exception {
-        when(libraryService.listAvailableBooks()).thenReturn(Optional.empty());
+        when(libraryService.listAvailableBooks(null, null)).thenReturn(new BookPage(List.of(), null));
 
         mockMvc.perform(get("/api/books/available"))
                 .andExpect(status().isOk())
-                .andExpect(content().string("No Books Available"));
+                .andExpect(jsonPath("$.books").isEmpty());
     }
 
     @Test
@@ -152,22 +288,22 @@ public class LibraryControllerTest {
     @DisplayName("Get All Books matching given Title Success Scenario")
     public void testGetBookByTitle_Found() throws Exception {
         List<Book> books = Arrays.asList(book1);
-        when(libraryService.findBookByTitle("The Adventures of Sherlock Holmes")).thenReturn(Optional.of(books));
+        when(libraryService.findBookByTitle("The Adventures of Sherlock Holmes", null, null)).thenReturn(new BookPage(books, null));
 
         mockMvc.perform(get("/api/books/title/The Adventures of Sherlock Holmes"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$[0].isbn").value(book1.getIsbn()));
+                .andExpect(jsonPath("$.books[0].isbn").value(book1.getIsbn()));
     }
 
     @Test
     @WithMockUser
     @DisplayName("Get All Books matching given Title Failure Scenario")
     public void testGetBookByTitle_NotFound() throws Exception {
-        when(libraryService.findBookByTitle("The Adventures of Sherlock Holmes")).thenReturn(Optional.empty());
+        when(libraryService.findBookByTitle("The Adventures of Sherlock Holmes", null, null)).thenReturn(new BookPage(List.of(), null));
 
         mockMvc.perform(get("/api/books/title/The Adventures of Sherlock Holmes"))
                 .andExpect(status().isOk())
-                .andExpect(content().string("Book with Title The Adventures of Sherlock Holmesnot found"));
+                .andExpect(jsonPath("$.books").isEmpty());
     }
 
     @Test
@@ -175,22 +311,22 @@ public class LibraryControllerTest {
     @DisplayName("Get Books By Author Success Scenario")
     public void testGetBookByAuthor_Found() throws Exception {
         List<Book> books = Arrays.asList(book1);
-        when(libraryService.findBookByAuthor("Arthur Conan Doyle")).thenReturn(Optional.of(books));
+        when(libraryService.findBookByAuthor("Arthur Conan Doyle", null, null)).thenReturn(new BookPage(books, null));
 
         mockMvc.perform(get("/api/books/author/Arthur Conan Doyle"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$[0].isbn").value(book1.getIsbn()));
+                .andExpect(jsonPath("$.books[0].isbn").value(book1.getIsbn()));
     }
 
     @Test
     @WithMockUser
     @DisplayName("Get Books By Author Failure Scenario")
     public void testGetBookByAuthor_NotFound() throws Exception {
-        when(libraryService.findBookByAuthor("Arthur Conan Doyle")).thenReturn(Optional.empty());
+        when(libraryService.findBookByAuthor("Arthur Conan Doyle", null, null)).thenReturn(new BookPage(List.of(), null));
 
         mockMvc.perform(get("/api/books/author/Arthur Conan Doyle"))
                 .andExpect(status().isOk())
-                .andExpect(content().string("No Books by Author Arthur Conan DoyleFound"));
+                .andExpect(jsonPath("$.books").isEmpty());
     }
 
     @Test
@@ -203,4 +339,352 @@ public class LibraryControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().string("1"));
     }
+
+    @Test
+    @WithMockUser
+    @DisplayName("Get a Page of Registered Books Scenario")
+    public void testGetAllBooks_Paged() throws Exception {
+        when(libraryService.listAllBooks(isNull(), any(Integer.class))).thenReturn(new BookPage(Arrays.asList(book1), book1.getIsbn()));
+
+        mockMvc.perform(get("/api/books").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.books[0].isbn").value(book1.getIsbn()))
+                .andExpect(jsonPath("$.nextCursor").value(book1.getIsbn()));
+    }
+
+    @Test
+    @WithMockUser
+    @DisplayName("Get a Page of Books by Author after a Cursor Scenario")
+    public void testGetBookByAuthor_Paged() throws Exception {
+        when(libraryService.findBookByAuthor("George Orwell", book1.getIsbn(), null)).thenReturn(new BookPage(Arrays.asList(book2), null));
+
+        mockMvc.perform(get("/api/books/author/George Orwell").param("after", book1.getIsbn()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.books[0].isbn").value(book2.getIsbn()))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    @WithMockUser
+    @DisplayName("Get a Summary Page of Available Books Scenario")
+    public void testGetAllAvailableBooks_Summary() throws Exception {
+        Book summary = BookFields.SUMMARY.project(book1);
+        when(libraryService.listAvailableBooks(null, null, BookFields.SUMMARY)).thenReturn(new BookPage(Arrays.asList(summary), null));
+
+        mockMvc.perform(get("/api/books/available").param("fields", "summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.books[0].title").value(book1.getTitle()))
+                .andExpect(jsonPath("$.books[0].isAvailable").value(true))
+                .andExpect(jsonPath("$.books[0].genre").doesNotExist())
+                .andExpect(jsonPath("$.books[0].department").doesNotExist());
+    }
+
+    @Test
+    @WithMockUser
+    @DisplayName("Get Books by Title with selected Fields Scenario")
+    public void testGetBookByTitle_Fields() throws Exception {
+        when(libraryService.findBookByTitle("1984", null, null, BookFields.parse("isbn,publicationYear")))
+                .thenReturn(new BookPage(Arrays.asList(BookFields.parse("publicationYear").project(book2)), null));
+
+        mockMvc.perform(get("/api/books/title/1984").param("fields", "publicationYear"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.books[0].isbn").value(book2.getIsbn()))
+                .andExpect(jsonPath("$.books[0].publicationYear").value(1949))
+                .andExpect(jsonPath("$.books[0].title").doesNotExist());
+    }
+
+    @Test
+    @WithMockUser
+    @DisplayName("Unset fields are omitted from projected listings only")
+    public void testGetAllBooks_NullsOnlyOmittedWhenProjected() throws Exception {
+        Book untitled = new Book(null, "978-0-00000-000-0", "Anonymous", null, null, "Literature", true);
+        when(libraryService.listAllBooks(null, null)).thenReturn(new BookPage(List.of(untitled), null));
+        when(libraryService.listAllBooks(null, null, BookFields.SUMMARY))
+                .thenReturn(new BookPage(List.of(BookFields.SUMMARY.project(untitled)), null));
+
+        mockMvc.perform(get("/api/books"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"title\":null")))
+                .andExpect(content().string(containsString("\"genre\":null")));
+        mockMvc.perform(get("/api/books").param("fields", "summary"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.books[0].author").value("Anonymous"))
+                .andExpect(content().string(not(containsString("\"title\""))))
+                .andExpect(content().string(not(containsString("\"genre\""))));
+    }
+
+    @Test
+    @WithMockUser
+    @DisplayName("Get Books with an unknown Field Scenario")
+    public void testGetAllBooks_UnknownField() throws Exception {
+        mockMvc.perform(get("/api/books").param("fields", "title,price"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(matchesPattern("Unknown field price.*")));
+    }
+
+    @Test
+    @WithMockUser
+    @DisplayName("Get Available Books with the current ETag Scenario")
+    public void testGetAllAvailableBooks_NotModified() throws Exception {
+        when(libraryService.catalogueVersion()).thenReturn("v-7");
+
+        mockMvc.perform(get("/api/books/available").header("If-None-Match", "\"v-7\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"v-7\""))
+                .andExpect(content().string(""));
+        verify(libraryService, never()).listAvailableBooks(any(), any());
+    }
+
+    @Test
+    @WithMockUser
+    @DisplayName("Get All Books with an outdated ETag Scenario")
+    public void testGetAllBooks_Modified() throws Exception {
+        when(libraryService.catalogueVersion()).thenReturn("v-8");
+        when(libraryService.listAllBooks(null, null)).thenReturn(new BookPage(Arrays.asList(book1), null));
+
+        mockMvc.perform(get("/api/books").header("If-None-Match", "\"v-7\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"v-8\""))
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andExpect(jsonPath("$.books[0].isbn").value(book1.getIsbn()));
+    }
+
+    @Test
+    @WithMockUser
+    @DisplayName("Get a Page of Books of a Department with the current ETag Scenario")
+    public void testGetBooksByDepartment() throws Exception {
+        when(libraryService.departmentVersion("Literature")).thenReturn("v-3");
+        when(libraryService.findBooksByDepartment("Literature", null, null)).thenReturn(new BookPage(Arrays.asList(book1, book2), null));
+
+        mockMvc.perform(get("/api/books/department/Literature"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"v-3\""))
+                .andExpect(jsonPath("$.books[1].isbn").value(book2.getIsbn()));
+        mockMvc.perform(get("/api/books/department/Literature").header("If-None-Match", "\"v-3\""))
+                .andExpect(status().isNotModified());
+        verify(libraryService, times(1)).findBooksByDepartment("Literature", null, null);
+    }
+
+    @Test
+    @WithMockUser
+    @DisplayName("Check out a Book Success Scenario")
+    public void testCheckoutBook_Success() throws Exception {
+        book1.setIsAvailable(false);
+        book1.setVersion(3L);
+        when(libraryService.checkoutBook(book1.getIsbn())).thenReturn(new AvailabilityChange(AvailabilityChange.Status.CHANGED, book1));
+
+        mockMvc.perform(post("/api/books/" + book1.getIsbn() + "/checkout"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.isAvailable").value(false))
+                .andExpect(jsonPath("$.version").value(3));
+    }
+
+    @Test
+    @WithMockUser
+    @DisplayName("Check out a Book Conflict Scenario")
+    public void testCheckoutBook_Conflict() throws Exception {
+        when(libraryService.checkoutBook(book1.getIsbn())).thenReturn(new AvailabilityChange(AvailabilityChange.Status.CONFLICT, null));
+
+        mockMvc.perform(post("/api/books/" + book1.getIsbn() + "/checkout"))
+                .andExpect(status().isConflict())
+                .andExpect(content().string("Book with ISBN 978-1-56619-909-4 is already checked out"));
+        verify(libraryMetrics).recordOutcome("checkout", LibraryMetrics.CONFLICT);
+    }
+
+    @Test
+    @WithMockUser
+    @DisplayName("Return a Book Not Found Scenario")
+    public void testReturnBook_NotFound() throws Exception {
+        when(libraryService.returnBook("unknown")).thenReturn(new AvailabilityChange(AvailabilityChange.Status.NOT_FOUND, null));
+
+        mockMvc.perform(post("/api/books/unknown/return"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser
+    @DisplayName("Stream Available Books as NDJSON Scenario")
+    public void testStreamAvailableBooks() throws Exception {
+        when(libraryService.streamAvailableBooks()).thenReturn(Stream.of(book1, book2));
+
+        MvcResult result = mockMvc.perform(get("/api/books/available").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(matchesPattern(
+                        "(?s)\\{.*\"isbn\":\"978-1-56619-909-4\".*}\\n\\{.*\"isbn\":\"978-0-45228-425-0\".*}\\n")));
+    }
+
+    @Test
+    @WithMockUser
+    @DisplayName("Export the catalogue as gzipped CSV Scenario")
+    public void testExportBooks_GzippedCsv() throws Exception {
+        when(libraryService.streamAllBooks()).thenReturn(Stream.of(book1, book2));
+
+        MvcResult result = mockMvc.perform(get("/api/books/export").param("format", "csv").header("Accept-Encoding", "gzip"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        byte[] body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"books.csv\""))
+                .andReturn().getResponse().getContentAsByteArray();
+        String csv = new String(new GZIPInputStream(new ByteArrayInputStream(body)).readAllBytes(), StandardCharsets.UTF_8);
+        assertEquals(3, csv.lines().count());
+        assertTrue(csv.contains("978-0-45228-425-0"));
+    }
+
+    @Test
+    @WithMockUser
+    @DisplayName("Export in an unknown format Scenario")
+    public void testExportBooks_UnknownFormat() throws Exception {
+        mockMvc.perform(get("/api/books/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser
+    @DisplayName("Bulk Add Books from NDJSON Scenario")
+    public void testAddBooks_Ndjson() throws Exception {
+        when(libraryService.addBooks(any())).thenAnswer(invocation -> {
+            Iterator<Book> books = invocation.getArgument(0);
+            BulkResult result = new BulkResult();
+            books.forEachRemaining(book -> result.add(book.getIsbn(), BulkOutcome.Status.INSERTED));
+            return result;
+        });
+
+        mockMvc.perform(post("/api/books/bulk")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{ \"isbn\": \"978-1-56619-909-4\", \"title\": \"The Adventures of Sherlock Holmes\" }\n"
+                                + "{ \"isbn\": \"978-0-45228-425-0\", \"title\": \"1984\" }\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inserted").value(2))
+                .andExpect(jsonPath("$.outcomes[1].isbn").value(book2.getIsbn()))
+                .andExpect(jsonPath("$.outcomes[1].status").value("INSERTED"));
+    }
+
+    @Test
+    @WithMockUser
+    @DisplayName("Bulk Add Books from JSON Array Scenario")
+    public void testAddBooks_JsonArray() throws Exception {
+        when(libraryService.addBooks(any())).thenAnswer(invocation -> {
+            Iterator<Book> books = invocation.getArgument(0);
+            BulkResult result = new BulkResult();
+            books.forEachRemaining(book -> result.add(book.getIsbn(), BulkOutcome.Status.DUPLICATE));
+            return result;
+        });
+
+        mockMvc.perform(post("/api/books/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{ \"isbn\": \"978-1-56619-909-4\", \"title\": \"The Adventures of Sherlock Holmes\" }]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.duplicates").value(1))
+                .andExpect(jsonPath("$.outcomes[0].status").value("DUPLICATE"));
+    }
+
+    @Test
+    @WithMockUser
+    @DisplayName("Search Books by Partial Title Scenario")
+    public void testSearchBooks() throws Exception {
+        when(libraryService.searchBooks("sherlock hol", null, null)).thenReturn(new BookPage(Arrays.asList(book1), null));
+
+        mockMvc.perform(get("/api/books/search").param("q", "sherlock hol"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.books[0].isbn").value(book1.getIsbn()));
+    }
+
+    @Test
+    @WithMockUser
+    @DisplayName("Get All Books as CBOR Scenario")
+    public void testGetAllBooks_Cbor() throws Exception {
+        when(libraryService.listAllBooks(null, null)).thenReturn(new BookPage(Arrays.asList(book1, book2), null));
+
+        byte[] body = mockMvc.perform(get("/api/books").accept("application/cbor"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"))
+                .andExpect(header().stringValues("Vary", hasItem("Accept")))
+                .andReturn().getResponse().getContentAsByteArray();
+        List<Book> books = new CBORMapper().readValue(body, BookPage.class).getBooks();
+        assertEquals(Arrays.asList(book1, book2), books);
+        assertEquals(book2.getTitle(), books.get(1).getTitle());
+    }
+
+    @Test
+    @WithMockUser
+    @DisplayName("Add Book sent and answered as Smile Scenario")
+    public void testAddBook_Smile() throws Exception {
+        when(libraryService.addBook(any(Book.class))).thenAnswer(invocation -> Optional.of(invocation.getArgument(0)));
+        SmileMapper smile = new SmileMapper();
+
+        byte[] body = mockMvc.perform(post("/api/books/add")
+                        .contentType("application/x-jackson-smile")
+                        .accept("application/x-jackson-smile")
+                        .content(smile.writeValueAsBytes(book1)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertEquals(book1.getAuthor(), smile.readValue(body, Book.class).getAuthor());
+    }
+
+    @Test
+    @WithMockUser
+    @DisplayName("Get a Page of Books as Protobuf Scenario")
+    public void testGetAllBooks_PagedProtobuf() throws Exception {
+        when(libraryService.listAllBooks(isNull(), any(Integer.class))).thenReturn(new BookPage(Arrays.asList(book1), book1.getIsbn()));
+
+        byte[] body = mockMvc.perform(get("/api/books").param("size", "1").accept("application/x-protobuf"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-protobuf"))
+                .andReturn().getResponse().getContentAsByteArray();
+        BookPage page = (BookPage) new ProtobufBookHttpMessageConverter().read(BookPage.class, null, new MockHttpInputMessage(body));
+        assertEquals(book1.getTitle(), page.getBooks().get(0).getTitle());
+        assertEquals(book1.getIsbn(), page.getNextCursor());
+    }
+
+    @Test
+    @WithMockUser
+    @DisplayName("Get Books by Author from the Response Cache until the Books by the Author change Scenario")
+    public void testGetBookByAuthor_Cached() throws Exception {
+        when(libraryService.authorVersion("George Orwell")).thenReturn("v-1");
+        when(libraryService.findBookByAuthor("George Orwell", null, null)).thenReturn(new BookPage(Arrays.asList(book2), null));
+
+        String first = mockMvc.perform(get("/api/books/author/George Orwell"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        byte[] gzipped = mockMvc.perform(get("/api/books/author/George Orwell").header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("ETag", "\"v-1\""))
+                .andReturn().getResponse().getContentAsByteArray();
+        verify(libraryService, times(1)).findBookByAuthor("George Orwell", null, null);
+        verify(libraryMetrics, times(2)).recordResults("author", 1);
+        assertEquals(first, new String(new GZIPInputStream(new ByteArrayInputStream(gzipped)).readAllBytes(), StandardCharsets.UTF_8));
+
+        when(libraryService.authorVersion("George Orwell")).thenReturn("v-2");
+        mockMvc.perform(get("/api/books/author/George Orwell").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.books[0].isbn").value(book2.getIsbn()));
+        verify(libraryService, times(2)).findBookByAuthor("George Orwell", null, null);
+    }
+
+    @Test
+    @WithMockUser
+    @DisplayName("Get Available Books as CBOR bypasses the Response Cache Scenario")
+    public void testGetAllAvailableBooks_CborNotCached() throws Exception {
+        when(libraryService.catalogueVersion()).thenReturn("v-1");
+        when(libraryService.listAvailableBooks(null, null)).thenReturn(new BookPage(Arrays.asList(book1, book2), null));
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get("/api/books/available").accept("application/cbor"))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType("application/cbor"));
+        }
+        verify(libraryService, times(2)).listAvailableBooks(null, null);
+    }
 }
@@ -0,0 +1,165 @@
+/**
+ * This package contains unit tests for Library API endpoints.
+ */
+package com.org.bansira.lbms.controller;
+
+import com.org.bansira.lbms.domain.Book;
+import com.org.bansira.lbms.domain.BookPage;
+import com.org.bansira.lbms.security.ReactiveSecurityConfig;
+import com.org.bansira.lbms.service.ReactiveLibraryService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Arrays;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(ReactiveLibraryController.class)
+@ActiveProfiles("reactive")
+@Import(ReactiveSecurityConfig.class)
+public class ReactiveLibraryControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private ReactiveLibraryService libraryService;
+
+    private Book book1;
+    private Book book2;
+
+    /**
+     * Dummy Book objects for running tests.
+     */
+    @BeforeEach
+    public void setUp() {
+        book1 = new Book("The Adventures of Sherlock Holmes", "978-1-56619-909-4", "Arthur Conan Doyle", "Mystery", 1892, "Literature", true);
+        book2 = new Book("1984", "978-0-45228-425-0", "George Orwell", "Dystopian", 1949, "Literature", true);
+    }
+
+    @Test
+    @DisplayName("Add Book to Library Failure Scenario")
+    public void testAddBook_Conflict() {
+        when(libraryService.addBook(any(Book.class))).thenReturn(Mono.empty());
+
+        webTestClient.post().uri("/api/books/add")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(book1)
+                .exchange()
+                .expectStatus().isEqualTo(409)
+                .expectBody(String.class).isEqualTo("Book with ISBN 978-1-56619-909-4 already exists");
+    }
+
+    @Test
+    @DisplayName("Get Book by ISBN Success Scenario")
+    public void testGetBookByIsbn_Found() {
+        when(libraryService.findBookByIsbn(book1.getIsbn())).thenReturn(Mono.just(book1));
+
+        webTestClient.get().uri("/api/books/" + book1.getIsbn())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.isbn").isEqualTo(book1.getIsbn());
+    }
+
+    @Test
+    @DisplayName("Get Book by ISBN Failure Scenario")
+    public void testGetBookByIsbn_NotFound() {
+        when(libraryService.findBookByIsbn(book1.getIsbn())).thenReturn(Mono.empty());
+
+        webTestClient.get().uri("/api/books/" + book1.getIsbn())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("Book with ISBN 978-1-56619-909-4 not found");
+    }
+
+    @Test
+    @DisplayName("Get All Registered Books Success Scenario")
+    public void testGetAllBooks_Found() {
+        when(libraryService.listAllBooks(null, null)).thenReturn(Mono.just(new BookPage(Arrays.asList(book1, book2), null)));
+
+        webTestClient.get().uri("/api/books")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.books[0].isbn").isEqualTo(book1.getIsbn())
+                .jsonPath("$.books[1].isbn").isEqualTo(book2.getIsbn())
+                .jsonPath("$.nextCursor").doesNotExist();
+    }
+
+    @Test
+    @DisplayName("Get Books by Author Not Found Scenario")
+    public void testGetBookByAuthor_NotFound() {
+        when(libraryService.findBookByAuthor("Nobody", null, null)).thenReturn(Mono.just(new BookPage(Arrays.asList(), null)));
+
+        webTestClient.get().uri("/api/books/author/Nobody")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.books").isEmpty();
+    }
+
+    @Test
+    @DisplayName("Add Book without ISBN Scenario")
+    public void testAddBook_MissingIsbn() {
+        when(libraryService.addBook(any(Book.class))).thenReturn(Mono.error(new IllegalArgumentException("Book is missing its ISBN")));
+
+        webTestClient.post().uri("/api/books/add")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(book1)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(String.class).isEqualTo("Book is missing its ISBN");
+    }
+
+    @Test
+    @DisplayName("Get a Page of Available Books Scenario")
+    public void testGetAllAvailableBooks_Paged() {
+        when(libraryService.listAvailableBooks(null, 1)).thenReturn(Mono.just(new BookPage(Arrays.asList(book1), book1.getIsbn())));
+
+        webTestClient.get().uri("/api/books/available?size=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.books[0].isbn").isEqualTo(book1.getIsbn())
+                .jsonPath("$.nextCursor").isEqualTo(book1.getIsbn());
+    }
+
+    @Test
+    @DisplayName("Stream Books by Author as NDJSON Scenario")
+    public void testStreamBooksByAuthor() {
+        when(libraryService.findBookByAuthor("George Orwell")).thenReturn(Flux.just(book2));
+
+        Flux<Book> books = webTestClient.get().uri("/api/books/author/George Orwell")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(Book.class)
+                .getResponseBody();
+
+        StepVerifier.create(books).expectNext(book2).verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Remove Book from Library Success Scenario")
+    public void testRemoveBook_Success() {
+        when(libraryService.removeBook(book1.getIsbn())).thenReturn(Mono.just(1L));
+
+        webTestClient.delete().uri("/api/books/" + book1.getIsbn())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("1");
+    }
+}
@@ -0,0 +1,50 @@
+/**
+ * This package contains unit tests for Library API endpoints.
+ */
+package com.org.bansira.lbms.controller;
+
+import com.org.bansira.lbms.domain.CatalogueStats;
+import com.org.bansira.lbms.security.TestSecurityConfig;
+import com.org.bansira.lbms.service.LibraryService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Map;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(StatsController.class)
+@Import(TestSecurityConfig.class)
+public class StatsControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private LibraryService libraryService;
+
+    @Test
+    @WithMockUser
+    @DisplayName("Get catalogue statistics per department and genre")
+    public void testCatalogueStats() throws Exception {
+        when(libraryService.catalogueStats()).thenReturn(new CatalogueStats(3, 2,
+                Map.of("Literature", new CatalogueStats.Counts(3, 2)),
+                Map.of("Mystery", new CatalogueStats.Counts(1, 1), "Dystopian", new CatalogueStats.Counts(2, 1)),
+                null));
+
+        mockMvc.perform(get("/api/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(3))
+                .andExpect(jsonPath("$.available").value(2))
+                .andExpect(jsonPath("$.departments.Literature.total").value(3))
+                .andExpect(jsonPath("$.genres.Dystopian.available").value(1));
+    }
+}
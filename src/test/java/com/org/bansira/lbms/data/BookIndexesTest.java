@@ -0,0 +1,84 @@
+package com.org.bansira.lbms.data;
+
+import com.org.bansira.lbms.domain.Book;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class BookIndexesTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private IndexOperations indexOperations;
+
+    @InjectMocks
+    private BookIndexes bookIndexes;
+
+    @BeforeEach
+    public void setUp() {
+        when(mongoTemplate.indexOps(Book.class)).thenReturn(indexOperations);
+    }
+
+    @Test
+    @DisplayName("Duplicated ISBNs are reported and no index is created")
+    public void testDuplicatesReported() {
+        when(indexOperations.getIndexInfo()).thenReturn(List.of());
+        duplicates(new Document("_id", "978-0-45152-493-5").append("books", 2));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, bookIndexes::afterPropertiesSet);
+
+        assertTrue(e.getMessage().contains("[978-0-45152-493-5]"), e.getMessage());
+        verify(indexOperations, never()).ensureIndex(any());
+    }
+
+    @Test
+    @DisplayName("A unique index without the partial filter is replaced")
+    public void testLegacyIndexReplaced() {
+        IndexInfo legacy = new IndexInfo(List.of(IndexField.create("isbn", Sort.Direction.ASC)),
+                BookIndexes.ISBN_INDEX, true, false, null);
+        when(indexOperations.getIndexInfo()).thenReturn(List.of(legacy));
+        duplicates();
+
+        bookIndexes.afterPropertiesSet();
+
+        ArgumentCaptor<Index> created = ArgumentCaptor.forClass(Index.class);
+        verify(indexOperations).dropIndex(BookIndexes.ISBN_INDEX);
+        verify(indexOperations).ensureIndex(created.capture());
+        Document options = created.getValue().getIndexOptions();
+        assertEquals(true, options.get("unique"));
+        assertEquals(new Document("isbn", new Document("$gt", "")), options.get("partialFilterExpression"));
+    }
+
+    private void duplicates(Document... groups) {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(Book.class), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(groups), new Document()));
+    }
+}
@@ -0,0 +1,129 @@
+package com.org.bansira.lbms.data;
+
+import com.org.bansira.lbms.domain.Book;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BookLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Every record type replays with its fields, including nulls")
+    public void testReplay_AllRecords() throws IOException {
+        Book book = new Book("id-1", "Title ü", "isbn-1", null, "Genre", null, "Science", true);
+        book.setVersion(3L);
+        BookLog bookLog = BookLog.open(snapshot(), BookLog.Sync.ALWAYS, new Recorder());
+        bookLog.put(book);
+        bookLog.availability("isbn-1", false, 4L);
+        bookLog.remove("isbn-1");
+        bookLog.clear();
+        bookLog.awaitDurable(bookLog.appended());
+
+        Recorder replayed = new Recorder();
+        BookLog.open(snapshot(), BookLog.Sync.NONE, replayed);
+
+        assertEquals(List.of("put " + book, "availability isbn-1 false 4", "remove isbn-1", "clear"), replayed.changes);
+    }
+
+    @Test
+    @DisplayName("Records spanning mapped regions replay in order")
+    public void testReplay_AcrossRegions() throws IOException {
+        BookLog bookLog = BookLog.open(snapshot(), BookLog.Sync.NONE, new Recorder());
+        String title = "x".repeat(1000);
+        for (int i = 0; i < 20_000; i++) {
+            bookLog.put(new Book(title, "isbn-" + i, "Author", "Genre", 2020, "Science", true));
+        }
+        assertTrue(bookLog.size() > 16 << 20);
+
+        Recorder replayed = new Recorder();
+        BookLog.open(snapshot(), BookLog.Sync.NONE, replayed);
+
+        assertEquals(20_000, replayed.changes.size());
+        assertTrue(replayed.changes.get(19_999).contains("isbn=isbn-19999,"));
+    }
+
+    @Test
+    @DisplayName("Replay stops at a record cut short by a crash")
+    public void testReplay_TornRecord() throws IOException {
+        BookLog bookLog = BookLog.open(snapshot(), BookLog.Sync.NONE, new Recorder());
+        bookLog.remove("isbn-1");
+        long end = bookLog.appended();
+        bookLog.remove("isbn-2");
+        bookLog.force();
+        try (FileChannel segment = FileChannel.open(segments().get(0), StandardOpenOption.WRITE)) {
+            segment.write(ByteBuffer.wrap(new byte[] {0x7F}), end + 10); // inside the second record's body.
+        }
+
+        Recorder replayed = new Recorder();
+        BookLog.open(snapshot(), BookLog.Sync.NONE, replayed);
+
+        assertEquals(List.of("remove isbn-1"), replayed.changes);
+    }
+
+    @Test
+    @DisplayName("Segments completed by a rotation are deleted once covered")
+    public void testRotate_DeleteThrough() throws IOException {
+        BookLog bookLog = BookLog.open(snapshot(), BookLog.Sync.NONE, new Recorder());
+        bookLog.remove("isbn-1");
+        long completed = bookLog.rotate();
+        bookLog.remove("isbn-2");
+        assertEquals(2, segments().size());
+
+        bookLog.deleteThrough(completed);
+        bookLog.close();
+
+        Recorder replayed = new Recorder();
+        BookLog.open(snapshot(), BookLog.Sync.NONE, replayed);
+        assertEquals(List.of("remove isbn-2"), replayed.changes);
+    }
+
+    private Path snapshot() {
+        return directory.resolve("books.ndjson");
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".log")).sorted().toList();
+        }
+    }
+
+    private static class Recorder implements BookLog.Replay {
+        private final List<String> changes = new ArrayList<>();
+
+        @Override
+        public void put(Book book) {
+            changes.add("put " + book);
+        }
+
+        @Override
+        public void remove(String isbn) {
+            changes.add("remove " + isbn);
+        }
+
+        @Override
+        public void availability(String isbn, Boolean isAvailable, Long version) {
+            changes.add("availability " + isbn + " " + isAvailable + " " + version);
+        }
+
+        @Override
+        public void clear() {
+            changes.add("clear");
+        }
+    }
+}
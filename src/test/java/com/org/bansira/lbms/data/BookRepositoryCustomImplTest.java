@@ -0,0 +1,109 @@
+package com.org.bansira.lbms.data;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.WriteConcernError;
+import com.org.bansira.lbms.domain.Book;
+import com.org.bansira.lbms.domain.BookFilter;
+import com.org.bansira.lbms.domain.BulkOutcome;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class BookRepositoryCustomImplTest {
+
+    private static final int DUPLICATE_KEY = 11000;
+    private static final int DOCUMENT_VALIDATION_FAILURE = 121;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @InjectMocks
+    private BookRepositoryCustomImpl repository;
+
+    private final List<Book> books = List.of(
+            new Book("Dune", "isbn-1", "Frank Herbert", "Science Fiction", 1965, "Literature", true),
+            new Book("Dune", "isbn-2", "Frank Herbert", "Science Fiction", 1965, "Literature", true),
+            new Book("Dune", "isbn-3", "Frank Herbert", "Science Fiction", 1965, "Literature", true));
+
+    @Test
+    @DisplayName("Write errors are reported per book, the other books were inserted")
+    public void testInsertAllUnordered_PartialFailure() {
+        bulkInsertFails(failure(List.of(
+                new BulkWriteError(DOCUMENT_VALIDATION_FAILURE, "Document failed validation", new BsonDocument(), 0),
+                new BulkWriteError(DUPLICATE_KEY, "E11000 duplicate key error", new BsonDocument(), 2)), null));
+
+        Map<Integer, BulkOutcome.Status> rejected = repository.insertAllUnordered(books);
+
+        assertEquals(Map.of(0, BulkOutcome.Status.FAILED, 2, BulkOutcome.Status.DUPLICATE), rejected);
+    }
+
+    @Test
+    @DisplayName("A write concern error without write errors fails the whole write")
+    public void testInsertAllUnordered_WriteConcernError() {
+        bulkInsertFails(failure(List.of(),
+                new WriteConcernError(64, "WriteConcernFailed", "waiting for replication timed out", new BsonDocument())));
+
+        assertThrows(BulkOperationException.class, () -> repository.insertAllUnordered(books));
+    }
+
+    @Test
+    @DisplayName("Each book is moved on its own, from the department it was read in, and only moved books are returned")
+    public void testMoveMatching() {
+        Book moved = new Book("Dune", "isbn-1", "Frank Herbert", "Science Fiction", 1965, "Archive", true);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Book.class)))
+                .thenReturn(moved, (Book) null);
+
+        List<Book> result = repository.moveMatching(books.subList(0, 2), new BookFilter(null, "Science Fiction", null, null), "Archive");
+
+        assertEquals(List.of(moved), result);
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).findAndModify(queries.capture(), any(Update.class), any(FindAndModifyOptions.class), eq(Book.class));
+        Document first = queries.getAllValues().get(0).getQueryObject();
+        assertEquals("Literature", first.get("department"));
+        assertEquals("Science Fiction", first.get("genre"));
+    }
+
+    private void bulkInsertFails(BulkOperationException failure) {
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Book.class)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenThrow(failure);
+    }
+
+    private static BulkOperationException failure(List<BulkWriteError> errors, WriteConcernError writeConcernError) {
+        BulkWriteResult result = BulkWriteResult.acknowledged(3 - errors.size(), 0, 0, 0, List.of(), List.of());
+        return new BulkOperationException("Bulk write operation error",
+                new MongoBulkWriteException(result, errors, writeConcernError, new ServerAddress(), Set.of()));
+    }
+}
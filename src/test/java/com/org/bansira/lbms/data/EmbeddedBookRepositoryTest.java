@@ -0,0 +1,278 @@
+package com.org.bansira.lbms.data;
+
+import com.org.bansira.lbms.domain.Book;
+import com.org.bansira.lbms.domain.BookFields;
+import com.org.bansira.lbms.domain.BookFilter;
+import com.org.bansira.lbms.domain.BulkOutcome;
+import com.org.bansira.lbms.domain.ShelfCount;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EmbeddedBookRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    private EmbeddedBookRepository repository;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        repository = new EmbeddedBookRepository();
+        repository.load();
+    }
+
+    @Test
+    @DisplayName("A book without an ISBN is rejected and looking one up finds nothing")
+    public void testInsert_MissingIsbn() {
+        assertThrows(IllegalArgumentException.class, () -> repository.insert(book(null, "Author", "Science", true)));
+
+        assertFalse(repository.existsByIsbn(null));
+        assertTrue(repository.findByIsbn(null).isEmpty());
+        assertEquals(0L, repository.deleteByIsbn(null));
+        assertEquals(Map.of(0, BulkOutcome.Status.FAILED),
+                repository.insertAllUnordered(List.of(book(null, "Author", "Science", true), book("isbn-1", "Author", "Science", true))));
+        assertEquals(1, repository.count());
+    }
+
+    @Test
+    @DisplayName("Insert assigns an id and a version and rejects duplicate ISBNs")
+    public void testInsert_DuplicateIsbn() {
+        Book book = repository.insert(book("isbn-1", "Author", "Science", true));
+
+        assertNotNull(book.getId());
+        assertEquals(0L, book.getVersion());
+        assertEquals("Author", repository.findByIsbn("isbn-1").orElseThrow().getAuthor());
+        assertThrows(DuplicateKeyException.class, () -> repository.insert(book("isbn-1", "Other", "Science", true)));
+    }
+
+    @Test
+    @DisplayName("Unordered bulk insert skips duplicates and reports their positions")
+    public void testInsertAllUnordered_Duplicates() {
+        repository.insert(book("isbn-2", "Author", "Science", true));
+
+        Map<Integer, BulkOutcome.Status> duplicates = repository.insertAllUnordered(List.of(
+                book("isbn-1", "Author", "Science", true),
+                book("isbn-2", "Author", "Science", true),
+                book("isbn-3", "Author", "Science", true),
+                book("isbn-1", "Author", "Science", true)));
+
+        assertEquals(Map.of(1, BulkOutcome.Status.DUPLICATE, 3, BulkOutcome.Status.DUPLICATE), duplicates);
+        assertEquals(3, repository.count());
+    }
+
+    @Test
+    @DisplayName("Keyset pages follow the secondary indexes through updates")
+    public void testPages_FollowAvailabilityUpdates() {
+        for (int i = 1; i <= 5; i++) {
+            repository.insert(book("isbn-" + i, "Author", i % 2 == 0 ? "Arts" : "Science", true));
+        }
+
+        assertNotNull(repository.updateAvailability("isbn-3", true, false));
+        assertNull(repository.updateAvailability("isbn-3", true, false));
+
+        assertEquals(List.of("isbn-1", "isbn-2"),
+                isbns(repository.findByIsAvailableAndIsbnGreaterThanOrderByIsbnAsc(true, "", Limit.of(2))));
+        assertEquals(List.of("isbn-4", "isbn-5"),
+                isbns(repository.findByIsAvailableAndIsbnGreaterThanOrderByIsbnAsc(true, "isbn-2", Limit.of(2))));
+        assertEquals(List.of("isbn-3"),
+                isbns(repository.findByIsAvailableAndIsbnGreaterThanOrderByIsbnAsc(false, "", Limit.of(10))));
+        assertEquals(List.of("isbn-1", "isbn-3", "isbn-5"),
+                isbns(repository.findByDepartmentAndIsbnGreaterThanOrderByIsbnAsc("Science", "", Limit.of(10))));
+        assertEquals(1L, repository.findByIsbn("isbn-3").orElseThrow().getVersion());
+    }
+
+    @Test
+    @DisplayName("Saving a stale copy fails the version check")
+    public void testSave_StaleVersion() {
+        repository.insert(book("isbn-1", "Author", "Science", true));
+        Book first = repository.findByIsbn("isbn-1").orElseThrow();
+        Book second = repository.findByIsbn("isbn-1").orElseThrow();
+
+        first.setAuthor("Changed");
+        repository.save(first);
+
+        assertThrows(OptimisticLockingFailureException.class, () -> repository.save(second));
+        assertEquals("Changed", repository.findByIsbn("isbn-1").orElseThrow().getAuthor());
+    }
+
+    @Test
+    @DisplayName("Books read from the store are copies")
+    public void testFind_ReturnsCopies() {
+        repository.insert(book("isbn-1", "Author", "Science", true));
+
+        repository.findByIsbn("isbn-1").orElseThrow().setAuthor("Changed");
+
+        assertEquals("Author", repository.findByIsbn("isbn-1").orElseThrow().getAuthor());
+    }
+
+    @Test
+    @DisplayName("Books are counted per department and genre")
+    public void testCountByDepartmentAndGenre() {
+        repository.insert(book("isbn-1", "Author", "Science", true));
+        repository.insert(book("isbn-2", "Author", "Science", false));
+        repository.insert(book("isbn-3", "Author", "History", true));
+
+        List<ShelfCount> counts = repository.countByDepartmentAndGenre();
+
+        assertEquals(2, counts.size());
+        assertTrue(counts.contains(new ShelfCount("Science", "Genre", 2, 1)));
+        assertTrue(counts.contains(new ShelfCount("History", "Genre", 1, 1)));
+    }
+
+    @Test
+    @DisplayName("Batched deletes and moves only touch books that still match the filter")
+    public void testDeleteAndMoveMatching() {
+        List<Book> read = List.of(repository.insert(book("isbn-1", "Author", "Science", true)),
+                repository.insert(book("isbn-2", "Other", "Science", true)),
+                repository.insert(book("isbn-3", "Author", "History", true)));
+        BookFilter science = new BookFilter("Science", null, "Author", null);
+
+        List<Book> moved = repository.moveMatching(read, science, "Archive");
+        List<Book> deleted = repository.deleteMatching(List.of("isbn-1", "isbn-2", "isbn-3"),
+                new BookFilter("Archive", null, null, null));
+
+        assertEquals(List.of("isbn-1"), moved.stream().map(Book::getIsbn).toList());
+        assertEquals("Archive", moved.get(0).getDepartment());
+        assertEquals(1L, moved.get(0).getVersion());
+        assertEquals(List.of("isbn-1"), deleted.stream().map(Book::getIsbn).toList());
+        assertFalse(repository.existsByIsbn("isbn-1"));
+        assertEquals(List.of("isbn-2"), repository.findByDepartmentAndIsbnGreaterThanOrderByIsbnAsc("Science", "", Limit.of(10))
+                .stream().map(Book::getIsbn).toList());
+    }
+
+    @Test
+    @DisplayName("A book moved to another department since it was read is not moved again")
+    public void testMoveMatching_MovedSinceRead() {
+        Book read = repository.insert(book("isbn-1", "Author", "Science", true));
+        repository.moveMatching(List.of(read), new BookFilter(null, null, "Author", null), "History");
+
+        List<Book> moved = repository.moveMatching(List.of(read), new BookFilter(null, null, "Author", null), "Archive");
+
+        assertTrue(moved.isEmpty());
+        assertEquals("History", repository.findByIsbn("isbn-1").orElseThrow().getDepartment());
+    }
+
+    @Test
+    @DisplayName("Projected pages only carry the requested fields")
+    public void testFindProjectedPage() {
+        repository.insert(book("isbn-1", "Author", "Science", true));
+
+        List<Book> page = repository.findProjectedPage("author", "Author", "", 10, BookFields.parse("title"));
+
+        assertEquals(1, page.size());
+        assertEquals("isbn-1", page.get(0).getIsbn());
+        assertEquals("Title isbn-1", page.get(0).getTitle());
+        assertNull(page.get(0).getAuthor());
+    }
+
+    @Test
+    @DisplayName("A snapshot restores every book with its version")
+    public void testSnapshot_RoundTrip() throws IOException {
+        EmbeddedBookRepository original = withSnapshot();
+        original.insert(book("isbn-1", "Author", "Science", true));
+        original.insert(book("isbn-2", "Author", "Arts", true));
+        original.updateAvailability("isbn-2", true, false);
+        original.close();
+
+        assertFalse(original.snapshot());
+
+        EmbeddedBookRepository restored = withSnapshot();
+        assertEquals(2, restored.count());
+        Book book = restored.findByIsbn("isbn-2").orElseThrow();
+        assertFalse(book.getIsAvailable());
+        assertEquals(1L, book.getVersion());
+        assertEquals(List.of("isbn-2"),
+                isbns(restored.findByDepartmentAndIsbnGreaterThanOrderByIsbnAsc("Arts", "", Limit.of(10))));
+        assertTrue(restored.existsById(book.getId()));
+        restored.close();
+    }
+
+    @Test
+    @DisplayName("Changes after the last snapshot are replayed from the log")
+    public void testLog_ReplaysAfterCrash() throws IOException {
+        EmbeddedBookRepository original = withLog();
+        original.insert(book("isbn-1", "Author", "Science", true));
+        original.snapshot();
+        original.insert(book("isbn-2", "Author", "Arts", true));
+        original.insert(book("isbn-3", "Author", "Arts", true));
+        original.updateAvailability("isbn-2", true, false);
+        original.deleteByIsbn("isbn-3");
+        Book renamed = original.findByIsbn("isbn-1").orElseThrow();
+        renamed.setIsbn("isbn-4");
+        original.save(renamed);
+        // not closed, as if the process was killed.
+
+        EmbeddedBookRepository restored = withLog();
+        assertEquals(List.of("isbn-2", "isbn-4"), isbns(restored.findAll()));
+        Book book = restored.findByIsbn("isbn-2").orElseThrow();
+        assertFalse(book.getIsAvailable());
+        assertEquals(1L, book.getVersion());
+        assertEquals(List.of("isbn-2"),
+                isbns(restored.findByIsAvailableAndIsbnGreaterThanOrderByIsbnAsc(false, "", Limit.of(10))));
+        assertEquals("isbn-4", restored.findById(renamed.getId()).orElseThrow().getIsbn());
+        restored.close();
+    }
+
+    @Test
+    @DisplayName("A snapshot deletes the log segments it covers")
+    public void testLog_CompactedBySnapshot() throws IOException {
+        EmbeddedBookRepository original = withLog();
+        original.insert(book("isbn-1", "Author", "Science", true));
+        assertEquals(1, logSegments());
+
+        original.close();
+
+        assertEquals(0, logSegments());
+        assertEquals(1, withLog().count());
+    }
+
+    private EmbeddedBookRepository withSnapshot() throws IOException {
+        EmbeddedBookRepository snapshotted = new EmbeddedBookRepository();
+        ReflectionTestUtils.setField(snapshotted, "snapshotPath", directory.resolve("books.ndjson").toString());
+        snapshotted.load();
+        return snapshotted;
+    }
+
+    private EmbeddedBookRepository withLog() throws IOException {
+        EmbeddedBookRepository logged = new EmbeddedBookRepository();
+        ReflectionTestUtils.setField(logged, "snapshotPath", directory.resolve("books.ndjson").toString());
+        ReflectionTestUtils.setField(logged, "logEnabled", true);
+        ReflectionTestUtils.setField(logged, "logSync", "always");
+        logged.load();
+        return logged;
+    }
+
+    private long logSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".log")).count();
+        }
+    }
+
+    private static Book book(String isbn, String author, String department, boolean available) {
+        return new Book("Title " + isbn, isbn, author, "Genre", 2020, department, available);
+    }
+
+    private static List<String> isbns(List<Book> books) {
+        return books.stream().map(Book::getIsbn).toList();
+    }
+}
@@ -0,0 +1,87 @@
+package com.org.bansira.lbms.domain;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class BookColumnsTest {
+
+    private BookColumns columns;
+
+    @BeforeEach
+    public void setUp() {
+        columns = new BookColumns();
+    }
+
+    @Test
+    @DisplayName("A book reads back with every field, whatever the id")
+    public void testGet_RoundTrip() {
+        for (String id : new String[] {new ObjectId().toHexString(), "6AD4D5514A11DE6D85856215", "id-1", null}) {
+            Book book = new Book(id, "Title", "isbn-" + id, "Author", "Genre", 2020, "Science", false);
+            book.setVersion(7L);
+
+            assertEquals(book, columns.get(columns.insert(book)));
+        }
+    }
+
+    @Test
+    @DisplayName("Missing optional fields read back as null")
+    public void testGet_Nulls() {
+        Book book = new Book(null, null, "isbn-1", null, null, null, null, null);
+
+        assertEquals(book, columns.get(columns.insert(book)));
+    }
+
+    @Test
+    @DisplayName("Updates replace every field of the row")
+    public void testUpdate() {
+        Book book = new Book("id-1", "Title", "isbn-1", "Author", "Genre", 2020, "Science", true);
+        book.setVersion(1L);
+        int row = columns.insert(book);
+        Book updated = new Book(new ObjectId().toHexString(), "Title", "isbn-1", "Other", null, null, "Arts", null);
+
+        columns.update(row, updated);
+
+        assertEquals(updated, columns.get(row));
+    }
+
+    @Test
+    @DisplayName("Deleted rows read as null and are reused")
+    public void testDelete_ReusesRow() {
+        int first = columns.insert(new Book("Title", "isbn-1", "Author", "Genre", 2020, "Science", true));
+        columns.insert(new Book("Title", "isbn-2", "Author", "Genre", 2020, "Science", true));
+
+        columns.delete(first);
+
+        assertNull(columns.get(first));
+        assertEquals(1, columns.size());
+        assertEquals(first, columns.insert(new Book("Title", "isbn-3", "Author", "Genre", 2020, "Science", true)));
+        assertEquals("isbn-3", columns.get(first).getIsbn());
+    }
+
+    @Test
+    @DisplayName("Rows survive the columns growing")
+    public void testInsert_Grows() {
+        List<Integer> rows = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            rows.add(columns.insert(new Book("Title " + i, "isbn-" + i, "Author " + (i % 7), "Genre", 1900 + i,
+                    "Department " + (i % 3), i % 2 == 0)));
+        }
+
+        assertEquals(5000, columns.size());
+        for (int i = 0; i < 5000; i += 499) {
+            Book book = columns.get(rows.get(i));
+            assertEquals("isbn-" + i, book.getIsbn());
+            assertEquals("Author " + (i % 7), book.getAuthor());
+            assertEquals(1900 + i, book.getPublicationYear());
+            assertEquals("Title " + i, columns.title(rows.get(i)));
+        }
+    }
+}
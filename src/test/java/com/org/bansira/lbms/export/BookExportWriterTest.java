@@ -0,0 +1,77 @@
+/**
+ * This package contains the unit tests for the bulk export formats.
+ */
+package com.org.bansira.lbms.export;
+
+import com.org.bansira.lbms.domain.Book;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookExportWriterTest {
+
+    @Test
+    @DisplayName("CSV quotes fields that need it and leaves missing values empty")
+    void testCsv() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (BookExportWriter writer = ExportFormat.CSV.open(out)) {
+            writer.write(new Book("The \"Hobbit\", illustrated", "isbn-1", "Tolkien", "Fantasy", 1937, "Literature", true));
+            writer.write(new Book("Untitled", "isbn-2", null, null, null, null, null));
+        }
+
+        assertEquals(CsvBookWriter.HEADER + "\n"
+                + "isbn-1,\"The \"\"Hobbit\"\", illustrated\",Tolkien,Fantasy,1937,Literature,true\n"
+                + "isbn-2,Untitled,,,,,\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("The columnar format reads back every book over several chunks, including missing values")
+    void testColumnar_RoundTrip() throws IOException {
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < ColumnarBookWriter.CHUNK_SIZE + 10; i++) {
+            books.add(new Book("Title " + i, "isbn-" + i, "Author " + (i % 50), i % 3 == 0 ? null : "Genre " + (i % 4),
+                    i % 7 == 0 ? null : 1900 + i % 100, "Department " + (i % 5), i % 11 == 0 ? null : i % 2 == 0));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (BookExportWriter writer = ExportFormat.COLUMNAR.open(out)) {
+            for (Book book : books) {
+                writer.write(book);
+            }
+        }
+
+        List<Book> read = new ArrayList<>();
+        long count = ColumnarBookReader.read(new ByteArrayInputStream(out.toByteArray()), read::add);
+
+        assertEquals(books.size(), count);
+        for (int i = 0; i < books.size(); i++) {
+            Book expected = books.get(i);
+            Book actual = read.get(i);
+            assertEquals(expected.getIsbn(), actual.getIsbn());
+            assertEquals(expected.getTitle(), actual.getTitle());
+            assertEquals(expected.getAuthor(), actual.getAuthor());
+            assertEquals(expected.getGenre(), actual.getGenre());
+            assertEquals(expected.getPublicationYear(), actual.getPublicationYear());
+            assertEquals(expected.getDepartment(), actual.getDepartment());
+            assertEquals(expected.getIsAvailable(), actual.getIsAvailable());
+        }
+    }
+
+    @Test
+    @DisplayName("An empty columnar export is valid and unknown formats are rejected")
+    void testColumnar_Empty() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExportFormat.parse("Columnar").open(out).close();
+
+        assertEquals(0, ColumnarBookReader.read(new ByteArrayInputStream(out.toByteArray()), book -> fail()));
+        assertThrows(IOException.class, () -> ColumnarBookReader.read(new ByteArrayInputStream("isbn".getBytes()), book -> fail()));
+        assertThrows(IllegalArgumentException.class, () -> ExportFormat.parse("xml"));
+    }
+}
@@ -0,0 +1,79 @@
+package com.org.bansira.lbms.metrics;
+
+import com.mongodb.RequestContext;
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonArray;
+import org.bson.BsonBoolean;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class SlowCommandLoggerTest {
+
+    private static final ConnectionDescription CONNECTION =
+            new ConnectionDescription(new ServerId(new ClusterId(), new ServerAddress()));
+
+    private SimpleMeterRegistry meterRegistry;
+    private SlowCommandLogger slowCommandLogger;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        slowCommandLogger = new SlowCommandLogger(Duration.ofMillis(100), meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Commands slower than the threshold are counted")
+    public void testSlowCommand_Counted() {
+        run(1, TimeUnit.MILLISECONDS.toNanos(250));
+
+        Counter counter = meterRegistry.find("lbms.mongodb.slow.commands").tag("command", "find").counter();
+        assertEquals(1, counter.count());
+    }
+
+    @Test
+    @DisplayName("Commands faster than the threshold are not counted")
+    public void testFastCommand_Ignored() {
+        run(2, TimeUnit.MILLISECONDS.toNanos(5));
+
+        assertNull(meterRegistry.find("lbms.mongodb.slow.commands").counter());
+    }
+
+    @Test
+    @DisplayName("The summary names the collection, the filter fields and the pipeline stages, not the values")
+    public void testSummary() {
+        BsonDocument find = new BsonDocument("find", new BsonString("books"))
+                .append("filter", new BsonDocument("author", new BsonString("George Orwell"))
+                        .append("isAvailable", BsonBoolean.TRUE));
+        BsonDocument aggregate = new BsonDocument("aggregate", new BsonString("books"))
+                .append("pipeline", new BsonArray(List.of(
+                        new BsonDocument("$match", new BsonDocument("isbn", new BsonString("978-0-45228-425-0"))),
+                        new BsonDocument("$group", new BsonDocument("_id", new BsonString("$department"))))));
+
+        assertEquals("books filter [author, isAvailable]", SlowCommandLogger.summary("find", find));
+        assertEquals("books pipeline [$match, $group]", SlowCommandLogger.summary("aggregate", aggregate));
+    }
+
+    private void run(int requestId, long elapsedNanos) {
+        BsonDocument command = new BsonDocument("find", new BsonString("books"));
+        slowCommandLogger.commandStarted(new CommandStartedEvent(null, 1L, requestId, CONNECTION, "lbms", "find", command));
+        slowCommandLogger.commandSucceeded(new CommandSucceededEvent(null, 1L, requestId, CONNECTION, "lbms", "find",
+                new BsonDocument(), elapsedNanos));
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ * This package contains the unit tests for the in-memory catalogue search.
+ */
+package com.org.bansira.lbms.search;
+
+import com.org.bansira.lbms.data.BookRepository;
+import com.org.bansira.lbms.domain.Book;
+import com.org.bansira.lbms.domain.BookPage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BookSearchIndexTest {
+
+    private BookSearchIndex index;
+
+    private Book philosopher;
+    private Book chamber;
+    private Book holmes;
+
+    /**
+     * An index holding a few dummy Book objects for running tests.
+     */
+    @BeforeEach
+    void setUp() {
+        index = new BookSearchIndex();
+        philosopher = new Book("Harry Potter and the Philosopher's Stone", "978-0-7475-3269-9", "J. K. Rowling", "Fantasy", 1997, "Fiction", true);
+        chamber = new Book("Harry Potter and the Chamber of Secrets", "978-0-7475-3849-3", "J. K. Rowling", "Fantasy", 1998, "Fiction", true);
+        holmes = new Book("The Adventures of Sherlock Holmes", "978-1-56619-909-4", "Arthur Conan Doyle", "Mystery", 1892, "Literature", true);
+        index.index(philosopher);
+        index.index(chamber);
+        index.index(holmes);
+    }
+
+    @Test
+    @DisplayName("Partial words match as prefixes")
+    void testSearch_Prefix() {
+        BookPage result = index.search("harry pot", null, null);
+
+        assertEquals(2, result.getBooks().size());
+        assertTrue(result.getBooks().containsAll(List.of(philosopher, chamber)));
+    }
+
+    @Test
+    @DisplayName("Every query word must match")
+    void testSearch_AllTermsRequired() {
+        assertEquals(List.of(chamber), index.search("potter chamber", null, null).getBooks());
+    }
+
+    @Test
+    @DisplayName("Single typos and accents are tolerated")
+    void testSearch_Fuzzy() {
+        assertEquals(List.of(holmes), index.search("Sherlok Hölmes", null, null).getBooks());
+        assertEquals(List.of(holmes), index.search("adventurse", null, null).getBooks());
+    }
+
+    @Test
+    @DisplayName("Title matches rank above author matches")
+    void testSearch_Ranking() {
+        Book doyleBiography = new Book("Arthur Conan Doyle: A Life", "978-0-00-000000-1", "Andrew Lycett", "Biography", 2007, "Literature", true);
+        index.index(doyleBiography);
+
+        assertEquals(List.of(doyleBiography, holmes), index.search("doyle", null, null).getBooks());
+    }
+
+    @Test
+    @DisplayName("Long prefixes are checked against the indexed words")
+    void testSearch_LongPrefix() {
+        assertEquals(List.of(philosopher), index.search("philosophe", null, null).getBooks());
+    }
+
+    @Test
+    @DisplayName("Results are paginated with a cursor")
+    void testSearch_Paginated() {
+        BookPage first = index.search("rowling", null, 1);
+        BookPage second = index.search("rowling", first.getNextCursor(), 1);
+
+        assertEquals(1, first.getBooks().size());
+        assertEquals(1, second.getBooks().size());
+        assertNotEquals(first.getBooks(), second.getBooks());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("Books added between pages do not shift the next page")
+    void testSearch_StableCursor() {
+        BookPage first = index.search("rowling", null, 1);
+        // ranks before the first page, an offset would now point at the book already returned.
+        index.index(new Book("Fantastic Beasts and Where to Find Them", "978-0-7475-5469-1", "J. K. Rowling", "Fantasy", 2001, "Fiction", true));
+        BookPage second = index.search("rowling", first.getNextCursor(), 1);
+
+        assertEquals(List.of(chamber), first.getBooks());
+        assertEquals(List.of(philosopher), second.getBooks());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("Only cursors returned by the index are accepted")
+    void testSearch_MalformedCursor() {
+        assertThrows(IllegalArgumentException.class, () -> index.search("rowling", "20", 1));
+    }
+
+    @Test
+    @DisplayName("Writes made while the index is rebuilt are kept and searches use the previous index meanwhile")
+    void testRebuild_ConcurrentWrites() {
+        Book goblet = new Book("Harry Potter and the Goblet of Fire", "978-0-7475-4624-5", "J. K. Rowling", "Fantasy", 2000, "Fiction", true);
+        BookRepository bookRepository = mock(BookRepository.class);
+        ReflectionTestUtils.setField(index, "bookRepository", bookRepository);
+        when(bookRepository.streamAllBy()).thenReturn(Stream.of(philosopher, chamber, holmes).peek(book -> {
+            if (book == chamber) { // the cursor has read the philosopher's stone already.
+                index.remove(philosopher.getIsbn());
+                index.index(goblet);
+                assertEquals(List.of(goblet), index.search("goblet", null, null).getBooks());
+            }
+        }));
+
+        index.rebuild();
+
+        assertTrue(index.search("philosopher", null, null).getBooks().isEmpty());
+        assertEquals(List.of(goblet), index.search("goblet", null, null).getBooks());
+        assertEquals(List.of(holmes), index.search("holmes", null, null).getBooks());
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    @DisplayName("Removed and updated books are no longer found by their old words")
+    void testRemoveAndReindex() {
+        index.remove(philosopher.getIsbn());
+        Book renamed = new Book("Harry Potter and the Sorcerer's Stone", chamber.getIsbn(), "J. K. Rowling", "Fantasy", 1998, "Fiction", true);
+        index.index(renamed);
+
+        assertTrue(index.search("philosopher", null, null).getBooks().isEmpty());
+        assertTrue(index.search("chamber", null, null).getBooks().isEmpty());
+        assertEquals(List.of(renamed), index.search("harry sorc", null, null).getBooks());
+        assertEquals(2, index.size());
+    }
+}
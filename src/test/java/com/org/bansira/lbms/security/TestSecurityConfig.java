@@ -20,7 +20,9 @@ public class TestSecurityConfig {
                 .authorizeRequests(authorizeRequests ->
                         authorizeRequests.anyRequest().permitAll()  // Allow all requests
                 )
-                .csrf(AbstractHttpConfigurer::disable);
+                .csrf(AbstractHttpConfigurer::disable)
+                // streamed bodies commit the mock response on another thread while the header writer still runs.
+                .headers(AbstractHttpConfigurer::disable);
         return http.build();
     }
 }
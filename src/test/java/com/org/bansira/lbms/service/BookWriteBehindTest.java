@@ -0,0 +1,232 @@
+/**
+ * This package contains the unit tests for service layer of Library APIs.
+ */
+package com.org.bansira.lbms.service;
+
+import com.org.bansira.lbms.data.EmbeddedBookRepository;
+import com.org.bansira.lbms.domain.Book;
+import com.org.bansira.lbms.domain.BulkOutcome;
+import com.org.bansira.lbms.domain.QueuedWrite;
+import com.org.bansira.lbms.search.BookSearchIndex;
+import com.org.bansira.lbms.service.impl.BookWriteBehind;
+import com.org.bansira.lbms.service.impl.CatalogueStatistics;
+import com.org.bansira.lbms.service.impl.CatalogueVersion;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class BookWriteBehindTest {
+
+    private EmbeddedBookRepository bookRepository;
+    private BookSearchIndex bookSearchIndex;
+    private BookWriteBehind writeBehind;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        bookRepository = spy(new EmbeddedBookRepository());
+        bookRepository.load();
+        bookSearchIndex = mock(BookSearchIndex.class);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        writeBehind.close();
+    }
+
+    @Test
+    @DisplayName("Queued books are written in one batch and their outcome can be looked up")
+    void testSubmit_WrittenInBatch() throws Exception {
+        start(10, Duration.ofMillis(200));
+        bookRepository.insert(book("isbn-0"));
+
+        QueuedWrite first = writeBehind.submit(book("isbn-1"));
+        QueuedWrite second = writeBehind.submit(book("isbn-2"));
+        QueuedWrite existing = writeBehind.submit(book("isbn-0"));
+
+        assertEquals(QueuedWrite.Status.QUEUED, first.getStatus());
+        assertEquals(QueuedWrite.Status.QUEUED, writeBehind.find(first.getId()).orElseThrow().getStatus());
+        assertEquals(QueuedWrite.Status.INSERTED, await(first.getId()));
+        assertEquals(QueuedWrite.Status.INSERTED, await(second.getId()));
+        assertEquals(QueuedWrite.Status.DUPLICATE, await(existing.getId()));
+        assertTrue(bookRepository.existsByIsbn("isbn-2"));
+        verify(bookRepository, times(1)).insertAllUnordered(anyList());
+        verify(bookSearchIndex, times(2)).index(any(Book.class));
+    }
+
+    @Test
+    @DisplayName("A book the DB rejects fails alone and the rest of its batch is inserted")
+    void testSubmit_PartialFailure() throws Exception {
+        doReturn(Map.of(1, BulkOutcome.Status.FAILED)).when(bookRepository).insertAllUnordered(anyList());
+        start(10, Duration.ofMillis(200));
+
+        QueuedWrite first = writeBehind.submit(book("isbn-1"));
+        QueuedWrite invalid = writeBehind.submit(book("isbn-2"));
+
+        assertEquals(QueuedWrite.Status.INSERTED, await(first.getId()));
+        assertEquals(QueuedWrite.Status.FAILED, await(invalid.getId()));
+        verify(bookSearchIndex, times(1)).index(any(Book.class));
+    }
+
+    @Test
+    @DisplayName("An ISBN waiting in the queue cannot be queued again")
+    void testSubmit_PendingDuplicate() throws Exception {
+        start(10, Duration.ofMillis(200));
+
+        QueuedWrite first = writeBehind.submit(book("isbn-1"));
+        QueuedWrite again = writeBehind.submit(book("isbn-1"));
+
+        assertEquals(QueuedWrite.Status.DUPLICATE, again.getStatus());
+        assertNull(again.getId());
+        assertEquals(QueuedWrite.Status.INSERTED, await(first.getId()));
+    }
+
+    @Test
+    @DisplayName("Books are rejected while the queue is full")
+    void testSubmit_QueueFull() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return invocation.callRealMethod();
+        }).when(bookRepository).insertAllUnordered(anyList());
+        start(2, Duration.ofMillis(1));
+
+        QueuedWrite blocked = writeBehind.submit(book("isbn-1")); // taken by the writer, which then blocks.
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        writeBehind.submit(book("isbn-2"));
+        writeBehind.submit(book("isbn-3"));
+        QueuedWrite rejected = writeBehind.submit(book("isbn-4"));
+        release.countDown();
+
+        assertEquals(QueuedWrite.Status.REJECTED, rejected.getStatus());
+        assertEquals(QueuedWrite.Status.INSERTED, await(blocked.getId()));
+        assertEquals(QueuedWrite.Status.QUEUED, writeBehind.submit(book("isbn-4")).getStatus());
+    }
+
+    @Test
+    @DisplayName("Closing flushes every queued book")
+    void testClose_FlushesQueue() throws Exception {
+        start(100, Duration.ofSeconds(10));
+        for (int i = 0; i < 50; i++) {
+            writeBehind.submit(book("isbn-" + i));
+        }
+
+        writeBehind.close();
+
+        assertEquals(50, bookRepository.count());
+        assertEquals(QueuedWrite.Status.REJECTED, writeBehind.submit(book("isbn-50")).getStatus());
+    }
+
+    @Test
+    @DisplayName("A book acknowledged while the queue is closing is still written")
+    void testSubmit_WhileClosing() throws Exception {
+        start(10, Duration.ofMillis(100));
+        CountDownLatch checked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Set<String> pendingIsbns = ConcurrentHashMap.newKeySet();
+        ReflectionTestUtils.setField(writeBehind, "pendingIsbns", new AbstractSet<String>() {
+            @Override
+            public boolean add(String isbn) {
+                checked.countDown(); // the add has seen the queue open and has not offered the book yet.
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return pendingIsbns.add(isbn);
+            }
+
+            @Override
+            public boolean remove(Object isbn) {
+                return pendingIsbns.remove(isbn);
+            }
+
+            @Override
+            public Iterator<String> iterator() {
+                return pendingIsbns.iterator();
+            }
+
+            @Override
+            public int size() {
+                return pendingIsbns.size();
+            }
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<QueuedWrite> submitted = executor.submit(() -> writeBehind.submit(book("isbn-1")));
+            assertTrue(checked.await(5, TimeUnit.SECONDS));
+            Future<?> closed = executor.submit(() -> {
+                writeBehind.close();
+                return null;
+            });
+            assertThrows(TimeoutException.class, () -> closed.get(200, TimeUnit.MILLISECONDS));
+            release.countDown();
+            closed.get(5, TimeUnit.SECONDS);
+
+            QueuedWrite queued = submitted.get(5, TimeUnit.SECONDS);
+            assertEquals(QueuedWrite.Status.QUEUED, queued.getStatus());
+            assertEquals(QueuedWrite.Status.INSERTED, writeBehind.find(queued.getId()).orElseThrow().getStatus());
+            assertTrue(bookRepository.existsByIsbn("isbn-1"));
+            assertTrue(pendingIsbns.isEmpty());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private void start(int queueCapacity, Duration flushInterval) {
+        writeBehind = new BookWriteBehind();
+        ReflectionTestUtils.setField(writeBehind, "bookRepository", bookRepository);
+        ReflectionTestUtils.setField(writeBehind, "bookSearchIndex", bookSearchIndex);
+        ReflectionTestUtils.setField(writeBehind, "catalogueVersion", new CatalogueVersion());
+        ReflectionTestUtils.setField(writeBehind, "catalogueStatistics", new CatalogueStatistics());
+        ReflectionTestUtils.setField(writeBehind, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(writeBehind, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(writeBehind, "batchSize", 100);
+        ReflectionTestUtils.setField(writeBehind, "flushInterval", flushInterval);
+        ReflectionTestUtils.setField(writeBehind, "statusRetention", Duration.ofMinutes(1));
+        writeBehind.start();
+    }
+
+    private QueuedWrite.Status await(String id) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        QueuedWrite.Status status = writeBehind.find(id).orElseThrow().getStatus();
+        while (status == QueuedWrite.Status.QUEUED && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+            status = writeBehind.find(id).orElseThrow().getStatus();
+        }
+        return status;
+    }
+
+    private static Book book(String isbn) {
+        return new Book("Title " + isbn, isbn, "Author", "Genre", 2020, "Science", true);
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * This package contains the unit tests for service layer of Library APIs.
+ */
+package com.org.bansira.lbms.service;
+
+import com.org.bansira.lbms.data.EmbeddedBookRepository;
+import com.org.bansira.lbms.domain.Book;
+import com.org.bansira.lbms.domain.BookFilter;
+import com.org.bansira.lbms.domain.BulkJob;
+import com.org.bansira.lbms.domain.CatalogueStats;
+import com.org.bansira.lbms.search.BookSearchIndex;
+import com.org.bansira.lbms.service.impl.BulkJobs;
+import com.org.bansira.lbms.service.impl.CatalogueStatistics;
+import com.org.bansira.lbms.service.impl.CatalogueVersion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BulkJobsTest {
+
+    private EmbeddedBookRepository bookRepository;
+    private BookSearchIndex bookSearchIndex;
+    private CatalogueVersion catalogueVersion;
+    private CatalogueStatistics catalogueStatistics;
+    private CacheManager cacheManager;
+    private BulkJobs bulkJobs;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        bookRepository = new EmbeddedBookRepository();
+        bookRepository.load();
+        for (int i = 0; i < 25; i++) {
+            bookRepository.insert(book("sci-" + i, "Science", i % 5 == 0 ? "Physics" : "Biology"));
+        }
+        bookRepository.insert(book("his-1", "History", "Physics"));
+        bookSearchIndex = new BookSearchIndex();
+        ReflectionTestUtils.setField(bookSearchIndex, "bookRepository", bookRepository);
+        bookSearchIndex.rebuild();
+        catalogueVersion = new CatalogueVersion();
+        catalogueStatistics = new CatalogueStatistics();
+        ReflectionTestUtils.setField(catalogueStatistics, "bookRepository", bookRepository);
+        ReflectionTestUtils.setField(catalogueStatistics, "catalogueVersion", catalogueVersion);
+        catalogueStatistics.reconcile();
+        cacheManager = new ConcurrentMapCacheManager("booksByIsbn");
+        bulkJobs = new BulkJobs();
+        ReflectionTestUtils.setField(bulkJobs, "bookRepository", bookRepository);
+        ReflectionTestUtils.setField(bulkJobs, "bookSearchIndex", bookSearchIndex);
+        ReflectionTestUtils.setField(bulkJobs, "catalogueVersion", catalogueVersion);
+        ReflectionTestUtils.setField(bulkJobs, "catalogueStatistics", catalogueStatistics);
+        ReflectionTestUtils.setField(bulkJobs, "cacheManager", cacheManager);
+        ReflectionTestUtils.setField(bulkJobs, "batchSize", 10);
+        ReflectionTestUtils.setField(bulkJobs, "batchPause", Duration.ofMillis(1));
+        ReflectionTestUtils.setField(bulkJobs, "retention", Duration.ofMinutes(1));
+        bulkJobs.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        bulkJobs.stop();
+    }
+
+    @Test
+    @DisplayName("Removing a department deletes its books in batches and keeps the index, cache and counters in step")
+    void testDelete_Department() throws InterruptedException {
+        cacheManager.getCache("booksByIsbn").put("sci-1", Optional.of(book("sci-1", "Science", "Biology")));
+        String version = catalogueVersion.current("Science");
+
+        BulkJob queued = bulkJobs.delete(new BookFilter("Science", null, null, null));
+        BulkJob done = await(queued.getId());
+
+        assertEquals(25, queued.getEstimatedTotal());
+        assertEquals(BulkJob.Status.COMPLETED, done.getStatus());
+        assertEquals(25, done.getScanned());
+        assertEquals(25, done.getProcessed());
+        assertEquals(1, bookRepository.count());
+        assertNull(cacheManager.getCache("booksByIsbn").get("sci-1"));
+        assertEquals(1, bookSearchIndex.size());
+        assertNotEquals(version, catalogueVersion.current("Science"));
+        CatalogueStats stats = catalogueStatistics.stats();
+        assertEquals(1, stats.getTotal());
+        assertFalse(stats.getDepartments().containsKey("Science"));
+        assertEquals(0, catalogueStatistics.reconcile());
+    }
+
+    @Test
+    @DisplayName("Moving books only moves those matching the whole filter")
+    void testMove_Filtered() throws InterruptedException {
+        BulkJob done = await(bulkJobs.move(new BookFilter(null, "Physics", null, null), "Archive").getId());
+
+        assertEquals(BulkJob.Status.COMPLETED, done.getStatus());
+        assertEquals(26, done.getScanned());
+        assertEquals(6, done.getProcessed());
+        assertEquals("Archive", bookRepository.findByIsbn("his-1").orElseThrow().getDepartment());
+        assertEquals("Science", bookRepository.findByIsbn("sci-1").orElseThrow().getDepartment());
+        CatalogueStats stats = catalogueStatistics.stats();
+        assertEquals(6, stats.getDepartments().get("Archive").getTotal());
+        assertEquals(20, stats.getDepartments().get("Science").getTotal());
+        assertEquals(0, catalogueStatistics.reconcile());
+    }
+
+    @Test
+    @DisplayName("Jobs without a filter or moving books to their own department are refused")
+    void testSubmit_Invalid() {
+        assertThrows(IllegalArgumentException.class, () -> bulkJobs.delete(new BookFilter()));
+        assertThrows(IllegalArgumentException.class, () -> bulkJobs.move(new BookFilter("Science", null, null, null), "Science"));
+        assertThrows(IllegalArgumentException.class, () -> bulkJobs.move(new BookFilter("Science", null, null, null), " "));
+    }
+
+    @Test
+    @DisplayName("A cancelled job stops before its next batch")
+    void testCancel() throws InterruptedException {
+        ReflectionTestUtils.setField(bulkJobs, "batchPause", Duration.ofSeconds(10));
+
+        BulkJob queued = bulkJobs.delete(new BookFilter("Science", null, null, null));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (bulkJobs.find(queued.getId()).orElseThrow().getProcessed() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        BulkJob cancelled = bulkJobs.cancel(queued.getId()).orElseThrow();
+        Thread.sleep(50);
+
+        assertEquals(BulkJob.Status.CANCELLED, cancelled.getStatus());
+        assertEquals(10, bulkJobs.find(queued.getId()).orElseThrow().getProcessed());
+        assertEquals(16, bookRepository.count());
+        assertTrue(bulkJobs.cancel("unknown").isEmpty());
+    }
+
+    private BulkJob await(String id) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        BulkJob job = bulkJobs.find(id).orElseThrow();
+        while (job.getFinishedAt() == null && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+            job = bulkJobs.find(id).orElseThrow();
+        }
+        return job;
+    }
+
+    private static Book book(String isbn, String department, String genre) {
+        return new Book("Title " + isbn, isbn, "Author", genre, 2020, department, true);
+    }
+}
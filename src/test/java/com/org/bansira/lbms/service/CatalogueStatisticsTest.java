@@ -0,0 +1,104 @@
+/**
+ * This package contains the unit tests for service layer of Library APIs.
+ */
+package com.org.bansira.lbms.service;
+
+import com.org.bansira.lbms.data.BookRepository;
+import com.org.bansira.lbms.domain.Book;
+import com.org.bansira.lbms.domain.CatalogueStats;
+import com.org.bansira.lbms.domain.ShelfCount;
+import com.org.bansira.lbms.service.impl.CatalogueStatistics;
+import com.org.bansira.lbms.service.impl.CatalogueVersion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CatalogueStatisticsTest {
+
+    private BookRepository bookRepository;
+    private CatalogueStatistics catalogueStatistics;
+    private CatalogueVersion catalogueVersion;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository = mock(BookRepository.class);
+        catalogueStatistics = new CatalogueStatistics();
+        catalogueVersion = new CatalogueVersion();
+        ReflectionTestUtils.setField(catalogueStatistics, "bookRepository", bookRepository);
+        ReflectionTestUtils.setField(catalogueStatistics, "catalogueVersion", catalogueVersion);
+    }
+
+    @Test
+    @DisplayName("Counters follow adds, availability changes and removals")
+    void testCounts_FollowWrites() {
+        Book dune = new Book("Dune", "isbn-1", "Frank Herbert", "Science Fiction", 1965, "Literature", true);
+        Book cosmos = new Book("Cosmos", "isbn-2", "Carl Sagan", "Science", 1980, "Science", true);
+        Book untitled = new Book("Untitled", "isbn-3", "Unknown", null, null, null, false);
+        catalogueStatistics.added(dune);
+        catalogueStatistics.added(cosmos);
+        catalogueStatistics.added(untitled);
+        cosmos.setIsAvailable(false);
+        catalogueStatistics.availabilityChanged(cosmos);
+        catalogueStatistics.removed(dune);
+
+        CatalogueStats stats = catalogueStatistics.stats();
+
+        assertEquals(2, stats.getTotal());
+        assertEquals(0, stats.getAvailable());
+        assertEquals(List.of("", "Science"), List.copyOf(stats.getDepartments().keySet()));
+        assertEquals(new CatalogueStats.Counts(1, 0), stats.getDepartments().get("Science"));
+        assertEquals(new CatalogueStats.Counts(1, 0), stats.getGenres().get(""));
+        assertFalse(stats.getGenres().containsKey("Science Fiction"));
+        assertNull(stats.getReconciledAt());
+    }
+
+    @Test
+    @DisplayName("Reconciliation replaces drifted counters with the DB counts")
+    void testReconcile_ReplacesCounters() {
+        catalogueStatistics.added(new Book("Dune", "isbn-1", "Frank Herbert", "Science Fiction", 1965, "Literature", true));
+        when(bookRepository.countByDepartmentAndGenre()).thenReturn(List.of(
+                new ShelfCount("Literature", "Science Fiction", 3, 2),
+                new ShelfCount("Literature", "Poetry", 1, 1),
+                new ShelfCount("Science", "Science Fiction", 2, 0)));
+
+        long drift = catalogueStatistics.reconcile();
+        CatalogueStats stats = catalogueStatistics.stats();
+
+        assertEquals(5, drift);
+        assertEquals(6, stats.getTotal());
+        assertEquals(3, stats.getAvailable());
+        assertEquals(new CatalogueStats.Counts(4, 3), stats.getDepartments().get("Literature"));
+        assertEquals(new CatalogueStats.Counts(5, 2), stats.getGenres().get("Science Fiction"));
+        assertNotNull(stats.getReconciledAt());
+        assertEquals(0, catalogueStatistics.reconcile());
+    }
+
+    @Test
+    @DisplayName("Reconciliation changes the version of departments changed through another instance")
+    void testReconcile_ChangesDriftedVersions() {
+        when(bookRepository.countByDepartmentAndGenre()).thenReturn(List.of(
+                new ShelfCount("Literature", "Poetry", 2, 2),
+                new ShelfCount("Science", "Physics", 1, 1)));
+        catalogueStatistics.reconcile();
+        String literature = catalogueVersion.current("Literature");
+        String science = catalogueVersion.current("Science");
+        when(bookRepository.countByDepartmentAndGenre()).thenReturn(List.of(
+                new ShelfCount("Literature", "Poetry", 2, 1), // a book checked out elsewhere.
+                new ShelfCount("Science", "Physics", 1, 1)));
+
+        assertEquals(0, catalogueStatistics.reconcile());
+
+        assertNotEquals(literature, catalogueVersion.current("Literature"));
+        assertEquals(science, catalogueVersion.current("Science"));
+        String catalogue = catalogueVersion.current();
+        catalogueStatistics.reconcile();
+        assertEquals(catalogue, catalogueVersion.current());
+    }
+}
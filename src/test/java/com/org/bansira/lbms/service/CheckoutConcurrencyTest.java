@@ -0,0 +1,112 @@
+/**
+ * This package contains the unit tests for service layer of Library APIs.
+ */
+package com.org.bansira.lbms.service;
+
+import com.org.bansira.lbms.data.EmbeddedBookRepository;
+import com.org.bansira.lbms.domain.AvailabilityChange;
+import com.org.bansira.lbms.domain.Book;
+import com.org.bansira.lbms.search.BookSearchIndex;
+import com.org.bansira.lbms.service.impl.CatalogueStatistics;
+import com.org.bansira.lbms.service.impl.CatalogueVersion;
+import com.org.bansira.lbms.service.impl.LibraryServiceImpl;
+import com.org.bansira.lbms.service.impl.SingleFlight;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Hammers checkout and return of a single copy from many threads, against the in-memory
+ * {@link EmbeddedBookRepository} whose conditional update only changes the book if it still has the expected
+ * availability, as Mongo does.
+ */
+public class CheckoutConcurrencyTest {
+
+    private static final String ISBN = "978-0-45228-425-0";
+    private static final int THREADS = 16;
+    private static final int OPERATIONS_PER_THREAD = 2_000;
+
+    private EmbeddedBookRepository bookRepository;
+    private LibraryServiceImpl libraryService;
+
+    /**
+     * Real collaborators only, as Mockito synchronizes on every stubbed call.
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        bookRepository = new EmbeddedBookRepository();
+        bookRepository.load();
+        libraryService = new LibraryServiceImpl();
+        ReflectionTestUtils.setField(libraryService, "bookRepository", bookRepository);
+        ReflectionTestUtils.setField(libraryService, "bookSearchIndex", new BookSearchIndex());
+        ReflectionTestUtils.setField(libraryService, "singleFlight", new SingleFlight(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(libraryService, "catalogueVersion", new CatalogueVersion());
+        ReflectionTestUtils.setField(libraryService, "catalogueStatistics", new CatalogueStatistics());
+        bookRepository.insert(new Book("1984", ISBN, "George Orwell", "Dystopian", 1949, "Literature", true));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        bookRepository.close();
+    }
+
+    @Test
+    @DisplayName("Concurrent checkouts and returns of one copy are neither lost nor doubled")
+    void testCheckoutAndReturn_Concurrently() throws Exception {
+        AtomicLong checkouts = new AtomicLong();
+        AtomicLong returns = new AtomicLong();
+        AtomicLong conflicts = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        if (libraryService.checkoutBook(ISBN).getStatus() == AvailabilityChange.Status.CHANGED) {
+                            checkouts.incrementAndGet();
+                        } else {
+                            conflicts.incrementAndGet();
+                        }
+                        if (libraryService.returnBook(ISBN).getStatus() == AvailabilityChange.Status.CHANGED) {
+                            returns.incrementAndGet();
+                        } else {
+                            conflicts.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Book book = bookRepository.findByIsbn(ISBN).orElseThrow();
+        long outstanding = checkouts.get() - returns.get();
+        assertTrue(outstanding == 0 || outstanding == 1, "a copy was checked out twice or returned twice");
+        assertEquals(outstanding == 0, book.getIsAvailable());
+        assertEquals(checkouts.get() + returns.get(), book.getVersion(), "an update was lost");
+        assertEquals(2L * THREADS * OPERATIONS_PER_THREAD, checkouts.get() + returns.get() + conflicts.get());
+        assertTrue(checkouts.get() > 0);
+    }
+}
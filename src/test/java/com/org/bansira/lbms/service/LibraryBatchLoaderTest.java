@@ -0,0 +1,155 @@
+/**
+ * This package contains the unit tests for service layer of Library APIs.
+ */
+package com.org.bansira.lbms.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.org.bansira.lbms.domain.Book;
+import com.org.bansira.lbms.domain.BulkOutcome;
+import com.org.bansira.lbms.domain.BulkResult;
+import com.org.bansira.lbms.export.CsvBookWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LibraryBatchLoaderTest {
+
+    @TempDir
+    Path directory;
+
+    private LibraryService libraryService;
+    private LibraryBatchLoader loader;
+    private List<List<Book>> chunks;
+    private ByteArrayOutputStream output;
+
+    @BeforeEach
+    void setUp() {
+        libraryService = mock(LibraryService.class);
+        chunks = new ArrayList<>();
+        when(libraryService.addBooks(any())).thenAnswer(invocation -> {
+            Iterator<Book> books = invocation.getArgument(0);
+            List<Book> chunk = new ArrayList<>();
+            BulkResult result = new BulkResult();
+            books.forEachRemaining(book -> {
+                chunk.add(book);
+                result.add(book.getIsbn(), book.getIsbn().startsWith("rejected")
+                        ? BulkOutcome.Status.FAILED : BulkOutcome.Status.INSERTED);
+            });
+            chunks.add(chunk);
+            return result;
+        });
+        loader = new LibraryBatchLoader();
+        ReflectionTestUtils.setField(loader, "libraryService", libraryService);
+        ReflectionTestUtils.setField(loader, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(loader, "chunkSize", 2);
+        output = new ByteArrayOutputStream();
+    }
+
+    @Test
+    @DisplayName("CSV books are added in chunks with quoted fields and typed columns")
+    void testLoad_Csv() throws IOException {
+        Path file = Files.writeString(directory.resolve("books.csv"), """
+                isbn,title,author,publicationYear,isAvailable
+                isbn-1,"Dune, Part One",Frank Herbert,1965,true
+                isbn-2,"The \"\"Hobbit\"\"",J. R. R. Tolkien,1937,false
+                isbn-3,Cosmos,,1980,true
+                """);
+
+        LibraryBatchLoader.Report report = loader.load(file, new PrintStream(output));
+
+        assertEquals(3, report.getInserted());
+        assertEquals(2, chunks.size());
+        Book first = chunks.get(0).get(0);
+        assertEquals("Dune, Part One", first.getTitle());
+        assertEquals(1965, first.getPublicationYear());
+        assertEquals("The \"Hobbit\"", chunks.get(0).get(1).getTitle());
+        assertFalse(chunks.get(0).get(1).getIsAvailable());
+        assertNull(chunks.get(1).get(0).getAuthor());
+        assertTrue(output.toString().contains("3 inserted"));
+    }
+
+    @Test
+    @DisplayName("A CSV export with line breaks in quoted fields loads back")
+    void testLoad_CsvExportRoundTrip() throws IOException {
+        Path file = directory.resolve("export.csv");
+        try (CsvBookWriter writer = new CsvBookWriter(Files.newOutputStream(file))) {
+            writer.write(new Book("Dune\nPart \"One\", illustrated", "isbn-1", "Frank Herbert", "Science Fiction", 1965, "Literature", true));
+            writer.write(new Book("Cosmos", "isbn-2", "Carl Sagan", null, 1980, "Science", false));
+        }
+
+        LibraryBatchLoader.Report report = loader.load(file, new PrintStream(output));
+
+        assertEquals(2, report.getInserted());
+        assertEquals(0, report.getInvalid());
+        Book first = chunks.get(0).get(0);
+        assertEquals("Dune\nPart \"One\", illustrated", first.getTitle());
+        assertEquals("Frank Herbert", first.getAuthor());
+        assertEquals(1965, first.getPublicationYear());
+        assertEquals("isbn-2", chunks.get(0).get(1).getIsbn());
+        assertFalse(chunks.get(0).get(1).getIsAvailable());
+    }
+
+    @Test
+    @DisplayName("Books the DB rejects are counted as failed")
+    void testLoad_Failed() throws IOException {
+        Path file = Files.writeString(directory.resolve("books.ndjson"), """
+                {"isbn": "isbn-1", "title": "Dune"}
+                {"isbn": "rejected-2", "title": "Cosmos"}
+                {"isbn": "isbn-3", "title": "Contact"}
+                """);
+
+        LibraryBatchLoader.Report report = loader.load(file, new PrintStream(output));
+
+        assertEquals(2, report.getInserted());
+        assertEquals(1, report.getFailed());
+        assertEquals(3, report.getProcessed());
+        assertTrue(output.toString().contains("Done: 3 records"));
+        assertTrue(output.toString().contains("1 failed"));
+    }
+
+    @Test
+    @DisplayName("NDJSON adds and removals are applied in file order and bad lines are skipped")
+    void testLoad_NdjsonCommands() throws IOException {
+        when(libraryService.removeBook("isbn-1")).thenReturn(1L);
+        when(libraryService.removeBook("isbn-9")).thenReturn(0L);
+        Path file = Files.writeString(directory.resolve("books.ndjson"), """
+                {"isbn": "isbn-1", "title": "Dune"}
+                {"action": "remove", "isbn": "isbn-1"}
+                not json
+                {"action": "remove", "isbn": "isbn-9"}
+                {"action": "rename", "isbn": "isbn-2"}
+                {"isbn": "isbn-2", "title": "Cosmos", "publicationYear": 1980}
+                """);
+
+        LibraryBatchLoader.Report report = loader.load(file, new PrintStream(output));
+
+        assertEquals(1, report.getRemoved());
+        assertEquals(1, report.getMissing());
+        assertEquals(2, report.getInvalid());
+        assertEquals(2, report.getInserted());
+        assertEquals(6, report.getProcessed());
+        InOrder order = inOrder(libraryService);
+        order.verify(libraryService).addBooks(any());
+        order.verify(libraryService).removeBook("isbn-1");
+        order.verify(libraryService).addBooks(any());
+        assertTrue(output.toString().contains("Skipping malformed record on line 3"));
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * This package contains the unit tests for service layer of Library APIs.
+ */
+package com.org.bansira.lbms.service;
+
+import com.org.bansira.lbms.config.CacheConfig;
+import com.org.bansira.lbms.data.BookRepository;
+import com.org.bansira.lbms.domain.Book;
+import com.org.bansira.lbms.search.BookSearchIndex;
+import com.org.bansira.lbms.service.impl.BulkJobs;
+import com.org.bansira.lbms.service.impl.CatalogueStatistics;
+import com.org.bansira.lbms.service.impl.CatalogueVersion;
+import com.org.bansira.lbms.service.impl.LibraryServiceImpl;
+import com.org.bansira.lbms.service.impl.SingleFlight;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.cache.CacheAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(classes = {LibraryServiceImpl.class, CacheConfig.class, SingleFlight.class, CatalogueVersion.class, CatalogueStatistics.class, BulkJobs.class,
+        SimpleMeterRegistry.class},
+        properties = {"spring.cache.cache-names=booksByIsbn", "spring.cache.caffeine.spec=maximumSize=100,recordStats"})
+@ImportAutoConfiguration(CacheAutoConfiguration.class)
+public class LibraryServiceCacheTest {
+
+    @MockBean
+    private BookRepository bookRepository;
+
+    @MockBean
+    private BookSearchIndex bookSearchIndex;
+
+    @Autowired
+    private LibraryService libraryService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private Book book;
+
+    /**
+     * Dummy Book object and an empty cache for running tests.
+     */
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCache(CacheConfig.BOOKS_BY_ISBN).clear();
+        book = new Book("1", "The Adventures of Sherlock Holmes", "978-1-56619-909-4", "Arthur Conan Doyle", "Mystery", 1892, "Literature", true);
+    }
+
+    @Test
+    @DisplayName("Repeated ISBN lookups are served from the cache")
+    void testFindBookByIsbn_Cached() {
+        when(bookRepository.findByIsbn(book.getIsbn())).thenReturn(Optional.of(book));
+
+        assertEquals(Optional.of(book), libraryService.findBookByIsbn(book.getIsbn()));
+        assertEquals(Optional.of(book), libraryService.findBookByIsbn(book.getIsbn()));
+
+        verify(bookRepository, times(1)).findByIsbn(book.getIsbn());
+    }
+
+    @Test
+    @DisplayName("Unknown ISBNs are cached until the book is added")
+    void testFindBookByIsbn_NegativeCachedUntilAdded() {
+        when(bookRepository.findByIsbn(book.getIsbn())).thenReturn(Optional.empty());
+        when(bookRepository.insert(any(Book.class))).thenReturn(book);
+
+        assertTrue(libraryService.findBookByIsbn(book.getIsbn()).isEmpty());
+        assertTrue(libraryService.findBookByIsbn(book.getIsbn()).isEmpty());
+        verify(bookRepository, times(1)).findByIsbn(book.getIsbn());
+
+        libraryService.addBook(book);
+        when(bookRepository.findByIsbn(book.getIsbn())).thenReturn(Optional.of(book));
+
+        assertEquals(Optional.of(book), libraryService.findBookByIsbn(book.getIsbn()));
+        verify(bookRepository, times(2)).findByIsbn(book.getIsbn());
+    }
+
+    @Test
+    @DisplayName("A miss read before the book was added is not cached")
+    void testFindBookByIsbn_MissRacingAdd() {
+        when(bookRepository.insert(any(Book.class))).thenReturn(book);
+        when(bookRepository.findByIsbn(book.getIsbn())).thenAnswer(invocation -> {
+            libraryService.addBook(book); // lands after the lookup read the DB, before its result is cached.
+            return Optional.empty();
+        });
+
+        assertTrue(libraryService.findBookByIsbn(book.getIsbn()).isEmpty());
+        doReturn(Optional.of(book)).when(bookRepository).findByIsbn(book.getIsbn());
+
+        assertEquals(Optional.of(book), libraryService.findBookByIsbn(book.getIsbn()));
+        assertEquals(Optional.of(book), libraryService.findBookByIsbn(book.getIsbn()));
+        verify(bookRepository, times(2)).findByIsbn(book.getIsbn());
+    }
+
+    @Test
+    @DisplayName("Removing a book evicts it from the cache")
+    void testRemoveBook_Evicts() {
+        when(bookRepository.findByIsbn(book.getIsbn())).thenReturn(Optional.of(book));
+        when(bookRepository.deleteByIsbn(book.getIsbn())).thenReturn(1L);
+
+        libraryService.findBookByIsbn(book.getIsbn());
+        libraryService.removeBook(book.getIsbn());
+        when(bookRepository.findByIsbn(book.getIsbn())).thenReturn(Optional.empty());
+
+        assertTrue(libraryService.findBookByIsbn(book.getIsbn()).isEmpty());
+        verify(bookRepository, times(2)).findByIsbn(book.getIsbn());
+    }
+}
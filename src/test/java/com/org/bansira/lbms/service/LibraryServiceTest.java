@@ -4,8 +4,19 @@
 package com.org.bansira.lbms.service;
 
 import com.org.bansira.lbms.data.BookRepository;
+import com.org.bansira.lbms.domain.AvailabilityChange;
 import com.org.bansira.lbms.domain.Book;
+import com.org.bansira.lbms.domain.BookFields;
+import com.org.bansira.lbms.domain.BookPage;
+import com.org.bansira.lbms.domain.BulkOutcome;
+import com.org.bansira.lbms.domain.BulkResult;
+import com.org.bansira.lbms.domain.CatalogueStats;
+import com.org.bansira.lbms.search.BookSearchIndex;
+import com.org.bansira.lbms.service.impl.CatalogueStatistics;
+import com.org.bansira.lbms.service.impl.CatalogueVersion;
 import com.org.bansira.lbms.service.impl.LibraryServiceImpl;
+import com.org.bansira.lbms.service.impl.SingleFlight;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -13,16 +24,33 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,6 +60,18 @@ public class LibraryServiceTest {
     @Mock
     private BookRepository bookRepository;
 
+    @Mock
+    private BookSearchIndex bookSearchIndex;
+
+    @Spy
+    private SingleFlight singleFlight = new SingleFlight(new SimpleMeterRegistry());
+
+    @Spy
+    private CatalogueVersion catalogueVersion = new CatalogueVersion();
+
+    @Spy
+    private CatalogueStatistics catalogueStatistics = new CatalogueStatistics();
+
     @InjectMocks
     private LibraryServiceImpl libraryService;
 
@@ -49,25 +89,34 @@ public class LibraryServiceTest {
     @Test
     @DisplayName("Add Book to Library")
     void testAddBook_Success() {
-        when(bookRepository.existsByIsbn(anyString())).thenReturn(false);
-        when(bookRepository.save(any(Book.class))).thenReturn(book);
+        when(bookRepository.insert(any(Book.class))).thenReturn(book);
 
         Optional<Book> result = libraryService.addBook(book);
 
         assertTrue(result.isPresent());
         assertEquals(book, result.get());
+        verify(bookSearchIndex).index(book);
     }
 
     @Test
     @DisplayName("Book Already Exists in Library")
     void testAddBook_AlreadyExists() {
-        when(bookRepository.existsByIsbn(anyString())).thenReturn(true);
+        when(bookRepository.insert(any(Book.class))).thenThrow(new DuplicateKeyException("E11000 duplicate key error"));
 
         Optional<Book> result = libraryService.addBook(book);
 
         assertFalse(result.isPresent());
     }
 
+    @Test
+    @DisplayName("Book without an ISBN is rejected before it reaches the DB")
+    void testAddBook_MissingIsbn() {
+        book.setIsbn(" ");
+
+        assertThrows(IllegalArgumentException.class, () -> libraryService.addBook(book));
+        verify(bookRepository, never()).insert(any(Book.class));
+    }
+
     @Test
     @DisplayName("Get Book by ISBN from Library")
     void testFindBookByIsbn() {
@@ -135,5 +184,254 @@ public class LibraryServiceTest {
         Long result = libraryService.removeBook("978-1-56619-909-4");
 
         assertEquals(1L, result);
+        verify(bookSearchIndex).remove("978-1-56619-909-4");
+    }
+
+    @Test
+    @DisplayName("Adding a Book changes the catalogue and its department version only")
+    void testAddBook_ChangesVersions() {
+        when(bookRepository.insert(any(Book.class))).thenReturn(book);
+        String catalogue = libraryService.catalogueVersion();
+        String literature = libraryService.departmentVersion("Literature");
+        String science = libraryService.departmentVersion("Science");
+
+        libraryService.addBook(book);
+
+        assertNotEquals(catalogue, libraryService.catalogueVersion());
+        assertNotEquals(literature, libraryService.departmentVersion("Literature"));
+        assertEquals(science, libraryService.departmentVersion("Science"));
+    }
+
+    @Test
+    @DisplayName("Removing a Book missing from the search index changes every department version")
+    void testRemoveBook_UnknownDepartment() {
+        when(bookRepository.deleteByIsbn(anyString())).thenReturn(1L);
+        String science = libraryService.departmentVersion("Science");
+
+        libraryService.removeBook("978-1-56619-909-4");
+
+        assertNotEquals(science, libraryService.departmentVersion("Science"));
+    }
+
+    @Test
+    @DisplayName("Removing nothing keeps the catalogue version")
+    void testRemoveBook_NothingRemoved() {
+        when(bookRepository.deleteByIsbn(anyString())).thenReturn(0L);
+        String catalogue = libraryService.catalogueVersion();
+
+        libraryService.removeBook("978-1-56619-909-4");
+
+        assertEquals(catalogue, libraryService.catalogueVersion());
+    }
+
+    @Test
+    @DisplayName("Check out an available Book")
+    void testCheckoutBook_Success() {
+        Book checkedOut = new Book("1", book.getTitle(), book.getIsbn(), book.getAuthor(), book.getGenre(), book.getPublicationYear(), book.getDepartment(), false);
+        when(bookRepository.updateAvailability(book.getIsbn(), true, false)).thenReturn(checkedOut);
+        String literature = libraryService.departmentVersion("Literature");
+        String doyle = libraryService.authorVersion(book.getAuthor());
+        String orwell = libraryService.authorVersion("George Orwell");
+
+        AvailabilityChange result = libraryService.checkoutBook(book.getIsbn());
+
+        assertEquals(AvailabilityChange.Status.CHANGED, result.getStatus());
+        assertFalse(result.getBook().getIsAvailable());
+        verify(bookSearchIndex).index(checkedOut);
+        assertNotEquals(literature, libraryService.departmentVersion("Literature"));
+        assertNotEquals(doyle, libraryService.authorVersion(book.getAuthor()));
+        assertEquals(orwell, libraryService.authorVersion("George Orwell"));
+    }
+
+    @Test
+    @DisplayName("Adding, checking out and removing a Book keeps the statistics current")
+    void testCatalogueStats_FollowWrites() {
+        Book checkedOut = new Book("1", book.getTitle(), book.getIsbn(), book.getAuthor(), book.getGenre(), book.getPublicationYear(), book.getDepartment(), false);
+        when(bookRepository.insert(any(Book.class))).thenReturn(book);
+        when(bookRepository.updateAvailability(book.getIsbn(), true, false)).thenReturn(checkedOut);
+
+        libraryService.addBook(book);
+        libraryService.checkoutBook(book.getIsbn());
+        CatalogueStats stats = libraryService.catalogueStats();
+
+        assertEquals(1, stats.getTotal());
+        assertEquals(0, stats.getAvailable());
+        assertEquals(new CatalogueStats.Counts(1, 0), stats.getDepartments().get("Literature"));
+        assertEquals(new CatalogueStats.Counts(1, 0), stats.getGenres().get("Mystery"));
+
+        when(bookRepository.deleteByIsbn(book.getIsbn())).thenReturn(1L);
+        when(bookSearchIndex.remove(book.getIsbn())).thenReturn(checkedOut);
+        libraryService.removeBook(book.getIsbn());
+
+        assertEquals(0, libraryService.catalogueStats().getTotal());
+        assertTrue(libraryService.catalogueStats().getDepartments().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Check out a Book that is already checked out")
+    void testCheckoutBook_Conflict() {
+        when(bookRepository.updateAvailability(book.getIsbn(), true, false)).thenReturn(null);
+        when(bookRepository.existsByIsbn(book.getIsbn())).thenReturn(true);
+
+        AvailabilityChange result = libraryService.checkoutBook(book.getIsbn());
+
+        assertEquals(AvailabilityChange.Status.CONFLICT, result.getStatus());
+        assertNull(result.getBook());
+        verify(bookSearchIndex, times(0)).index(any(Book.class));
+    }
+
+    @Test
+    @DisplayName("Return a Book that does not exist")
+    void testReturnBook_NotFound() {
+        when(bookRepository.updateAvailability("unknown", false, true)).thenReturn(null);
+        when(bookRepository.existsByIsbn("unknown")).thenReturn(false);
+
+        AvailabilityChange result = libraryService.returnBook("unknown");
+
+        assertEquals(AvailabilityChange.Status.NOT_FOUND, result.getStatus());
+    }
+
+    @Test
+    @DisplayName("Get first page of Books with a cursor to the next page")
+    void testListAllBooks_FirstPage() {
+        Book second = new Book("2", "1984", "978-1-56619-909-5", "George Orwell", "Dystopian", 1949, "Literature", true);
+        Book third = new Book("3", "Animal Farm", "978-1-56619-909-6", "George Orwell", "Satire", 1945, "Literature", true);
+        when(bookRepository.findByIsbnGreaterThanOrderByIsbnAsc(eq(""), eq(Limit.of(3)))).thenReturn(Arrays.asList(book, second, third));
+
+        BookPage result = libraryService.listAllBooks(null, 2);
+
+        assertEquals(Arrays.asList(book, second), result.getBooks());
+        assertEquals(second.getIsbn(), result.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("A page read after a write is not shared with a read that started before it")
+    void testListAllBooks_WriteDuringSharedRead() throws Exception {
+        Book added = new Book("2", "1984", "978-1-56619-909-5", "George Orwell", "Dystopian", 1949, "Literature", true);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger queries = new AtomicInteger();
+        when(bookRepository.insert(added)).thenReturn(added);
+        when(bookRepository.findByIsbnGreaterThanOrderByIsbnAsc(eq(""), eq(Limit.of(11)))).thenAnswer(invocation -> {
+            if (queries.incrementAndGet() > 1) {
+                return Arrays.asList(book, added);
+            }
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return Arrays.asList(book); // read before the book was added.
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<BookPage> before = executor.submit(() -> libraryService.listAllBooks(null, 10));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            libraryService.addBook(added);
+            String version = libraryService.catalogueVersion();
+            Future<BookPage> after = executor.submit(() -> libraryService.listAllBooks(null, 10));
+
+            assertEquals(Arrays.asList(book, added), after.get(5, TimeUnit.SECONDS).getBooks());
+            assertEquals(version, libraryService.catalogueVersion());
+            release.countDown();
+            assertEquals(Arrays.asList(book), before.get(5, TimeUnit.SECONDS).getBooks());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+        assertEquals(2, queries.get());
+    }
+
+    @Test
+    @DisplayName("Get a page of Books by author reading only the summary fields")
+    void testFindBookByAuthor_Projected() {
+        Book summary = BookFields.SUMMARY.project(book);
+        when(bookRepository.findProjectedPage("author", "Arthur Conan Doyle", "", 3, BookFields.SUMMARY)).thenReturn(Collections.singletonList(summary));
+
+        BookPage result = libraryService.findBookByAuthor("Arthur Conan Doyle", null, 2, BookFields.SUMMARY);
+
+        assertEquals(Collections.singletonList(summary), result.getBooks());
+        assertNull(result.getBooks().get(0).getGenre());
+        assertEquals(book.getTitle(), result.getBooks().get(0).getTitle());
+        assertNull(result.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("Get last page of available Books without a next cursor")
+    void testListAvailableBooks_LastPage() {
+        when(bookRepository.findByIsAvailableAndIsbnGreaterThanOrderByIsbnAsc(eq(true), eq("978-0"), eq(Limit.of(3)))).thenReturn(Collections.singletonList(book));
+
+        BookPage result = libraryService.listAvailableBooks("978-0", 2);
+
+        assertEquals(Collections.singletonList(book), result.getBooks());
+        assertNull(result.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("Page size is capped to the maximum allowed")
+    void testFindBookByAuthor_PageSizeCapped() {
+        when(bookRepository.findByAuthorAndIsbnGreaterThanOrderByIsbnAsc(anyString(), anyString(), eq(Limit.of(BookPage.MAX_SIZE + 1))))
+                .thenReturn(Collections.singletonList(book));
+
+        BookPage result = libraryService.findBookByAuthor("Arthur Conan Doyle", null, Integer.MAX_VALUE);
+
+        assertEquals(1, result.getBooks().size());
+    }
+
+    @Test
+    @DisplayName("Stream Books matching a Title from Library")
+    void testStreamBooksByTitle() {
+        when(bookRepository.streamByTitle(anyString())).thenReturn(Stream.of(book));
+
+        try (Stream<Book> result = libraryService.streamBooksByTitle("The Adventures of Sherlock Holmes")) {
+            assertEquals(Collections.singletonList(book), result.toList());
+        }
+    }
+
+    @Test
+    @DisplayName("Bulk add reports inserted, duplicate, invalid and failed Books")
+    void testAddBooks_MixedOutcomes() {
+        Book rejected = new Book("Animal Farm", "978-0-45228-425-1", "George Orwell", "Satire", 1945, "Literature", true);
+        Book invalid = new Book(null, "978-0-45228-425-2", "George Orwell", "Satire", 1945, "Literature", true);
+        when(bookRepository.insertAllUnordered(eq(Arrays.asList(book, rejected, book))))
+                .thenReturn(Map.of(1, BulkOutcome.Status.FAILED, 2, BulkOutcome.Status.DUPLICATE));
+
+        BulkResult result = libraryService.addBooks(Arrays.asList(book, rejected, invalid, book).iterator());
+
+        assertEquals(1, result.getInserted());
+        assertEquals(1, result.getDuplicates());
+        assertEquals(1, result.getInvalid());
+        assertEquals(1, result.getFailed());
+        assertTrue(result.getOutcomes().contains(new BulkOutcome(book.getIsbn(), BulkOutcome.Status.INSERTED)));
+        assertTrue(result.getOutcomes().contains(new BulkOutcome(rejected.getIsbn(), BulkOutcome.Status.FAILED)));
+        verify(bookSearchIndex, never()).index(rejected);
+    }
+
+    @Test
+    @DisplayName("Bulk add splits large requests into batches")
+    void testAddBooks_Batched() {
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < LibraryServiceImpl.BULK_BATCH_SIZE + 1; i++) {
+            books.add(new Book("Title " + i, "isbn-" + i, "Author", "Genre", 2000, "Literature", true));
+        }
+        when(bookRepository.insertAllUnordered(any())).thenReturn(Map.of());
+
+        BulkResult result = libraryService.addBooks(books.iterator());
+
+        assertEquals(books.size(), result.getInserted());
+        verify(bookRepository, times(2)).insertAllUnordered(any());
+    }
+
+    @Test
+    @DisplayName("Search Books is served by the search index")
+    void testSearchBooks() {
+        BookPage page = new BookPage(Collections.singletonList(book), null);
+        when(bookSearchIndex.search("sherlock hol", null, 10)).thenReturn(page);
+
+        assertEquals(page, libraryService.searchBooks("sherlock hol", null, 10));
+    }
+
+    @Test
+    @DisplayName("Queueing a book without write-behind is refused")
+    void testQueueBook_WriteBehindDisabled() {
+        assertThrows(IllegalStateException.class, () -> libraryService.queueBook(book));
+        verify(bookRepository, never()).insert(any(Book.class));
     }
 }
@@ -0,0 +1,146 @@
+/**
+ * This package contains the unit tests for service layer of Library APIs.
+ */
+package com.org.bansira.lbms.service;
+
+import com.org.bansira.lbms.data.ReactiveBookRepository;
+import com.org.bansira.lbms.domain.Book;
+import com.org.bansira.lbms.domain.BulkOutcome;
+import com.org.bansira.lbms.domain.BulkResult;
+import com.org.bansira.lbms.search.BookSearchIndex;
+import com.org.bansira.lbms.service.impl.CatalogueStatistics;
+import com.org.bansira.lbms.service.impl.CatalogueVersion;
+import com.org.bansira.lbms.service.impl.ReactiveLibraryServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ReactiveLibraryServiceTest {
+
+    @Mock
+    private ReactiveBookRepository reactiveBookRepository;
+
+    @Mock
+    private BookSearchIndex bookSearchIndex;
+
+    @Mock
+    private CatalogueVersion catalogueVersion;
+
+    @Mock
+    private CatalogueStatistics catalogueStatistics;
+
+    @InjectMocks
+    private ReactiveLibraryServiceImpl libraryService;
+
+    private Book book;
+    private Book book2;
+
+    /**
+     * Dummy Book objects for running tests.
+     */
+    @BeforeEach
+    void setUp() {
+        book = new Book("1", "The Adventures of Sherlock Holmes", "978-1-56619-909-4", "Arthur Conan Doyle", "Mystery", 1892, "Literature", true);
+        book2 = new Book("2", "1984", "978-0-45228-425-0", "George Orwell", "Dystopian", 1949, "Literature", true);
+    }
+
+    @Test
+    @DisplayName("Add Book to Library")
+    void testAddBook_Success() {
+        when(reactiveBookRepository.insert(any(Book.class))).thenReturn(Mono.just(book));
+
+        StepVerifier.create(libraryService.addBook(book)).expectNext(book).verifyComplete();
+        verify(bookSearchIndex).index(book);
+        verify(catalogueVersion).changed(book);
+        verify(catalogueStatistics).added(book);
+    }
+
+    @Test
+    @DisplayName("Book without an ISBN is rejected")
+    void testAddBook_MissingIsbn() {
+        book.setIsbn(" ");
+
+        StepVerifier.create(libraryService.addBook(book)).verifyError(IllegalArgumentException.class);
+        verify(reactiveBookRepository, never()).insert(any(Book.class));
+    }
+
+    @Test
+    @DisplayName("Book Already Exists in Library")
+    void testAddBook_AlreadyExists() {
+        when(reactiveBookRepository.insert(any(Book.class))).thenReturn(Mono.error(new DuplicateKeyException("E11000 duplicate key error")));
+
+        StepVerifier.create(libraryService.addBook(book)).verifyComplete();
+        verify(bookSearchIndex, never()).index(any());
+    }
+
+    @Test
+    @DisplayName("Stream all available Books from Library")
+    void testListAvailableBooks() {
+        when(reactiveBookRepository.findByIsAvailable(true)).thenReturn(Flux.just(book, book2));
+
+        StepVerifier.create(libraryService.listAvailableBooks(), 1)
+                .expectNext(book)
+                .thenRequest(1)
+                .expectNext(book2)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Get first page of Books with a cursor to the next page")
+    void testListAllBooks_FirstPage() {
+        when(reactiveBookRepository.findByIsbnGreaterThanOrderByIsbnAsc(eq(""), eq(Limit.of(2)))).thenReturn(Flux.just(book, book2));
+
+        StepVerifier.create(libraryService.listAllBooks(null, 1))
+                .assertNext(page -> {
+                    assertEquals(Arrays.asList(book), page.getBooks());
+                    assertEquals(book.getIsbn(), page.getNextCursor());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Bulk add reports inserted, duplicate and invalid Books")
+    void testAddBooks_MixedOutcomes() {
+        Book invalid = new Book(null, "978-0-45228-425-2", "George Orwell", "Satire", 1945, "Literature", true);
+        when(reactiveBookRepository.insertAllUnordered(Arrays.asList(book, book2))).thenReturn(Mono.just(Map.of(1, BulkOutcome.Status.DUPLICATE)));
+
+        BulkResult result = libraryService.addBooks(Flux.just(book, invalid, book2)).block();
+
+        assertEquals(1, result.getInserted());
+        assertEquals(1, result.getDuplicates());
+        assertEquals(1, result.getInvalid());
+        verify(catalogueStatistics).added(book);
+        verify(catalogueStatistics, never()).added(book2);
+    }
+
+    @Test
+    @DisplayName("Remove Book by ISBN from Library")
+    void testRemoveBook() {
+        when(reactiveBookRepository.deleteByIsbn(book.getIsbn())).thenReturn(Mono.just(1L));
+        when(bookSearchIndex.remove(book.getIsbn())).thenReturn(book);
+
+        StepVerifier.create(libraryService.removeBook(book.getIsbn())).expectNext(1L).verifyComplete();
+        verify(catalogueVersion).changed(book);
+        verify(catalogueStatistics).removed(book);
+    }
+}
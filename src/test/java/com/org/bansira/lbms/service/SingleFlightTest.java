@@ -0,0 +1,95 @@
+/**
+ * This package contains the unit tests for service layer of Library APIs.
+ */
+package com.org.bansira.lbms.service;
+
+import com.org.bansira.lbms.service.impl.SingleFlight;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private SingleFlight singleFlight;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        singleFlight = new SingleFlight(meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Concurrent identical lookups share one query")
+    void testExecute_Collapsed() throws Exception {
+        int callers = 8;
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger queries = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            Future<?>[] results = new Future<?>[callers];
+            for (int i = 0; i < callers; i++) {
+                results[i] = executor.submit(() -> singleFlight.execute("findBookByAuthor", "George Orwell", () -> {
+                    queries.incrementAndGet();
+                    await(release);
+                    return List.of("1984");
+                }));
+            }
+            while (meterRegistry.counter("lbms.singleflight.calls", "operation", "findBookByAuthor").count() < callers) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+            for (Future<?> result : results) {
+                assertEquals(List.of("1984"), result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, queries.get());
+        assertEquals(callers - 1, meterRegistry.counter("lbms.singleflight.collapsed", "operation", "findBookByAuthor").count());
+    }
+
+    @Test
+    @DisplayName("Sequential lookups query again and different keys are not shared")
+    void testExecute_NotShared() {
+        AtomicInteger queries = new AtomicInteger();
+
+        singleFlight.execute("findBookByAuthor", "George Orwell", queries::incrementAndGet);
+        singleFlight.execute("findBookByAuthor", "George Orwell", queries::incrementAndGet);
+        singleFlight.execute("findBookByAuthor", "Arthur Conan Doyle", queries::incrementAndGet);
+        singleFlight.execute("findBookByTitle", "George Orwell", queries::incrementAndGet);
+
+        assertEquals(4, queries.get());
+        assertEquals(0, meterRegistry.counter("lbms.singleflight.collapsed", "operation", "findBookByAuthor").count());
+    }
+
+    @Test
+    @DisplayName("A failed query is rethrown and not remembered")
+    void testExecute_Failure() {
+        assertThrows(IllegalStateException.class, () -> singleFlight.execute("findBookByIsbn", "1", () -> {
+            throw new IllegalStateException("down");
+        }));
+
+        assertEquals("ok", singleFlight.execute("findBookByIsbn", "1", () -> "ok"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}